@@ -0,0 +1,88 @@
+package com.springcache.redis.demo.benchmark;
+
+import org.redisson.Redisson;
+import org.redisson.api.RedissonClient;
+import org.redisson.config.Config;
+import org.springframework.data.redis.connection.RedisPassword;
+import org.springframework.data.redis.connection.RedisStandaloneConfiguration;
+import org.springframework.data.redis.connection.lettuce.LettuceConnectionFactory;
+import org.springframework.data.redis.core.StringRedisTemplate;
+import redis.clients.jedis.JedisPool;
+import redis.clients.jedis.JedisPoolConfig;
+import redis.embedded.RedisServer;
+
+/**
+ * 基准测试使用的 redis 及各客户端
+ * 通过系统属性或环境变量 BENCHMARK_REDIS_HOST / BENCHMARK_REDIS_PORT / BENCHMARK_REDIS_PASSWORD 指定 redis,
+ * BENCHMARK_REDIS_EMBEDDED=true 时在本进程启动内嵌 redis。
+ */
+public class BenchmarkRedis {
+
+    private final String host = setting("BENCHMARK_REDIS_HOST", "127.0.0.1");
+    private final int port = Integer.parseInt(setting("BENCHMARK_REDIS_PORT", "6379"));
+    private final String password = setting("BENCHMARK_REDIS_PASSWORD", "eric1988");
+    private final boolean embedded = Boolean.parseBoolean(setting("BENCHMARK_REDIS_EMBEDDED", "false"));
+
+    private RedisServer redisServer;
+    private LettuceConnectionFactory connectionFactory;
+    private StringRedisTemplate redisTemplate;
+    private RedissonClient redissonClient;
+    private JedisPool jedisPool;
+
+    public void start() {
+        if (embedded) {
+            redisServer = RedisServer.builder().port(port).setting("requirepass " + password).build();
+            redisServer.start();
+        }
+        RedisStandaloneConfiguration configuration = new RedisStandaloneConfiguration(host, port);
+        configuration.setPassword(RedisPassword.of(password));
+        connectionFactory = new LettuceConnectionFactory(configuration);
+        connectionFactory.afterPropertiesSet();
+        redisTemplate = new StringRedisTemplate(connectionFactory);
+
+        Config config = new Config();
+        config.useSingleServer()
+                .setAddress("redis://" + host + ":" + port)
+                .setPassword(password)
+                .setConnectionPoolSize(128);
+        redissonClient = Redisson.create(config);
+
+        JedisPoolConfig poolConfig = new JedisPoolConfig();
+        poolConfig.setMaxTotal(128);
+        poolConfig.setMaxIdle(128);
+        jedisPool = new JedisPool(poolConfig, host, port, 10000, password);
+    }
+
+    public void stop() {
+        jedisPool.close();
+        redissonClient.shutdown();
+        connectionFactory.destroy();
+        if (redisServer != null) {
+            redisServer.stop();
+        }
+    }
+
+    public LettuceConnectionFactory getConnectionFactory() {
+        return connectionFactory;
+    }
+
+    public StringRedisTemplate getRedisTemplate() {
+        return redisTemplate;
+    }
+
+    public RedissonClient getRedissonClient() {
+        return redissonClient;
+    }
+
+    public JedisPool getJedisPool() {
+        return jedisPool;
+    }
+
+    private static String setting(String name, String defaultValue) {
+        String value = System.getProperty(name);
+        if (value == null) {
+            value = System.getenv(name);
+        }
+        return value != null ? value : defaultValue;
+    }
+}
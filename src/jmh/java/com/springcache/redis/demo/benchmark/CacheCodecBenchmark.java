@@ -0,0 +1,101 @@
+package com.springcache.redis.demo.benchmark;
+
+import com.alibaba.fastjson.JSON;
+import com.springcache.redis.demo.cache.FastJsonCacheCodec;
+import com.springcache.redis.demo.cache.FstCacheCodec;
+import com.springcache.redis.demo.entity.ProductInfo;
+import com.springcache.redis.demo.entity.User;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.nio.charset.StandardCharsets;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * CacheTemplate 命中时的解码开销
+ * legacy 为原实现 parse -> toJSONString -> parseObject, 其余为 CacheCodec 单次解码,
+ * 对比 gc.alloc.rate.norm 可看出每次命中分配的字节数
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Benchmark)
+public class CacheCodecBenchmark {
+
+    private final FastJsonCacheCodec fastJsonCodec = new FastJsonCacheCodec();
+    private final FstCacheCodec fstCodec = new FstCacheCodec(User.class, ProductInfo.class);
+
+    //StringRedisTemplate 读出的字符串
+    private String userString;
+    private String productString;
+    //RedisCallback 读出的字节
+    private byte[] userJsonBytes;
+    private byte[] productJsonBytes;
+    private byte[] userFstBytes;
+    private byte[] productFstBytes;
+
+    @Setup
+    public void setup() {
+        User user = new User(10001L, "he yong", "heyong@1988");
+        ProductInfo productInfo = new ProductInfo(1L, 3, "Iphone XS");
+        userString = JSON.toJSONString(user);
+        productString = JSON.toJSONString(productInfo);
+        userJsonBytes = fastJsonCodec.encode(user);
+        productJsonBytes = fastJsonCodec.encode(productInfo);
+        userFstBytes = fstCodec.encode(user);
+        productFstBytes = fstCodec.encode(productInfo);
+    }
+
+    @Benchmark
+    public User userLegacy() {
+        return JSON.parseObject(JSON.toJSONString(JSON.parse(userString)), User.class);
+    }
+
+    @Benchmark
+    public User userLegacyFromBytes() {
+        // 原实现实际还需先将redis返回的字节转为字符串
+        String value = new String(userJsonBytes, StandardCharsets.UTF_8);
+        return JSON.parseObject(JSON.toJSONString(JSON.parse(value)), User.class);
+    }
+
+    @Benchmark
+    public User userFastJson() {
+        return fastJsonCodec.decode(userJsonBytes, User.class);
+    }
+
+    @Benchmark
+    public User userFst() {
+        return fstCodec.decode(userFstBytes, User.class);
+    }
+
+    @Benchmark
+    public ProductInfo productLegacy() {
+        return JSON.parseObject(JSON.toJSONString(JSON.parse(productString)), ProductInfo.class);
+    }
+
+    @Benchmark
+    public ProductInfo productLegacyFromBytes() {
+        String value = new String(productJsonBytes, StandardCharsets.UTF_8);
+        return JSON.parseObject(JSON.toJSONString(JSON.parse(value)), ProductInfo.class);
+    }
+
+    @Benchmark
+    public ProductInfo productFastJson() {
+        return fastJsonCodec.decode(productJsonBytes, ProductInfo.class);
+    }
+
+    @Benchmark
+    public ProductInfo productFst() {
+        return fstCodec.decode(productFstBytes, ProductInfo.class);
+    }
+}
@@ -0,0 +1,134 @@
+package com.springcache.redis.demo.benchmark;
+
+import com.springcache.redis.demo.cache.CacheBloomFilter;
+import com.springcache.redis.demo.cache.CacheChangeNotifier;
+import com.springcache.redis.demo.cache.CacheStats;
+import com.springcache.redis.demo.cache.CacheTemplate;
+import com.springcache.redis.demo.cache.HotKeyDetector;
+import com.springcache.redis.demo.cache.HotKeyReplica;
+import com.springcache.redis.demo.cache.NearCache;
+import com.springcache.redis.demo.config.CacheAutoConfig;
+import com.springcache.redis.demo.config.CacheConfig;
+import com.springcache.redis.demo.entity.User;
+import com.springcache.redis.demo.metrics.RedisMetrics;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+import org.redisson.api.RedissonClient;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.context.annotation.AnnotationConfigApplicationContext;
+import org.springframework.data.redis.core.ReactiveRedisTemplate;
+import org.springframework.data.redis.core.StringRedisTemplate;
+import org.springframework.data.redis.serializer.RedisSerializationContext;
+import org.springframework.data.redis.serializer.RedisSerializer;
+
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * CacheTemplate 各路径的开销: 本地缓存命中、redis命中、未命中(加锁+加载+写入), 以及异步读取的redis命中和未命中
+ * 只启动 CacheTemplate 相关的组件, 不启动整个应用
+ */
+@BenchmarkMode({Mode.Throughput, Mode.SampleTime})
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 2, time = 2)
+@Measurement(iterations = 3, time = 3)
+@Fork(1)
+@State(Scope.Benchmark)
+public class CacheTemplateBenchmark {
+
+    //启用本地缓存
+    private static final String NEAR_CACHE = "userCache";
+    //只使用redis
+    private static final String REDIS_CACHE = "benchmarkRedisOnly";
+    private static final String KEY = "benchmark::cacheTemplate::user:10001";
+
+    private final User user = new User(10001L, "he yong", "heyong@1988");
+    private final AtomicLong missSequence = new AtomicLong();
+
+    private BenchmarkRedis redis;
+    private AnnotationConfigApplicationContext context;
+    private CacheTemplate<User> cacheTemplate;
+
+    @Setup(Level.Trial)
+    @SuppressWarnings("unchecked")
+    public void setup() {
+        // CacheTemplate 每次从DB加载都会打印日志, 未命中测试时关闭, 避免控制台输出影响结果
+        ((ch.qos.logback.classic.Logger) LoggerFactory.getLogger(CacheTemplate.class)).setLevel(ch.qos.logback.classic.Level.OFF);
+        ((ch.qos.logback.classic.Logger) LoggerFactory.getLogger(Logger.ROOT_LOGGER_NAME)).setLevel(ch.qos.logback.classic.Level.INFO);
+        redis = new BenchmarkRedis();
+        redis.start();
+        context = new AnnotationConfigApplicationContext();
+        context.registerBean("stringRedisTemplate", StringRedisTemplate.class, () -> redis.getRedisTemplate(),
+                bd -> bd.setPrimary(true));
+        context.registerBean("replicaRedisTemplate", StringRedisTemplate.class, () -> redis.getRedisTemplate());
+        RedisSerializationContext<String, byte[]> byteContext = RedisSerializationContext
+                .<String, byte[]>newSerializationContext(RedisSerializer.string()).value(RedisSerializer.byteArray()).build();
+        context.registerBean("byteReactiveRedisTemplate", ReactiveRedisTemplate.class,
+                () -> new ReactiveRedisTemplate<>(redis.getConnectionFactory(), byteContext));
+        context.registerBean("replicaByteReactiveRedisTemplate", ReactiveRedisTemplate.class,
+                () -> new ReactiveRedisTemplate<>(redis.getConnectionFactory(), byteContext));
+        context.registerBean(RedissonClient.class, () -> redis.getRedissonClient());
+        context.registerBean(MeterRegistry.class, SimpleMeterRegistry::new);
+        context.register(CacheAutoConfig.class, CacheConfig.class, CacheStats.class, CacheChangeNotifier.class,
+                NearCache.class, CacheBloomFilter.class, HotKeyDetector.class, HotKeyReplica.class, RedisMetrics.class,
+                CacheTemplate.class);
+        context.refresh();
+
+        CacheConfig.CacheSpec redisOnly = new CacheConfig.CacheSpec();
+        redisOnly.setNearEnabled(false);
+        context.getBean("cacheConfig", CacheConfig.class).getCaches().put(REDIS_CACHE, redisOnly);
+        cacheTemplate = context.getBean(CacheTemplate.class);
+        cacheTemplate.evict(NEAR_CACHE, KEY);
+        cacheTemplate.getCacheData(NEAR_CACHE, KEY, 10, TimeUnit.MINUTES, () -> user, User.class);
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() {
+        cacheTemplate.evict(NEAR_CACHE, KEY);
+        context.close();
+        redis.stop();
+    }
+
+    @Benchmark
+    public User nearHit() {
+        return cacheTemplate.getCacheData(NEAR_CACHE, KEY, 10, TimeUnit.MINUTES, () -> user, User.class);
+    }
+
+    @Benchmark
+    public User redisHit() {
+        return cacheTemplate.getCacheData(REDIS_CACHE, KEY, 10, TimeUnit.MINUTES, () -> user, User.class);
+    }
+
+    /**
+     * 每次使用新的KEY, 短过期时间避免占用redis内存
+     */
+    @Benchmark
+    public User miss() {
+        String key = "benchmark::cacheTemplate::miss:" + missSequence.incrementAndGet();
+        return cacheTemplate.getCacheData(REDIS_CACHE, key, 10, TimeUnit.SECONDS, () -> user, User.class);
+    }
+
+    @Benchmark
+    public User redisHitAsync() {
+        return cacheTemplate.getCacheDataAsync(REDIS_CACHE, KEY, 10, TimeUnit.MINUTES, () -> user, User.class).join();
+    }
+
+    @Benchmark
+    public User missAsync() {
+        String key = "benchmark::cacheTemplate::missAsync:" + missSequence.incrementAndGet();
+        return cacheTemplate.getCacheDataAsync(REDIS_CACHE, key, 10, TimeUnit.SECONDS, () -> user, User.class).join();
+    }
+}
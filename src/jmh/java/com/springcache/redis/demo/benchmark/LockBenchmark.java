@@ -0,0 +1,195 @@
+package com.springcache.redis.demo.benchmark;
+
+import com.springcache.redis.demo.config.LockConfig;
+import com.springcache.redis.demo.lock.DistributedLock;
+import com.springcache.redis.demo.lock.JedisDistributedLock;
+import com.springcache.redis.demo.lock.LockWatchdog;
+import com.springcache.redis.demo.metrics.RedisMetrics;
+import com.springcache.redis.demo.utils.JedisUtil;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.openjdk.jmh.annotations.AuxCounters;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+import org.redisson.api.RLock;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import java.util.UUID;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * 各分布式锁实现在同一把锁上竞争时的 加锁+解锁 开销
+ * Throughput 为每秒完成的加锁解锁次数, SampleTime 给出延迟分位数,
+ * 辅助计数 acquired / failed 为成功和未获取到锁的次数, 二者之比即竞争失败率。
+ * 按 1/4/16/64 线程分别运行: mvn -Pbenchmark test-compile exec:exec -Djmh.main=com.springcache.redis.demo.benchmark.LockBenchmark
+ */
+@BenchmarkMode({Mode.Throughput, Mode.SampleTime})
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 2, time = 2)
+@Measurement(iterations = 3, time = 3)
+@Fork(1)
+@State(Scope.Benchmark)
+public class LockBenchmark {
+
+    private static final String LOCK_KEY = "benchmark_lock";
+
+    private BenchmarkRedis redis;
+    private RedisMetrics redisMetrics;
+    private LockWatchdog lockWatchdog;
+    private DistributedLock distributedLock;
+    private JedisDistributedLock jedisDistributedLock;
+    private JedisDistributedLock jedisPubSubLock;
+
+    @State(Scope.Thread)
+    @AuxCounters(AuxCounters.Type.EVENTS)
+    public static class Counters {
+        public long acquired;
+        public long failed;
+
+        @Setup(Level.Iteration)
+        public void reset() {
+            acquired = 0;
+            failed = 0;
+        }
+    }
+
+    @Setup(Level.Trial)
+    public void setup() {
+        redis = new BenchmarkRedis();
+        redis.start();
+        redisMetrics = new RedisMetrics();
+        ReflectionTestUtils.setField(redisMetrics, "meterRegistry", new SimpleMeterRegistry());
+        lockWatchdog = new LockWatchdog();
+        ReflectionTestUtils.setField(lockWatchdog, "lockConfig", new LockConfig());
+        distributedLock = new DistributedLock();
+        ReflectionTestUtils.setField(distributedLock, "redisTemplate", redis.getRedisTemplate());
+        ReflectionTestUtils.setField(distributedLock, "lockWatchdog", lockWatchdog);
+        ReflectionTestUtils.setField(distributedLock, "lockConfig", new LockConfig());
+        ReflectionTestUtils.setField(distributedLock, "redisMetrics", redisMetrics);
+        jedisDistributedLock = newJedisLock(false);
+        jedisPubSubLock = newJedisLock(true);
+        redis.getRedisTemplate().delete(LOCK_KEY);
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() {
+        redis.getRedisTemplate().delete(LOCK_KEY);
+        jedisPubSubLock.destroy();
+        lockWatchdog.destroy();
+        redis.stop();
+    }
+
+    /**
+     * RedisTemplate SET NX PX 锁, 失败立即返回
+     */
+    @Benchmark
+    public void redisTemplateLock(Counters counters) {
+        redisTemplateLock(0, counters);
+    }
+
+    /**
+     * RedisTemplate SET NX PX 锁, 最多等待1秒, 期间退避重试
+     */
+    @Benchmark
+    public void redisTemplateWaitLock(Counters counters) {
+        redisTemplateLock(1000, counters);
+    }
+
+    /**
+     * Jedis SET NX PX 锁, 在锁定时间内退避重试
+     */
+    @Benchmark
+    public void jedisLock(Counters counters) {
+        jedisLock(jedisDistributedLock, counters);
+    }
+
+    /**
+     * Jedis SET NX PX 锁, 退避等待期间可被释放消息唤醒
+     */
+    @Benchmark
+    public void jedisPubSubLock(Counters counters) {
+        jedisLock(jedisPubSubLock, counters);
+    }
+
+    /**
+     * Redisson lock(), 阻塞直到获取锁
+     */
+    @Benchmark
+    public void redissonLock(Counters counters) {
+        RLock lock = redis.getRedissonClient().getLock(LOCK_KEY + "_redisson");
+        lock.lock(60, TimeUnit.SECONDS);
+        try {
+            counters.acquired++;
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    /**
+     * Redisson tryLock(), 与 BusinessTask 相同最多等待30秒
+     */
+    @Benchmark
+    public void redissonTryLock(Counters counters) throws InterruptedException {
+        RLock lock = redis.getRedissonClient().getLock(LOCK_KEY + "_redisson");
+        if (lock.tryLock(30, 60, TimeUnit.SECONDS)) {
+            try {
+                counters.acquired++;
+            } finally {
+                lock.unlock();
+            }
+        } else {
+            counters.failed++;
+        }
+    }
+
+    private void redisTemplateLock(long waitMillis, Counters counters) {
+        if (distributedLock.tryLock(LOCK_KEY, waitMillis, 3 * 1000)) {
+            counters.acquired++;
+            distributedLock.unlock(LOCK_KEY);
+        } else {
+            counters.failed++;
+        }
+    }
+
+    private void jedisLock(JedisDistributedLock lock, Counters counters) {
+        String value = UUID.randomUUID().toString();
+        if (lock.tryLock(LOCK_KEY + "_jedis", value, 1000, 1100)) {
+            counters.acquired++;
+            lock.unlock(LOCK_KEY + "_jedis", value);
+        } else {
+            counters.failed++;
+        }
+    }
+
+    private JedisDistributedLock newJedisLock(boolean pubsubEnabled) {
+        LockConfig lockConfig = new LockConfig();
+        lockConfig.setPubsubEnabled(pubsubEnabled);
+        JedisDistributedLock lock = new JedisDistributedLock();
+        ReflectionTestUtils.setField(lock, "jedisUtil", new JedisUtil(redis.getJedisPool()));
+        ReflectionTestUtils.setField(lock, "lockConfig", lockConfig);
+        ReflectionTestUtils.setField(lock, "lockWatchdog", lockWatchdog);
+        ReflectionTestUtils.setField(lock, "redisMetrics", redisMetrics);
+        lock.init();
+        return lock;
+    }
+
+    public static void main(String[] args) throws Exception {
+        for (int threads : new int[]{1, 4, 16, 64}) {
+            new Runner(new OptionsBuilder()
+                    .include(LockBenchmark.class.getSimpleName())
+                    .threads(threads)
+                    .build()).run();
+        }
+    }
+}
@@ -0,0 +1,147 @@
+package com.springcache.redis.demo.benchmark;
+
+import com.springcache.redis.demo.cache.FstCacheCodec;
+import com.springcache.redis.demo.entity.User;
+import com.springcache.redis.demo.store.LongKeyStore;
+import com.springcache.redis.demo.store.OffHeapLongKeyStore;
+import com.springcache.redis.demo.store.StripedLongKeyStore;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Threads;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.lang.management.ManagementFactory;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+import java.util.function.LongConsumer;
+
+/**
+ * 本地实体存储的吞吐量与内存占用
+ * CONCURRENT_HASH_MAP 为原 DATABASES 的 ConcurrentHashMap<Long, User>, STRIPED 为堆内分段存储, OFF_HEAP 为堆外存储(FST 编码);
+ * 4个线程随机读写, 初始化后打印 Full GC 后的堆占用和直接内存占用:
+ * mvn -Pbenchmark test-compile exec:exec -Djmh.include=LongKeyStoreBenchmark
+ */
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(value = 1, jvmArgsAppend = {"-Xmx8g", "-XX:MaxDirectMemorySize=8g"})
+@Threads(4)
+@State(Scope.Benchmark)
+public class LongKeyStoreBenchmark {
+
+    //写入时轮流使用的值, 避免测量创建对象的开销
+    private static final int VALUE_POOL_SIZE = 1024;
+
+    @Param({"1000000", "10000000"})
+    private int entries;
+
+    @Param({"CONCURRENT_HASH_MAP", "STRIPED", "OFF_HEAP"})
+    private String storeType;
+
+    private final FstCacheCodec codec = new FstCacheCodec(User.class);
+    private final User[] values = new User[VALUE_POOL_SIZE];
+    private LongKeyStore<User> store;
+
+    @Setup(Level.Trial)
+    public void setup() {
+        for (int i = 0; i < VALUE_POOL_SIZE; i++) {
+            values[i] = new User((long) i, "user-" + i, "password@" + i);
+        }
+        long heapBefore = usedHeap();
+        store = create();
+        for (long id = 0; id < entries; id++) {
+            store.put(id, new User(id, "user-" + id, "password@" + id));
+        }
+        long heapBytes = usedHeap() - heapBefore;
+        long offHeapBytes = store instanceof OffHeapLongKeyStore ? ((OffHeapLongKeyStore<User>) store).getOffHeapBytes() : 0;
+        System.out.println();
+        System.out.println("[footprint] " + storeType + " entries=" + entries
+                + " heap=" + heapBytes / (1024 * 1024) + "MB (" + heapBytes / entries + " B/entry)"
+                + " offHeap=" + offHeapBytes / (1024 * 1024) + "MB (" + offHeapBytes / entries + " B/entry)");
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() {
+        store = null;
+    }
+
+    @Benchmark
+    public User get() {
+        return store.get(ThreadLocalRandom.current().nextLong(entries));
+    }
+
+    @Benchmark
+    public void put() {
+        ThreadLocalRandom random = ThreadLocalRandom.current();
+        store.put(random.nextLong(entries), values[random.nextInt(VALUE_POOL_SIZE)]);
+    }
+
+    private LongKeyStore<User> create() {
+        switch (storeType) {
+            case "CONCURRENT_HASH_MAP":
+                return new ConcurrentHashMapStore<>(entries);
+            case "STRIPED":
+                return new StripedLongKeyStore<>(16, entries);
+            case "OFF_HEAP":
+                return new OffHeapLongKeyStore<>(16, entries, codec, User.class);
+            default:
+                throw new IllegalArgumentException("未知的存储->" + storeType);
+        }
+    }
+
+    private static long usedHeap() {
+        for (int i = 0; i < 3; i++) {
+            System.gc();
+        }
+        return ManagementFactory.getMemoryMXBean().getHeapMemoryUsage().getUsed();
+    }
+
+    /**
+     * 原实现: ConcurrentHashMap, 主键装箱
+     */
+    private static class ConcurrentHashMapStore<V> implements LongKeyStore<V> {
+        private final Map<Long, V> map;
+
+        ConcurrentHashMapStore(int expectedSize) {
+            map = new ConcurrentHashMap<>(expectedSize);
+        }
+
+        @Override
+        public V get(long key) {
+            return map.get(key);
+        }
+
+        @Override
+        public void put(long key, V value) {
+            map.put(key, value);
+        }
+
+        @Override
+        public boolean remove(long key) {
+            return map.remove(key) != null;
+        }
+
+        @Override
+        public int size() {
+            return map.size();
+        }
+
+        @Override
+        public void forEachKey(LongConsumer action) {
+            map.keySet().forEach(action::accept);
+        }
+    }
+}
@@ -0,0 +1,20 @@
+package com.springcache.redis.demo.cache;
+
+import java.util.Collection;
+import java.util.Map;
+
+/**
+ * 抽像将多条数据一次加载到缓存的行为
+ *
+ * @param <K> 数据ID
+ * @param <T> 数据
+ */
+public interface BatchCacheLoadable<K, T> {
+    /**
+     * 批量加载缓存数据
+     *
+     * @param ids 缓存未命中的ID
+     * @return ID -> 数据, 不存在的ID不返回
+     */
+    Map<K, T> load(Collection<K> ids);
+}
@@ -0,0 +1,127 @@
+package com.springcache.redis.demo.cache;
+
+import com.springcache.redis.demo.config.CacheConfig;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+
+import javax.annotation.PostConstruct;
+import java.util.Collection;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * 按缓存名称维护的进程内布隆过滤器, 防止缓存穿透
+ * 不存在的KEY在访问redis和加锁之前直接被拒绝。
+ * 过滤器由注册的 CacheKeysLoadable 全量构建并定时重建, 新增的KEY通过 CacheChangeNotifier 同步到其他节点。
+ */
+@Slf4j
+@Component
+public class CacheBloomFilter {
+
+    @Autowired
+    private CacheConfig cacheConfig;
+
+    @Autowired
+    private CacheChangeNotifier cacheChangeNotifier;
+
+    private final ConcurrentHashMap<String, Holder> holders = new ConcurrentHashMap<>();
+
+    @PostConstruct
+    public void init() {
+        // 其他节点新增或变更的KEY加入本地过滤器, 删除的KEY不加入
+        cacheChangeNotifier.addUpdateListener(this::put);
+    }
+
+    /**
+     * 注册缓存的KEY数据源并立即构建过滤器, 未启用布隆过滤器的缓存忽略
+     *
+     * @param cacheName         缓存名称
+     * @param cacheKeysLoadable KEY数据源
+     */
+    public void register(String cacheName, CacheKeysLoadable cacheKeysLoadable) {
+        if (!cacheConfig.getSpec(cacheName).isBloomEnabled()) {
+            return;
+        }
+        Holder holder = new Holder(cacheKeysLoadable);
+        holders.put(cacheName, holder);
+        rebuild(cacheName, holder);
+    }
+
+    /**
+     * KEY是否可能存在, 未注册过滤器的缓存始终返回true
+     *
+     * @param cacheName 缓存名称
+     * @param key
+     * @return false 表示一定不存在
+     */
+    public boolean mightContain(String cacheName, String key) {
+        Holder holder = holders.get(cacheName);
+        return holder == null || holder.current == null || holder.current.mightContain(key);
+    }
+
+    /**
+     * 新增KEY
+     *
+     * @param cacheName 缓存名称
+     * @param key
+     */
+    public void put(String cacheName, String key) {
+        Holder holder = holders.get(cacheName);
+        if (holder == null) {
+            return;
+        }
+        // 先写入正在重建的过滤器, 再写入当前过滤器: 两次读取之间重建完成时, 后读到的 current 已是新过滤器;
+        // 读到 building 之后才开始的重建, 全量加载时已包含该KEY(调用方先写入数据源)
+        LocalBloomFilter building = holder.building;
+        if (building != null) {
+            building.put(key);
+        }
+        LocalBloomFilter current = holder.current;
+        if (current != null) {
+            current.put(key);
+        }
+    }
+
+    /**
+     * 定时全量重建, 清除已删除KEY累积的误判
+     */
+    @Scheduled(fixedDelayString = "#{${cache.bloom-rebuild-seconds:600} * 1000}",
+            initialDelayString = "#{${cache.bloom-rebuild-seconds:600} * 1000}")
+    public void rebuildAll() {
+        holders.forEach(this::rebuild);
+    }
+
+    private void rebuild(String cacheName, Holder holder) {
+        synchronized (holder) {
+            CacheConfig.CacheSpec spec = cacheConfig.getSpec(cacheName);
+            long begin = System.currentTimeMillis();
+            holder.building = new LocalBloomFilter(spec.getBloomExpectedInsertions(), spec.getBloomFalseProbability());
+            try {
+                Collection<String> keys = holder.cacheKeysLoadable.loadKeys();
+                for (String key : keys) {
+                    holder.building.put(key);
+                }
+                holder.current = holder.building;
+                log.info("布隆过滤器重建完成->" + cacheName + ", KEY数量: " + keys.size()
+                        + ", 耗时: " + (System.currentTimeMillis() - begin) + "ms");
+            } catch (Exception ex) {
+                log.error("布隆过滤器重建异常!->" + ex.getMessage());
+            } finally {
+                holder.building = null;
+            }
+        }
+    }
+
+    private static class Holder {
+        private final CacheKeysLoadable cacheKeysLoadable;
+        //当前使用的过滤器, 首次构建失败时为null, 此时不拦截任何KEY
+        private volatile LocalBloomFilter current;
+        //正在重建的过滤器
+        private volatile LocalBloomFilter building;
+
+        Holder(CacheKeysLoadable cacheKeysLoadable) {
+            this.cacheKeysLoadable = cacheKeysLoadable;
+        }
+    }
+}
@@ -0,0 +1,116 @@
+package com.springcache.redis.demo.cache;
+
+import lombok.extern.slf4j.Slf4j;
+import org.redisson.api.RTopic;
+import org.redisson.api.RedissonClient;
+import org.redisson.client.codec.StringCodec;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.stereotype.Component;
+
+import javax.annotation.PostConstruct;
+import java.util.List;
+import java.util.UUID;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.function.BiConsumer;
+
+/**
+ * 缓存数据变更通知
+ * 通过 redis 发布/订阅通知其他节点某个KEY已变更, 由各本地组件(本地缓存、布隆过滤器等)自行处理
+ */
+@Slf4j
+@Component
+public class CacheChangeNotifier {
+
+    //变更通知的频道
+    private static final String CHANGE_TOPIC = "cacheTemplate::change";
+    //消息分隔符, 格式: 节点ID|类型|缓存名称|KEY
+    private static final String SEPARATOR = "|";
+    //KEY新增或更新
+    private static final String UPDATE = "UPDATE";
+    //KEY已删除或只需失效本地副本
+    private static final String INVALIDATE = "INVALIDATE";
+    //当前节点标识, 忽略自己发出的变更消息
+    private static final String NODE_ID = UUID.randomUUID().toString();
+
+    @Autowired
+    private RedissonClient redissonClient;
+
+    //变更监听(新增、更新、删除及失效), 参数为 缓存名称, KEY
+    private final List<BiConsumer<String, String>> listeners = new CopyOnWriteArrayList<>();
+    //只监听新增或更新, 参数为 缓存名称, KEY
+    private final List<BiConsumer<String, String>> updateListeners = new CopyOnWriteArrayList<>();
+
+    private RTopic topic;
+
+    @PostConstruct
+    public void init() {
+        topic = redissonClient.getTopic(CHANGE_TOPIC, StringCodec.INSTANCE);
+        topic.addListener(String.class, (channel, message) -> onMessage(message));
+    }
+
+    /**
+     * 注册其他节点的变更监听, 新增、更新、删除及失效都会通知
+     *
+     * @param listener 参数为 缓存名称, KEY
+     */
+    public void addListener(BiConsumer<String, String> listener) {
+        listeners.add(listener);
+    }
+
+    /**
+     * 注册其他节点的新增或更新监听, 删除及失效不通知
+     *
+     * @param listener 参数为 缓存名称, KEY
+     */
+    public void addUpdateListener(BiConsumer<String, String> listener) {
+        updateListeners.add(listener);
+    }
+
+    /**
+     * 通知其他节点KEY已新增或更新
+     *
+     * @param cacheName 缓存名称
+     * @param key       KEY
+     */
+    public void publish(String cacheName, String key) {
+        publish(UPDATE, cacheName, key);
+    }
+
+    /**
+     * 通知其他节点KEY已删除, 或只需失效本地副本(如 Spring Cache 的热点副本)
+     *
+     * @param cacheName 缓存名称
+     * @param key       KEY
+     */
+    public void publishInvalidate(String cacheName, String key) {
+        publish(INVALIDATE, cacheName, key);
+    }
+
+    private void publish(String type, String cacheName, String key) {
+        try {
+            topic.publish(NODE_ID + SEPARATOR + type + SEPARATOR + cacheName + SEPARATOR + key);
+        } catch (Exception ex) {
+            log.error("发布缓存变更消息异常!->" + ex.getMessage());
+        }
+    }
+
+    /**
+     * 处理其他节点发出的变更消息
+     *
+     * @param message 节点ID|类型|缓存名称|KEY
+     */
+    private void onMessage(String message) {
+        String[] parts = message.split("\\" + SEPARATOR, 4);
+        if (parts.length != 4 || NODE_ID.equals(parts[0])) {
+            return;
+        }
+        for (BiConsumer<String, String> listener : listeners) {
+            listener.accept(parts[2], parts[3]);
+        }
+        if (UPDATE.equals(parts[1])) {
+            for (BiConsumer<String, String> listener : updateListeners) {
+                listener.accept(parts[2], parts[3]);
+            }
+        }
+    }
+}
@@ -0,0 +1,31 @@
+package com.springcache.redis.demo.cache;
+
+/**
+ * 缓存值编解码, CacheTemplate 直接以字节形式读写redis
+ */
+public interface CacheCodec {
+    /**
+     * 编解码名称, 对应配置 cache.defaults.codec
+     *
+     * @return 名称
+     */
+    String name();
+
+    /**
+     * 对象编码为字节
+     *
+     * @param value 缓存对象
+     * @return 字节
+     */
+    byte[] encode(Object value);
+
+    /**
+     * 字节直接解码为目标类型
+     *
+     * @param bytes redis中存储的字节
+     * @param clazz 目标类型
+     * @param <T>
+     * @return 缓存对象
+     */
+    <T> T decode(byte[] bytes, Class<T> clazz);
+}
@@ -0,0 +1,41 @@
+package com.springcache.redis.demo.cache;
+
+import org.springframework.data.redis.serializer.RedisSerializer;
+import org.springframework.data.redis.serializer.SerializationException;
+
+/**
+ * 使用 CacheCodec 读写 Spring Cache 的缓存值
+ * 读取时不知道目标类型, 编解码必须在字节中自带类型信息(如 fst)
+ */
+public class CacheCodecRedisSerializer implements RedisSerializer<Object> {
+
+    private final CacheCodec codec;
+
+    public CacheCodecRedisSerializer(CacheCodec codec) {
+        this.codec = codec;
+    }
+
+    @Override
+    public byte[] serialize(Object value) throws SerializationException {
+        if (value == null) {
+            return null;
+        }
+        try {
+            return codec.encode(value);
+        } catch (Exception ex) {
+            throw new SerializationException("缓存值编码失败->" + codec.name(), ex);
+        }
+    }
+
+    @Override
+    public Object deserialize(byte[] bytes) throws SerializationException {
+        if (bytes == null || bytes.length == 0) {
+            return null;
+        }
+        try {
+            return codec.decode(bytes, Object.class);
+        } catch (Exception ex) {
+            throw new SerializationException("缓存值解码失败->" + codec.name(), ex);
+        }
+    }
+}
@@ -0,0 +1,15 @@
+package com.springcache.redis.demo.cache;
+
+import java.util.Collection;
+
+/**
+ * 抽像加载全部已存在缓存KEY的行为, 用于重建布隆过滤器
+ */
+public interface CacheKeysLoadable {
+    /**
+     * 加载数据源中全部已存在的缓存KEY
+     *
+     * @return
+     */
+    Collection<String> loadKeys();
+}
@@ -0,0 +1,90 @@
+package com.springcache.redis.demo.cache;
+
+import org.springframework.stereotype.Component;
+
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * CacheTemplate 各级缓存命中统计, 按缓存名称分别计数
+ */
+@Component
+public class CacheStats {
+
+    private final ConcurrentHashMap<String, Counters> countersMap = new ConcurrentHashMap<>();
+
+    /**
+     * 获取指定缓存的计数器
+     *
+     * @param cacheName 缓存名称
+     * @return 计数器
+     */
+    public Counters of(String cacheName) {
+        return countersMap.computeIfAbsent(cacheName, name -> new Counters());
+    }
+
+    /**
+     * 所有缓存的统计快照
+     *
+     * @return 缓存名称 -> 统计项
+     */
+    public Map<String, Map<String, Long>> snapshot() {
+        Map<String, Map<String, Long>> result = new TreeMap<>();
+        countersMap.forEach((name, counters) -> result.put(name, counters.snapshot()));
+        return result;
+    }
+
+    public static class Counters {
+        /**
+         * 本地一级缓存命中/未命中
+         */
+        public final LongAdder nearHit = new LongAdder();
+        public final LongAdder nearMiss = new LongAdder();
+        /**
+         * redis 二级缓存命中/未命中
+         */
+        public final LongAdder redisHit = new LongAdder();
+        public final LongAdder redisMiss = new LongAdder();
+        /**
+         * 调用 CacheLoadable.load() 回源次数
+         */
+        public final LongAdder load = new LongAdder();
+        /**
+         * 等待本进程其他线程加载结果, 未竞争分布式锁的次数
+         */
+        public final LongAdder coalesced = new LongAdder();
+        /**
+         * 超过软过期仍返回旧值的次数, 以及后台刷新的次数
+         */
+        public final LongAdder staleHit = new LongAdder();
+        public final LongAdder refresh = new LongAdder();
+        /**
+         * 命中空值缓存的次数, 以及被布隆过滤器拒绝的次数
+         */
+        public final LongAdder nullHit = new LongAdder();
+        public final LongAdder bloomRejected = new LongAdder();
+        /**
+         * 命中热点KEY进程内副本的次数
+         */
+        public final LongAdder hotHit = new LongAdder();
+
+        Map<String, Long> snapshot() {
+            Map<String, Long> map = new LinkedHashMap<>();
+            map.put("nearHit", nearHit.sum());
+            map.put("nearMiss", nearMiss.sum());
+            map.put("redisHit", redisHit.sum());
+            map.put("redisMiss", redisMiss.sum());
+            map.put("load", load.sum());
+            map.put("coalesced", coalesced.sum());
+            map.put("staleHit", staleHit.sum());
+            map.put("refresh", refresh.sum());
+            map.put("nullHit", nullHit.sum());
+            map.put("bloomRejected", bloomRejected.sum());
+            map.put("hotHit", hotHit.sum());
+            return map;
+        }
+    }
+}
@@ -1,15 +1,41 @@
 package com.springcache.redis.demo.cache;
 
 import com.alibaba.fastjson.JSON;
+import com.springcache.redis.demo.config.CacheConfig;
+import com.springcache.redis.demo.metrics.RedisMetrics;
 import lombok.extern.slf4j.Slf4j;
 import org.redisson.api.RLock;
 import org.redisson.api.RedissonClient;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.data.redis.connection.RedisStringCommands;
+import org.springframework.data.redis.core.ReactiveRedisTemplate;
+import org.springframework.data.redis.core.RedisCallback;
 import org.springframework.data.redis.core.StringRedisTemplate;
-import org.springframework.data.redis.core.ValueOperations;
+import org.springframework.data.redis.core.types.Expiration;
+import org.springframework.scheduling.concurrent.CustomizableThreadFactory;
 import org.springframework.stereotype.Service;
+import reactor.core.publisher.Mono;
 
+import javax.annotation.PostConstruct;
+import javax.annotation.PreDestroy;
+import java.nio.charset.StandardCharsets;
+import java.time.Duration;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ThreadPoolExecutor;
 import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.Function;
 
 @Service
 @Slf4j
@@ -22,16 +48,107 @@ public class CacheTemplate<T> {
      * 3. redisTemplate.opsForList();　　 //操作list
      * 4. redisTemplate.opsForSet();　　  //操作set
      * 5. redisTemplate.opsForZSet();　 　//操作有序set
+     * 缓存值通过 RedisCallback 以字节读写, 由 CacheCodec 直接编解码
      */
     @Autowired
     private StringRedisTemplate redisTemplate;
 
+    /**
+     * 缓存读取使用, 开启 redis.topology.read-from-replica 时优先访问从节点
+     * 未命中后加锁再次读取时仍访问主节点, 从节点的复制延迟不会导致重复回源
+     */
+    @Autowired
+    @Qualifier("replicaRedisTemplate")
+    private StringRedisTemplate replicaRedisTemplate;
+
+    /**
+     * 异步读取使用的非阻塞版本, 与上面两个 StringRedisTemplate 访问相同的节点
+     */
+    @Autowired
+    @Qualifier("byteReactiveRedisTemplate")
+    private ReactiveRedisTemplate<String, byte[]> reactiveRedisTemplate;
+
+    @Autowired
+    @Qualifier("replicaByteReactiveRedisTemplate")
+    private ReactiveRedisTemplate<String, byte[]> replicaReactiveRedisTemplate;
+
     @Autowired
     private RedissonClient redissonClient;
 
+    @Autowired
+    private NearCache nearCache;
+
+    @Autowired
+    private CacheStats cacheStats;
+
+    @Autowired
+    private HotKeyDetector hotKeyDetector;
+
+    @Autowired
+    private HotKeyReplica hotKeyReplica;
+
+    @Autowired
+    private CacheConfig cacheConfig;
+
+    @Autowired
+    private CacheBloomFilter cacheBloomFilter;
+
+    @Autowired
+    private CacheChangeNotifier cacheChangeNotifier;
+
+    @Autowired
+    private List<CacheCodec> codecList;
+
+    @Autowired
+    private RedisMetrics redisMetrics;
+
+    //编解码名称 -> 编解码
+    private final Map<String, CacheCodec> codecs = new HashMap<>();
+
+    //进程内请求合并
+    private final SingleFlight singleFlight = new SingleFlight();
+
+    //后台刷新线程池
+    private ThreadPoolExecutor refreshExecutor;
+
+    //本进程正在后台刷新的KEY
+    private final Set<String> refreshingKeys = ConcurrentHashMap.newKeySet();
+
+    //异步读取执行回源加载的线程池
+    private ThreadPoolExecutor asyncLoadExecutor;
+
+    //本进程正在异步加载的KEY -> 加载结果, 同一KEY的异步读取共用一次加载
+    private final Map<String, CompletableFuture<T>> asyncLoads = new ConcurrentHashMap<>();
+
+    //异步加锁的持有者标识, 回调不在加锁的线程中执行, 不能使用线程ID; 从负数开始, 不与线程ID重复
+    private final AtomicLong asyncLockOwner = new AtomicLong(Long.MIN_VALUE);
+
     //加锁的KEY前缀,加锁的KEY不能和存储数据的KEY使用一样的KEY，否则会导致因KEY相同缓存中数据被重置。
     private static final String LOCK_KEY = "LOCK_KEY_";
 
+    //未指定缓存名称时使用的默认名称
+    public static final String DEFAULT_CACHE_NAME = "default";
+
+    //空值缓存的占位值, 任何编解码都不会产生该值
+    private static final byte[] NULL_VALUE = "@@CACHE_NULL@@".getBytes(StandardCharsets.UTF_8);
+
+    @PostConstruct
+    public void init() {
+        for (CacheCodec codec : codecList) {
+            codecs.put(codec.name(), codec);
+        }
+        refreshExecutor = new ThreadPoolExecutor(cacheConfig.getRefreshThreads(), cacheConfig.getRefreshThreads(),
+                60, TimeUnit.SECONDS, new ArrayBlockingQueue<>(1000), new CustomizableThreadFactory("cache-refresh-"));
+        asyncLoadExecutor = new ThreadPoolExecutor(cacheConfig.getAsyncLoadThreads(), cacheConfig.getAsyncLoadThreads(),
+                60, TimeUnit.SECONDS, new ArrayBlockingQueue<>(1000), new CustomizableThreadFactory("cache-async-load-"));
+    }
+
+    @PreDestroy
+    public void destroy() {
+        refreshExecutor.shutdown();
+        asyncLoadExecutor.shutdown();
+    }
+
     /**
      * 加锁从缓存中获取数据, 防止缓存被击穿
      *
@@ -43,42 +160,724 @@ public class CacheTemplate<T> {
      * @return
      */
     public T getCacheData(String key, long expire, TimeUnit timeUnit, CacheLoadable<T> cacheLoadable, Class<T> clazz) {
+        return getCacheData(DEFAULT_CACHE_NAME, key, expire, timeUnit, cacheLoadable, clazz);
+    }
 
-        ValueOperations<String, String> valueOperations = redisTemplate.opsForValue();
-        // 获取key键对应的值
-        Object value = valueOperations.get(key);
+    /**
+     * 加锁从缓存中获取数据, 防止缓存被击穿
+     * 启用本地缓存时先读取本地一级缓存, 未命中再读取redis
+     *
+     * @param cacheName     缓存名称, 用于区分缓存配置和统计
+     * @param key
+     * @param expire
+     * @param timeUnit
+     * @param cacheLoadable
+     * @param clazz
+     * @return
+     */
+    public T getCacheData(String cacheName, String key, long expire, TimeUnit timeUnit, CacheLoadable<T> cacheLoadable, Class<T> clazz) {
+        CacheStats.Counters counters = cacheStats.of(cacheName);
+        boolean nearEnabled = nearCache.isEnabled(cacheName);
+        if (nearEnabled) {
+            Object nearValue = nearCache.get(cacheName, key);
+            if (nearValue != null) {
+                counters.nearHit.increment();
+                return clazz.cast(nearValue);
+            }
+            counters.nearMiss.increment();
+        }
+
+        // 布隆过滤器判断一定不存在的KEY直接返回, 不访问redis也不加锁
+        if (!cacheBloomFilter.mightContain(cacheName, key)) {
+            counters.bloomRejected.increment();
+            return null;
+        }
+
+        // 热点KEY优先读取进程内副本, 避免所有读取集中到redis的同一个节点
+        hotKeyDetector.record(cacheName, key);
+        boolean hot = hotKeyDetector.isHot(cacheName, key);
+        if (hot) {
+            Object hotValue = hotKeyReplica.get(cacheName, key);
+            if (hotValue != null) {
+                counters.hotHit.increment();
+                return clazz.cast(hotValue);
+            }
+        }
+
+        CacheCodec codec = getCodec(cacheName);
+        long refreshWindow = getRefreshWindow(cacheName, expire, timeUnit);
+        byte[] value;
+        if (refreshWindow > 0) {
+            // 同一次往返中获取值和剩余过期时间, 剩余时间小于刷新窗口即已软过期
+            List<Object> results = getWithTtl(key);
+            value = (byte[]) results.get(0);
+            Long ttl = (Long) results.get(1);
+            if (value != null && !isNullValue(value) && ttl != null && ttl >= 0 && ttl < refreshWindow) {
+                counters.staleHit.increment();
+                refreshAsync(cacheName, key, expire, timeUnit, cacheLoadable, codec, nearEnabled, refreshWindow);
+            }
+        } else {
+            // 获取key键对应的值
+            value = replicaGet(key);
+        }
 
         // 命中缓存
         if (value != null) {
-            return JSON.parseObject(JSON.toJSONString(JSON.parse(value.toString())), clazz);
+            counters.redisHit.increment();
+            if (isNullValue(value)) {
+                counters.nullHit.increment();
+                return null;
+            }
+            T result = codec.decode(value, clazz);
+            if (nearEnabled) {
+                nearCache.put(cacheName, key, result);
+            }
+            if (hot) {
+                hotKeyReplica.put(cacheName, key, result);
+            }
+            return result;
+        }
+        counters.redisMiss.increment();
+
+        // 同一KEY本进程只有一个线程去竞争分布式锁并加载, 其余线程等待其结果
+        SingleFlight.Outcome<T> outcome = singleFlight.execute(key,
+                () -> loadWithLock(cacheName, key, expire, timeUnit, cacheLoadable, clazz, codec, nearEnabled));
+        if (outcome.isShared()) {
+            counters.coalesced.increment();
         }
+        return outcome.getValue();
+    }
 
+    /**
+     * 加分布式锁后再次读取缓存, 仍未命中则回源加载并写入缓存
+     *
+     * @return 加载结果, 获取锁失败或数据不存在时返回null
+     */
+    private T loadWithLock(String cacheName, String key, long expire, TimeUnit timeUnit, CacheLoadable<T> cacheLoadable,
+                           Class<T> clazz, CacheCodec codec, boolean nearEnabled) {
+        CacheStats.Counters counters = cacheStats.of(cacheName);
         // 获取锁对象
         RLock lock = redissonClient.getLock(LOCK_KEY + key);
+        boolean lockFlag = false;
         try {
             // 加锁，并且设置锁过期时间，防止死锁的产生
-            boolean lockFlag = lock.tryLock(30, 60, TimeUnit.SECONDS);
+            lockFlag = tryLock(lock, 30);
             if (lockFlag) {
                 //加锁成功后 再次尝试读取缓存中是否有值,高并发情况下
-                value = valueOperations.get(key);
+                byte[] value = get(key);
                 // 命中缓存
                 if (value != null) {
-                    return JSON.parseObject(JSON.toJSONString(JSON.parse(value.toString())), clazz);
+                    if (isNullValue(value)) {
+                        return null;
+                    }
+                    T result = codec.decode(value, clazz);
+                    if (nearEnabled) {
+                        nearCache.put(cacheName, key, result);
+                    }
+                    return result;
                 }
 
+                counters.load.increment();
                 T result = cacheLoadable.load();
                 if (result != null) {
                     log.error("从DB中获取到数据并存入缓存!->" + JSON.toJSONString(result));
                     //加入缓存
-                    valueOperations.set(key, JSON.toJSONString(result), expire, timeUnit);
+                    set(cacheName, key, codec.encode(result), expire, timeUnit);
+                    if (nearEnabled) {
+                        nearCache.put(cacheName, key, result);
+                    }
                     return result;
                 }
+                // 数据不存在时缓存空值, 短时间内不再回源
+                setNullValue(cacheName, key);
             }
         } catch (Exception ex) {
             log.error("获取缓存操作异常!->" + ex.getMessage());
         } finally {
-            lock.unlock();
+            // 未获取到锁时不能解锁, 否则抛出 IllegalMonitorStateException
+            if (lockFlag) {
+                unlock(lock);
+            }
         }
         return null;
     }
+
+    /**
+     * 异步从缓存中获取数据, 与 getCacheData 的各级缓存、布隆过滤器和分布式锁相同
+     * redis读写和等待分布式锁都不占用线程, 只有 CacheLoadable 在 cache-async-load- 线程池中执行;
+     * 同一KEY本进程的异步读取共用一次加载。异步读取不做软过期刷新。
+     *
+     * @param cacheName     缓存名称
+     * @param key
+     * @param expire
+     * @param timeUnit
+     * @param cacheLoadable
+     * @param clazz
+     * @return 数据, 获取锁失败或数据不存在时为null
+     */
+    public CompletableFuture<T> getCacheDataAsync(String cacheName, String key, long expire, TimeUnit timeUnit,
+                                                  CacheLoadable<T> cacheLoadable, Class<T> clazz) {
+        CacheStats.Counters counters = cacheStats.of(cacheName);
+        boolean nearEnabled = nearCache.isEnabled(cacheName);
+        if (nearEnabled) {
+            Object nearValue = nearCache.get(cacheName, key);
+            if (nearValue != null) {
+                counters.nearHit.increment();
+                return CompletableFuture.completedFuture(clazz.cast(nearValue));
+            }
+            counters.nearMiss.increment();
+        }
+
+        if (!cacheBloomFilter.mightContain(cacheName, key)) {
+            counters.bloomRejected.increment();
+            return CompletableFuture.completedFuture(null);
+        }
+
+        hotKeyDetector.record(cacheName, key);
+        boolean hot = hotKeyDetector.isHot(cacheName, key);
+        if (hot) {
+            Object hotValue = hotKeyReplica.get(cacheName, key);
+            if (hotValue != null) {
+                counters.hotHit.increment();
+                return CompletableFuture.completedFuture(clazz.cast(hotValue));
+            }
+        }
+
+        CacheCodec codec = getCodec(cacheName);
+        return getAsync(replicaReactiveRedisTemplate, key).thenCompose(value -> {
+            if (value != null) {
+                counters.redisHit.increment();
+                if (isNullValue(value)) {
+                    counters.nullHit.increment();
+                    return CompletableFuture.completedFuture(null);
+                }
+                T result = codec.decode(value, clazz);
+                if (nearEnabled) {
+                    nearCache.put(cacheName, key, result);
+                }
+                if (hot) {
+                    hotKeyReplica.put(cacheName, key, result);
+                }
+                return CompletableFuture.completedFuture(result);
+            }
+            counters.redisMiss.increment();
+            return loadAsync(cacheName, key, expire, timeUnit, cacheLoadable, clazz, codec, nearEnabled);
+        });
+    }
+
+    /**
+     * getCacheDataAsync 的 Reactor 版本, 订阅时才开始读取
+     *
+     * @return 数据, 获取锁失败或数据不存在时为空
+     */
+    public Mono<T> getCacheDataMono(String cacheName, String key, long expire, TimeUnit timeUnit,
+                                    CacheLoadable<T> cacheLoadable, Class<T> clazz) {
+        return Mono.defer(() -> Mono.fromFuture(getCacheDataAsync(cacheName, key, expire, timeUnit, cacheLoadable, clazz)));
+    }
+
+    /**
+     * 同一KEY本进程只发起一次异步加载, 其余读取共用其结果
+     */
+    private CompletableFuture<T> loadAsync(String cacheName, String key, long expire, TimeUnit timeUnit,
+                                           CacheLoadable<T> cacheLoadable, Class<T> clazz, CacheCodec codec,
+                                           boolean nearEnabled) {
+        CompletableFuture<T> created = new CompletableFuture<>();
+        CompletableFuture<T> existing = asyncLoads.putIfAbsent(key, created);
+        if (existing != null) {
+            cacheStats.of(cacheName).coalesced.increment();
+            return existing;
+        }
+        loadWithLockAsync(cacheName, key, expire, timeUnit, cacheLoadable, clazz, codec, nearEnabled)
+                .whenComplete((result, ex) -> {
+                    asyncLoads.remove(key, created);
+                    created.complete(result);
+                });
+        return created;
+    }
+
+    /**
+     * 异步加分布式锁后再次读取缓存, 仍未命中则在线程池中回源加载并写入缓存
+     * 锁以 asyncLockOwner 标识持有者, 租期60秒, 不依赖看门狗续期
+     *
+     * @return 加载结果, 获取锁失败、数据不存在或异常时为null
+     */
+    private CompletableFuture<T> loadWithLockAsync(String cacheName, String key, long expire, TimeUnit timeUnit,
+                                                   CacheLoadable<T> cacheLoadable, Class<T> clazz, CacheCodec codec,
+                                                   boolean nearEnabled) {
+        RLock lock = redissonClient.getLock(LOCK_KEY + key);
+        long owner = asyncLockOwner.incrementAndGet();
+        CompletableFuture<T> future;
+        try {
+            future = redisMetrics.recordAsync(RedisMetrics.REDISSON, RedisMetrics.CACHE_TEMPLATE, "lock",
+                    () -> lock.tryLockAsync(30, 60, TimeUnit.SECONDS, owner))
+                    .thenCompose(locked -> {
+                        if (!locked) {
+                            return CompletableFuture.completedFuture(null);
+                        }
+                        CompletableFuture<T> loaded;
+                        try {
+                            loaded = loadLockedAsync(cacheName, key, expire, timeUnit, cacheLoadable, clazz, codec, nearEnabled);
+                        } catch (RuntimeException ex) {
+                            loaded = new CompletableFuture<>();
+                            loaded.completeExceptionally(ex);
+                        }
+                        return loaded.whenComplete((result, ex) -> unlockAsync(lock, owner));
+                    });
+        } catch (RuntimeException ex) {
+            future = new CompletableFuture<>();
+            future.completeExceptionally(ex);
+        }
+        return future.exceptionally(ex -> {
+            log.error("获取缓存操作异常!->" + ex.getMessage());
+            return null;
+        });
+    }
+
+    /**
+     * 已持有锁: 从主节点再次读取, 未命中则回源加载并写入
+     */
+    private CompletableFuture<T> loadLockedAsync(String cacheName, String key, long expire, TimeUnit timeUnit,
+                                                 CacheLoadable<T> cacheLoadable, Class<T> clazz, CacheCodec codec,
+                                                 boolean nearEnabled) {
+        CacheStats.Counters counters = cacheStats.of(cacheName);
+        return getAsync(reactiveRedisTemplate, key).thenCompose(value -> {
+            if (value != null) {
+                if (isNullValue(value)) {
+                    return CompletableFuture.completedFuture(null);
+                }
+                T result = codec.decode(value, clazz);
+                if (nearEnabled) {
+                    nearCache.put(cacheName, key, result);
+                }
+                return CompletableFuture.completedFuture(result);
+            }
+            counters.load.increment();
+            return CompletableFuture.supplyAsync(cacheLoadable::load, asyncLoadExecutor).thenCompose(result -> {
+                if (result == null) {
+                    // 数据不存在时缓存空值, 短时间内不再回源
+                    long nullTtlSeconds = cacheConfig.getSpec(cacheName).getNullTtlSeconds();
+                    if (nullTtlSeconds <= 0) {
+                        return CompletableFuture.completedFuture(null);
+                    }
+                    return setAsync(cacheName, key, NULL_VALUE, nullTtlSeconds, TimeUnit.SECONDS).thenApply(ok -> null);
+                }
+                log.error("从DB中获取到数据并存入缓存!->" + JSON.toJSONString(result));
+                return setAsync(cacheName, key, codec.encode(result), expire, timeUnit).thenApply(ok -> {
+                    if (nearEnabled) {
+                        nearCache.put(cacheName, key, result);
+                    }
+                    return result;
+                });
+            });
+        });
+    }
+
+    /**
+     * 批量从缓存中获取数据
+     * 本地缓存和布隆过滤器过滤后, 一次 MGET 读取redis, 未命中的ID合并为一次批量加载, 再以管道方式一次写回。
+     * 批量读取不加分布式锁, 也不做软过期刷新, 适合列表页等一次读取大量KEY的场景。
+     *
+     * @param cacheName           缓存名称
+     * @param ids                 数据ID
+     * @param keyFunction         ID -> 缓存KEY
+     * @param expire
+     * @param timeUnit
+     * @param batchCacheLoadable  批量加载未命中的数据
+     * @param clazz
+     * @param <K>
+     * @return ID -> 数据, 按传入顺序, 不存在的ID不返回
+     */
+    public <K> Map<K, T> getCacheDataBatch(String cacheName, Collection<K> ids, Function<K, String> keyFunction,
+                                           long expire, TimeUnit timeUnit, BatchCacheLoadable<K, T> batchCacheLoadable,
+                                           Class<T> clazz) {
+        CacheStats.Counters counters = cacheStats.of(cacheName);
+        boolean nearEnabled = nearCache.isEnabled(cacheName);
+        Map<K, T> found = new HashMap<>();
+        Map<K, String> remaining = new LinkedHashMap<>();
+        for (K id : ids) {
+            String key = keyFunction.apply(id);
+            if (nearEnabled) {
+                Object nearValue = nearCache.get(cacheName, key);
+                if (nearValue != null) {
+                    counters.nearHit.increment();
+                    found.put(id, clazz.cast(nearValue));
+                    continue;
+                }
+                counters.nearMiss.increment();
+            }
+            if (!cacheBloomFilter.mightContain(cacheName, key)) {
+                counters.bloomRejected.increment();
+                continue;
+            }
+            remaining.put(id, key);
+        }
+
+        if (!remaining.isEmpty()) {
+            CacheCodec codec = getCodec(cacheName);
+            List<byte[]> values = multiGet(remaining.values());
+            Map<K, String> misses = new LinkedHashMap<>();
+            int i = 0;
+            for (Map.Entry<K, String> entry : remaining.entrySet()) {
+                byte[] value = values.get(i++);
+                if (value == null) {
+                    counters.redisMiss.increment();
+                    misses.put(entry.getKey(), entry.getValue());
+                    continue;
+                }
+                counters.redisHit.increment();
+                if (isNullValue(value)) {
+                    counters.nullHit.increment();
+                    continue;
+                }
+                T result = codec.decode(value, clazz);
+                if (nearEnabled) {
+                    nearCache.put(cacheName, entry.getValue(), result);
+                }
+                found.put(entry.getKey(), result);
+            }
+
+            if (!misses.isEmpty()) {
+                counters.load.increment();
+                Map<K, T> loaded = batchCacheLoadable.load(misses.keySet());
+                Map<String, byte[]> writes = new HashMap<>();
+                for (Map.Entry<K, String> entry : misses.entrySet()) {
+                    T result = loaded.get(entry.getKey());
+                    if (result != null) {
+                        writes.put(entry.getValue(), codec.encode(result));
+                        if (nearEnabled) {
+                            nearCache.put(cacheName, entry.getValue(), result);
+                        }
+                        found.put(entry.getKey(), result);
+                    } else if (cacheConfig.getSpec(cacheName).getNullTtlSeconds() > 0) {
+                        writes.put(entry.getValue(), NULL_VALUE);
+                    }
+                }
+                multiSet(cacheName, writes, expire, timeUnit);
+            }
+        }
+
+        // 按传入顺序返回
+        Map<K, T> result = new LinkedHashMap<>();
+        for (K id : ids) {
+            T value = found.get(id);
+            if (value != null) {
+                result.put(id, value);
+            }
+        }
+        return result;
+    }
+
+    /**
+     * 提交后台刷新, 同一KEY本进程同时只有一个刷新任务
+     */
+    private void refreshAsync(String cacheName, String key, long expire, TimeUnit timeUnit, CacheLoadable<T> cacheLoadable,
+                              CacheCodec codec, boolean nearEnabled, long refreshWindow) {
+        if (!refreshingKeys.add(key)) {
+            return;
+        }
+        try {
+            refreshExecutor.execute(() -> {
+                try {
+                    refresh(cacheName, key, expire, timeUnit, cacheLoadable, codec, nearEnabled, refreshWindow);
+                } finally {
+                    refreshingKeys.remove(key);
+                }
+            });
+        } catch (RejectedExecutionException ex) {
+            refreshingKeys.remove(key);
+            log.warn("后台刷新任务已满, 忽略本次刷新->" + key);
+        }
+    }
+
+    /**
+     * 后台刷新缓存, 与阻塞加载使用同一把分布式锁, 其他节点正在加载或刷新时直接放弃
+     */
+    private void refresh(String cacheName, String key, long expire, TimeUnit timeUnit, CacheLoadable<T> cacheLoadable,
+                         CacheCodec codec, boolean nearEnabled, long refreshWindow) {
+        RLock lock = redissonClient.getLock(LOCK_KEY + key);
+        boolean lockFlag = false;
+        try {
+            lockFlag = tryLock(lock, 0);
+            if (!lockFlag) {
+                return;
+            }
+            // 加锁成功后再次检查, 其他节点可能已经刷新过
+            Long ttl = redisMetrics.record(RedisMetrics.LETTUCE, RedisMetrics.CACHE_TEMPLATE, "pttl",
+                    () -> redisTemplate.getExpire(key, TimeUnit.MILLISECONDS));
+            if (ttl != null && ttl >= refreshWindow) {
+                return;
+            }
+            cacheStats.of(cacheName).refresh.increment();
+            T result = cacheLoadable.load();
+            if (result != null) {
+                set(cacheName, key, codec.encode(result), expire, timeUnit);
+                if (nearEnabled) {
+                    nearCache.put(cacheName, key, result);
+                }
+            } else {
+                setNullValue(cacheName, key);
+            }
+        } catch (Exception ex) {
+            log.error("后台刷新缓存异常!->" + ex.getMessage());
+        } finally {
+            if (lockFlag) {
+                unlock(lock);
+            }
+        }
+    }
+
+    /**
+     * 删除缓存数据, 同时失效本地缓存并通知其他节点
+     * 数据删除后调用, 避免各级缓存读到旧数据; 数据更新时使用 put
+     *
+     * @param cacheName 缓存名称
+     * @param key
+     */
+    public void evict(String cacheName, String key) {
+        redisMetrics.record(RedisMetrics.LETTUCE, RedisMetrics.CACHE_TEMPLATE, "del", () -> redisTemplate.delete(key));
+        nearCache.invalidate(cacheName, key);
+        hotKeyReplica.invalidate(cacheName, key);
+        // 已删除的KEY不加入布隆过滤器, 其他节点也只失效本地副本
+        cacheChangeNotifier.publishInvalidate(cacheName, key);
+    }
+
+    /**
+     * 写入新的缓存数据, 同时失效本地缓存并通知其他节点
+     * 数据更新后调用, 后续读取直接命中新值, 不需要加锁回源
+     *
+     * @param cacheName 缓存名称
+     * @param key
+     * @param value     新值, 不能为null, 删除时使用 evict
+     * @param expire    过期时间, 按缓存配置加随机抖动
+     * @param timeUnit
+     */
+    public void put(String cacheName, String key, T value, long expire, TimeUnit timeUnit) {
+        set(cacheName, key, getCodec(cacheName).encode(value), expire, timeUnit);
+        nearCache.invalidate(cacheName, key);
+        hotKeyReplica.invalidate(cacheName, key);
+        // 新增的KEY需要加入布隆过滤器
+        cacheBloomFilter.put(cacheName, key);
+        cacheChangeNotifier.publish(cacheName, key);
+    }
+
+    /**
+     * 注册缓存的KEY数据源, 缓存配置启用布隆过滤器时据此构建过滤器
+     *
+     * @param cacheName         缓存名称
+     * @param cacheKeysLoadable 全部已存在的KEY
+     */
+    public void registerBloomFilter(String cacheName, CacheKeysLoadable cacheKeysLoadable) {
+        cacheBloomFilter.register(cacheName, cacheKeysLoadable);
+    }
+
+    /**
+     * 写入空值占位, 未启用空值缓存时不写入
+     *
+     * @param cacheName 缓存名称
+     * @param key
+     */
+    private void setNullValue(String cacheName, String key) {
+        long nullTtlSeconds = cacheConfig.getSpec(cacheName).getNullTtlSeconds();
+        if (nullTtlSeconds > 0) {
+            set(cacheName, key, NULL_VALUE, nullTtlSeconds, TimeUnit.SECONDS);
+        }
+    }
+
+    private static boolean isNullValue(byte[] value) {
+        return Arrays.equals(NULL_VALUE, value);
+    }
+
+    /**
+     * 获取缓存配置的编解码, 未配置或配置错误时使用 fastjson
+     *
+     * @param cacheName 缓存名称
+     * @return 编解码
+     */
+    private CacheCodec getCodec(String cacheName) {
+        CacheCodec codec = codecs.get(cacheConfig.getSpec(cacheName).getCodec());
+        return codec != null ? codec : codecs.get(FastJsonCacheCodec.NAME);
+    }
+
+    /**
+     * 软过期刷新窗口, 剩余过期时间小于该值时后台刷新
+     *
+     * @return 毫秒, 未启用时返回0
+     */
+    private long getRefreshWindow(String cacheName, long expire, TimeUnit timeUnit) {
+        int softTtlPercent = cacheConfig.getSpec(cacheName).getSoftTtlPercent();
+        if (softTtlPercent <= 0 || softTtlPercent >= 100) {
+            return 0;
+        }
+        return timeUnit.toMillis(expire) * (100 - softTtlPercent) / 100;
+    }
+
+    /**
+     * 以管道方式读取缓存值及剩余过期时间(毫秒)
+     *
+     * @param key
+     * @return [值, 剩余过期时间]
+     */
+    private List<Object> getWithTtl(String key) {
+        byte[] rawKey = key.getBytes(StandardCharsets.UTF_8);
+        return redisMetrics.record(RedisMetrics.LETTUCE, RedisMetrics.CACHE_TEMPLATE, "getWithTtl",
+                () -> replicaRedisTemplate.executePipelined((RedisCallback<Object>) connection -> {
+                    connection.get(rawKey);
+                    connection.pTtl(rawKey);
+                    return null;
+                }, null));
+    }
+
+    /**
+     * 一次 MGET 以字节读取多个缓存值
+     *
+     * @param keys
+     * @return 与KEY顺序一致, 不存在的为null
+     */
+    private List<byte[]> multiGet(Collection<String> keys) {
+        byte[][] rawKeys = new byte[keys.size()][];
+        int i = 0;
+        for (String key : keys) {
+            rawKeys[i++] = key.getBytes(StandardCharsets.UTF_8);
+        }
+        return redisMetrics.record(RedisMetrics.LETTUCE, RedisMetrics.CACHE_TEMPLATE, "mget",
+                () -> replicaRedisTemplate.execute((RedisCallback<List<byte[]>>) connection -> connection.mGet(rawKeys)));
+    }
+
+    /**
+     * 以管道方式一次写入多个缓存值, 空值占位使用空值缓存时间, 每个KEY的过期时间单独抖动
+     *
+     * @param cacheName 缓存名称
+     * @param values    KEY -> 字节
+     * @param expire
+     * @param timeUnit
+     */
+    private void multiSet(String cacheName, Map<String, byte[]> values, long expire, TimeUnit timeUnit) {
+        if (values.isEmpty()) {
+            return;
+        }
+        long expireMillis = timeUnit.toMillis(expire);
+        long nullExpireMillis = TimeUnit.SECONDS.toMillis(cacheConfig.getSpec(cacheName).getNullTtlSeconds());
+        redisMetrics.record(RedisMetrics.LETTUCE, RedisMetrics.CACHE_TEMPLATE, "multiSet",
+                () -> redisTemplate.executePipelined((RedisCallback<Object>) connection -> {
+                    for (Map.Entry<String, byte[]> entry : values.entrySet()) {
+                        byte[] value = entry.getValue();
+                        long millis = jitter(cacheName, isNullValue(value) ? nullExpireMillis : expireMillis);
+                        connection.set(entry.getKey().getBytes(StandardCharsets.UTF_8), value,
+                                Expiration.milliseconds(millis), RedisStringCommands.SetOption.UPSERT);
+                    }
+                    return null;
+                }, null));
+    }
+
+    /**
+     * 以字节读取缓存值, 访问主节点
+     *
+     * @param key
+     * @return
+     */
+    private byte[] get(String key) {
+        byte[] rawKey = key.getBytes(StandardCharsets.UTF_8);
+        return redisMetrics.record(RedisMetrics.LETTUCE, RedisMetrics.CACHE_TEMPLATE, "get",
+                () -> redisTemplate.execute((RedisCallback<byte[]>) connection -> connection.get(rawKey)));
+    }
+
+    /**
+     * 以字节读取缓存值, 优先访问从节点
+     *
+     * @param key
+     * @return
+     */
+    private byte[] replicaGet(String key) {
+        byte[] rawKey = key.getBytes(StandardCharsets.UTF_8);
+        return redisMetrics.record(RedisMetrics.LETTUCE, RedisMetrics.CACHE_TEMPLATE, "get",
+                () -> replicaRedisTemplate.execute((RedisCallback<byte[]>) connection -> connection.get(rawKey)));
+    }
+
+    /**
+     * 以字节异步读取缓存值
+     *
+     * @param template 主节点或优先从节点
+     * @param key
+     * @return 不存在时为null
+     */
+    private CompletableFuture<byte[]> getAsync(ReactiveRedisTemplate<String, byte[]> template, String key) {
+        return redisMetrics.recordAsync(RedisMetrics.LETTUCE, RedisMetrics.CACHE_TEMPLATE, "get",
+                () -> template.opsForValue().get(key).toFuture());
+    }
+
+    /**
+     * 以字节异步写入缓存值, 过期时间按缓存配置加随机抖动
+     */
+    private CompletableFuture<Boolean> setAsync(String cacheName, String key, byte[] value, long expire, TimeUnit timeUnit) {
+        Duration timeout = Duration.ofMillis(jitter(cacheName, timeUnit.toMillis(expire)));
+        return redisMetrics.recordAsync(RedisMetrics.LETTUCE, RedisMetrics.CACHE_TEMPLATE, "set",
+                () -> reactiveRedisTemplate.opsForValue().set(key, value, timeout).toFuture());
+    }
+
+    /**
+     * 以字节写入缓存值, 过期时间按缓存配置加随机抖动
+     *
+     * @param cacheName 缓存名称
+     * @param key
+     * @param value
+     * @param expire
+     * @param timeUnit
+     */
+    private void set(String cacheName, String key, byte[] value, long expire, TimeUnit timeUnit) {
+        byte[] rawKey = key.getBytes(StandardCharsets.UTF_8);
+        Expiration expiration = Expiration.milliseconds(jitter(cacheName, timeUnit.toMillis(expire)));
+        redisMetrics.record(RedisMetrics.LETTUCE, RedisMetrics.CACHE_TEMPLATE, "set",
+                () -> redisTemplate.execute((RedisCallback<Boolean>) connection -> connection.set(rawKey, value,
+                        expiration, RedisStringCommands.SetOption.UPSERT)));
+    }
+
+    /**
+     * 按缓存配置对过期时间加随机抖动, 避免同时写入的KEY同时过期
+     *
+     * @param cacheName 缓存名称
+     * @param millis    过期时间毫秒
+     * @return 抖动后的过期时间毫秒
+     */
+    private long jitter(String cacheName, long millis) {
+        CacheConfig.CacheSpec spec = cacheConfig.getSpec(cacheName);
+        return TtlJitter.apply(millis, spec.getTtlJitterPercent(), spec.getTtlJitterSeconds());
+    }
+
+    /**
+     * 获取加载数据的分布式锁, 租期60秒
+     *
+     * @param lock        锁
+     * @param waitSeconds 最长等待秒数
+     * @return 加锁成功标志
+     */
+    private boolean tryLock(RLock lock, long waitSeconds) throws InterruptedException {
+        long start = System.nanoTime();
+        try {
+            boolean locked = lock.tryLock(waitSeconds, 60, TimeUnit.SECONDS);
+            redisMetrics.record(RedisMetrics.REDISSON, RedisMetrics.CACHE_TEMPLATE, "lock", System.nanoTime() - start, null);
+            return locked;
+        } catch (InterruptedException | RuntimeException ex) {
+            redisMetrics.record(RedisMetrics.REDISSON, RedisMetrics.CACHE_TEMPLATE, "lock", System.nanoTime() - start, ex);
+            throw ex;
+        }
+    }
+
+    /**
+     * 释放异步获取的锁, 失败时锁在租期后过期
+     */
+    private void unlockAsync(RLock lock, long owner) {
+        redisMetrics.recordAsync(RedisMetrics.REDISSON, RedisMetrics.CACHE_TEMPLATE, "unlock", () -> lock.unlockAsync(owner))
+                .whenComplete((ok, ex) -> {
+                    if (ex != null) {
+                        log.warn("释放锁异常->" + ex.getMessage());
+                    }
+                });
+    }
+
+    private void unlock(RLock lock) {
+        redisMetrics.record(RedisMetrics.REDISSON, RedisMetrics.CACHE_TEMPLATE, "unlock", () -> {
+            lock.unlock();
+            return null;
+        });
+    }
 }
@@ -0,0 +1,72 @@
+package com.springcache.redis.demo.cache;
+
+import java.util.concurrent.atomic.AtomicLongArray;
+
+/**
+ * Count-Min Sketch 频率估计, 线程安全
+ * depth 行计数器, 每行按不同的哈希选一个计数器加一, 估计值取各行最小值:
+ * 只会高估不会低估, 误差约为 总次数 / width。内存固定, 与KEY的数量无关。
+ */
+public class CountMinSketch {
+
+    private final AtomicLongArray counters;
+    private final int depth;
+    private final int width;
+
+    /**
+     * @param depth 行数(哈希函数个数)
+     * @param width 每行计数器个数
+     */
+    public CountMinSketch(int depth, int width) {
+        this.depth = Math.max(1, depth);
+        this.width = Math.max(1, width);
+        this.counters = new AtomicLongArray(this.depth * this.width);
+    }
+
+    /**
+     * KEY计数加一
+     *
+     * @param key
+     * @return 加一后的估计值
+     */
+    public long add(String key) {
+        long hash = StringHashing.hash(key);
+        int h1 = (int) hash;
+        int h2 = (int) (hash >>> 32);
+        long min = Long.MAX_VALUE;
+        for (int i = 0; i < depth; i++) {
+            min = Math.min(min, counters.incrementAndGet(indexOf(i, h1 + (i + 1) * h2)));
+        }
+        return min;
+    }
+
+    /**
+     * KEY的估计次数
+     *
+     * @param key
+     * @return 不小于实际次数
+     */
+    public long estimate(String key) {
+        long hash = StringHashing.hash(key);
+        int h1 = (int) hash;
+        int h2 = (int) (hash >>> 32);
+        long min = Long.MAX_VALUE;
+        for (int i = 0; i < depth; i++) {
+            min = Math.min(min, counters.get(indexOf(i, h1 + (i + 1) * h2)));
+        }
+        return min;
+    }
+
+    /**
+     * 清零
+     */
+    public void clear() {
+        for (int i = 0; i < counters.length(); i++) {
+            counters.set(i, 0);
+        }
+    }
+
+    private int indexOf(int row, int combinedHash) {
+        return row * width + (combinedHash & Integer.MAX_VALUE) % width;
+    }
+}
@@ -0,0 +1,27 @@
+package com.springcache.redis.demo.cache;
+
+import com.alibaba.fastjson.JSON;
+
+/**
+ * fastjson 编解码, 与原有字符串缓存格式兼容
+ * 命中时直接从字节解析为目标类型, 不再经过 parse -> toJSONString -> parseObject 三次转换
+ */
+public class FastJsonCacheCodec implements CacheCodec {
+
+    public static final String NAME = "fastjson";
+
+    @Override
+    public String name() {
+        return NAME;
+    }
+
+    @Override
+    public byte[] encode(Object value) {
+        return JSON.toJSONBytes(value);
+    }
+
+    @Override
+    public <T> T decode(byte[] bytes, Class<T> clazz) {
+        return JSON.parseObject(bytes, clazz);
+    }
+}
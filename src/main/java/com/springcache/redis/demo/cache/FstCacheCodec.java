@@ -0,0 +1,35 @@
+package com.springcache.redis.demo.cache;
+
+import org.nustaq.serialization.FSTConfiguration;
+
+/**
+ * FST 二进制编解码
+ * 预先注册的类型只写入类型编号而不写入类名, 体积比JSON更小, 各节点注册的类型及顺序必须一致
+ */
+public class FstCacheCodec implements CacheCodec {
+
+    public static final String NAME = "fst";
+
+    //FSTConfiguration 线程安全, 创建成本高, 全局复用
+    private final FSTConfiguration configuration;
+
+    public FstCacheCodec(Class<?>... registeredClasses) {
+        configuration = FSTConfiguration.createDefaultConfiguration();
+        configuration.registerClass(registeredClasses);
+    }
+
+    @Override
+    public String name() {
+        return NAME;
+    }
+
+    @Override
+    public byte[] encode(Object value) {
+        return configuration.asByteArray(value);
+    }
+
+    @Override
+    public <T> T decode(byte[] bytes, Class<T> clazz) {
+        return clazz.cast(configuration.asObject(bytes));
+    }
+}
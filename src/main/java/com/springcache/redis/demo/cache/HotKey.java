@@ -0,0 +1,22 @@
+package com.springcache.redis.demo.cache;
+
+import lombok.Data;
+
+/**
+ * 热点KEY
+ */
+@Data
+public class HotKey {
+    /**
+     * 缓存名称
+     */
+    private final String cacheName;
+    /**
+     * KEY
+     */
+    private final String key;
+    /**
+     * 滑动窗口内的估计读取次数(按采样率换算)
+     */
+    private long count;
+}
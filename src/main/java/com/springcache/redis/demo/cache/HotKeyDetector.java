@@ -0,0 +1,163 @@
+package com.springcache.redis.demo.cache;
+
+import com.springcache.redis.demo.config.CacheConfig;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.scheduling.concurrent.CustomizableThreadFactory;
+import org.springframework.stereotype.Component;
+
+import javax.annotation.PostConstruct;
+import javax.annotation.PreDestroy;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ScheduledThreadPoolExecutor;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * 热点KEY探测
+ * 按 hot-key-sample-percent 采样读取, 计入当前时间片的 Count-Min Sketch; hot-key-windows 个时间片组成滑动窗口,
+ * 每过 hot-key-window-seconds 清空最旧的时间片。窗口内估计次数达到阈值的KEY成为候选, 每秒按估计次数选出前 hot-key-top-k 个作为热点。
+ * 只在内存中计数, 不访问redis; 各节点分别探测自己的热点。
+ */
+@Component
+public class HotKeyDetector {
+
+    private static final int SKETCH_DEPTH = 4;
+    private static final int SKETCH_WIDTH = 4096;
+
+    @Autowired
+    private CacheConfig cacheConfig;
+
+    private CountMinSketch[] windows;
+
+    private volatile int current;
+
+    //估计次数达到阈值的KEY, 缓存名称|KEY -> 热点
+    private final Map<String, HotKey> candidates = new ConcurrentHashMap<>();
+
+    private volatile Set<String> hotIds = Collections.emptySet();
+
+    private volatile List<HotKey> hotKeys = Collections.emptyList();
+
+    private ScheduledThreadPoolExecutor scheduler;
+
+    @PostConstruct
+    public void init() {
+        if (!cacheConfig.isHotKeyEnabled()) {
+            return;
+        }
+        windows = new CountMinSketch[Math.max(1, cacheConfig.getHotKeyWindows())];
+        for (int i = 0; i < windows.length; i++) {
+            windows[i] = new CountMinSketch(SKETCH_DEPTH, SKETCH_WIDTH);
+        }
+        long windowMillis = TimeUnit.SECONDS.toMillis(cacheConfig.getHotKeyWindowSeconds());
+        scheduler = new ScheduledThreadPoolExecutor(1, new CustomizableThreadFactory("hot-key-"));
+        scheduler.scheduleAtFixedRate(this::rotate, windowMillis, windowMillis, TimeUnit.MILLISECONDS);
+        scheduler.scheduleAtFixedRate(this::refresh, 1, 1, TimeUnit.SECONDS);
+    }
+
+    @PreDestroy
+    public void destroy() {
+        if (scheduler != null) {
+            scheduler.shutdownNow();
+        }
+    }
+
+    /**
+     * 记录一次读取(按采样率)
+     *
+     * @param cacheName 缓存名称
+     * @param key       KEY
+     */
+    public void record(String cacheName, String key) {
+        if (windows == null || ThreadLocalRandom.current().nextInt(100) >= cacheConfig.getHotKeySamplePercent()) {
+            return;
+        }
+        String id = cacheName + "|" + key;
+        windows[current].add(id);
+        if (!candidates.containsKey(id) && candidates.size() < maxCandidates() && estimate(id) >= sampledThreshold()) {
+            candidates.putIfAbsent(id, new HotKey(cacheName, key));
+        }
+    }
+
+    /**
+     * 是否为当前的热点KEY
+     *
+     * @param cacheName 缓存名称
+     * @param key       KEY
+     */
+    public boolean isHot(String cacheName, String key) {
+        Set<String> ids = hotIds;
+        return !ids.isEmpty() && ids.contains(cacheName + "|" + key);
+    }
+
+    /**
+     * 当前的热点KEY, 按估计读取次数从高到低
+     */
+    public List<HotKey> getHotKeys() {
+        return hotKeys;
+    }
+
+    /**
+     * 清空最旧的时间片并作为当前时间片
+     */
+    private void rotate() {
+        int next = (current + 1) % windows.length;
+        windows[next].clear();
+        current = next;
+    }
+
+    /**
+     * 重新估计候选KEY, 淘汰低于阈值的, 选出前K个作为热点
+     */
+    private void refresh() {
+        long threshold = sampledThreshold();
+        List<HotKey> ranked = new ArrayList<>();
+        for (Map.Entry<String, HotKey> entry : candidates.entrySet()) {
+            long estimate = estimate(entry.getKey());
+            if (estimate < threshold) {
+                candidates.remove(entry.getKey());
+                continue;
+            }
+            HotKey hotKey = new HotKey(entry.getValue().getCacheName(), entry.getValue().getKey());
+            hotKey.setCount(estimate * 100 / Math.max(1, cacheConfig.getHotKeySamplePercent()));
+            ranked.add(hotKey);
+        }
+        ranked.sort((a, b) -> Long.compare(b.getCount(), a.getCount()));
+        List<HotKey> top = ranked.size() > cacheConfig.getHotKeyTopK()
+                ? new ArrayList<>(ranked.subList(0, cacheConfig.getHotKeyTopK())) : ranked;
+        Set<String> ids = new HashSet<>();
+        for (HotKey hotKey : top) {
+            ids.add(hotKey.getCacheName() + "|" + hotKey.getKey());
+        }
+        hotKeys = Collections.unmodifiableList(top);
+        hotIds = ids;
+    }
+
+    /**
+     * 滑动窗口内的估计次数(采样后)
+     */
+    private long estimate(String id) {
+        long total = 0;
+        for (CountMinSketch window : windows) {
+            total += window.estimate(id);
+        }
+        return total;
+    }
+
+    /**
+     * 阈值换算为采样后的次数
+     */
+    private long sampledThreshold() {
+        return Math.max(1, cacheConfig.getHotKeyThreshold() * cacheConfig.getHotKeySamplePercent() / 100);
+    }
+
+    private int maxCandidates() {
+        return cacheConfig.getHotKeyTopK() * 8;
+    }
+}
@@ -0,0 +1,95 @@
+package com.springcache.redis.demo.cache;
+
+import com.springcache.redis.demo.config.SpringCacheConfig;
+import org.springframework.data.redis.cache.RedisCacheWriter;
+
+import java.nio.charset.StandardCharsets;
+import java.time.Duration;
+
+/**
+ * Spring Cache 热点KEY探测, 热点KEY的读取优先使用进程内副本(序列化后的字节)
+ * 写入、删除redis后失效本节点副本, 并通过 CacheChangeNotifier 通知其他节点失效; 通知丢失时最多读到副本存活时间(毫秒级)内的旧值。
+ * 在锁内读取后回写的缓存(如 productInfoCache 的库存)不能容忍旧值, 需配置 spring-cache.caches[x].hot-key-enabled=false。
+ */
+public class HotKeyRedisCacheWriter implements RedisCacheWriter {
+
+    private final RedisCacheWriter delegate;
+
+    private final HotKeyDetector hotKeyDetector;
+
+    private final HotKeyReplica hotKeyReplica;
+
+    private final CacheChangeNotifier cacheChangeNotifier;
+
+    private final SpringCacheConfig springCacheConfig;
+
+    public HotKeyRedisCacheWriter(RedisCacheWriter delegate, HotKeyDetector hotKeyDetector, HotKeyReplica hotKeyReplica,
+                                  CacheChangeNotifier cacheChangeNotifier, SpringCacheConfig springCacheConfig) {
+        this.delegate = delegate;
+        this.hotKeyDetector = hotKeyDetector;
+        this.hotKeyReplica = hotKeyReplica;
+        this.cacheChangeNotifier = cacheChangeNotifier;
+        this.springCacheConfig = springCacheConfig;
+    }
+
+    @Override
+    public void put(String name, byte[] key, byte[] value, Duration ttl) {
+        delegate.put(name, key, value, ttl);
+        invalidate(name, key);
+    }
+
+    @Override
+    public byte[] get(String name, byte[] key) {
+        if (!isEnabled(name)) {
+            return delegate.get(name, key);
+        }
+        String stringKey = new String(key, StandardCharsets.UTF_8);
+        hotKeyDetector.record(name, stringKey);
+        if (!hotKeyDetector.isHot(name, stringKey)) {
+            return delegate.get(name, key);
+        }
+        byte[] value = (byte[]) hotKeyReplica.get(name, stringKey);
+        if (value == null) {
+            value = delegate.get(name, key);
+            if (value != null) {
+                hotKeyReplica.put(name, stringKey, value);
+            }
+        }
+        return value;
+    }
+
+    @Override
+    public byte[] putIfAbsent(String name, byte[] key, byte[] value, Duration ttl) {
+        byte[] existing = delegate.putIfAbsent(name, key, value, ttl);
+        invalidate(name, key);
+        return existing;
+    }
+
+    @Override
+    public void remove(String name, byte[] key) {
+        delegate.remove(name, key);
+        invalidate(name, key);
+    }
+
+    @Override
+    public void clean(String name, byte[] pattern) {
+        delegate.clean(name, pattern);
+        hotKeyReplica.invalidateAll(name);
+    }
+
+    private boolean isEnabled(String name) {
+        return springCacheConfig.getSpec(name).isHotKeyEnabled();
+    }
+
+    /**
+     * redis写入完成后再失效副本, 否则并发读取可能在写入前重新缓存旧值
+     */
+    private void invalidate(String name, byte[] key) {
+        if (!isEnabled(name)) {
+            return;
+        }
+        String stringKey = new String(key, StandardCharsets.UTF_8);
+        hotKeyReplica.invalidate(name, stringKey);
+        cacheChangeNotifier.publishInvalidate(name, stringKey);
+    }
+}
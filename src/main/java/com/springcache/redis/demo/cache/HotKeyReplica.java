@@ -0,0 +1,64 @@
+package com.springcache.redis.demo.cache;
+
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import com.springcache.redis.demo.config.CacheConfig;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.stereotype.Component;
+
+import javax.annotation.PostConstruct;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * 热点KEY的进程内副本
+ * 只保存 HotKeyDetector 探测到的热点KEY, 存活时间很短(hot-key-replica-ttl-millis), 与 NearCache 是否启用无关;
+ * 本节点写入、删除时失效, 其他节点的变更由 CacheChangeNotifier 通知失效, 最多读到存活时间内的旧值。
+ */
+@Component
+public class HotKeyReplica {
+
+    @Autowired
+    private CacheConfig cacheConfig;
+
+    @Autowired
+    private CacheChangeNotifier cacheChangeNotifier;
+
+    //缓存名称|KEY -> 值
+    private Cache<String, Object> replica;
+
+    @PostConstruct
+    public void init() {
+        replica = Caffeine.newBuilder()
+                .maximumSize(cacheConfig.getHotKeyReplicaMaxSize())
+                .expireAfterWrite(cacheConfig.getHotKeyReplicaTtlMillis(), TimeUnit.MILLISECONDS)
+                .build();
+        cacheChangeNotifier.addListener(this::invalidate);
+    }
+
+    /**
+     * @param cacheName 缓存名称
+     * @param key       KEY
+     * @return 未命中返回null
+     */
+    public Object get(String cacheName, String key) {
+        return replica.getIfPresent(cacheName + "|" + key);
+    }
+
+    public void put(String cacheName, String key, Object value) {
+        replica.put(cacheName + "|" + key, value);
+    }
+
+    public void invalidate(String cacheName, String key) {
+        replica.invalidate(cacheName + "|" + key);
+    }
+
+    /**
+     * 失效指定缓存的全部副本
+     *
+     * @param cacheName 缓存名称
+     */
+    public void invalidateAll(String cacheName) {
+        String prefix = cacheName + "|";
+        replica.asMap().keySet().removeIf(id -> id.startsWith(prefix));
+    }
+}
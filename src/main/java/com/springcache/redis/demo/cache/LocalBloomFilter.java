@@ -0,0 +1,75 @@
+package com.springcache.redis.demo.cache;
+
+import java.util.concurrent.atomic.AtomicLongArray;
+
+/**
+ * 进程内布隆过滤器, 线程安全
+ * 返回不存在的KEY一定不存在, 返回存在的KEY有 falseProbability 的概率误判
+ */
+public class LocalBloomFilter {
+
+    private final AtomicLongArray bits;
+    //位数
+    private final long bitSize;
+    //哈希函数个数
+    private final int hashCount;
+
+    /**
+     * @param expectedInsertions 预计元素个数
+     * @param falseProbability   期望误判率
+     */
+    public LocalBloomFilter(long expectedInsertions, double falseProbability) {
+        long n = Math.max(1, expectedInsertions);
+        long m = (long) Math.ceil(-n * Math.log(falseProbability) / (Math.log(2) * Math.log(2)));
+        int words = (int) Math.min(Integer.MAX_VALUE - 8, (Math.max(64, m) + 63) >>> 6);
+        this.bits = new AtomicLongArray(words);
+        this.bitSize = (long) words << 6;
+        this.hashCount = Math.max(1, (int) Math.round((double) bitSize / n * Math.log(2)));
+    }
+
+    /**
+     * 加入KEY
+     *
+     * @param key
+     */
+    public void put(String key) {
+        long hash = StringHashing.hash(key);
+        int h1 = (int) hash;
+        int h2 = (int) (hash >>> 32);
+        for (int i = 1; i <= hashCount; i++) {
+            long index = indexOf(h1 + i * h2);
+            int word = (int) (index >>> 6);
+            long mask = 1L << index;
+            long old;
+            do {
+                old = bits.get(word);
+                if ((old & mask) != 0) {
+                    break;
+                }
+            } while (!bits.compareAndSet(word, old, old | mask));
+        }
+    }
+
+    /**
+     * KEY是否可能存在
+     *
+     * @param key
+     * @return false 表示一定不存在
+     */
+    public boolean mightContain(String key) {
+        long hash = StringHashing.hash(key);
+        int h1 = (int) hash;
+        int h2 = (int) (hash >>> 32);
+        for (int i = 1; i <= hashCount; i++) {
+            long index = indexOf(h1 + i * h2);
+            if ((bits.get((int) (index >>> 6)) & (1L << index)) == 0) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    private long indexOf(int combinedHash) {
+        return (combinedHash & Long.MAX_VALUE) % bitSize;
+    }
+}
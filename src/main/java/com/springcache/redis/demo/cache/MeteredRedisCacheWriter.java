@@ -0,0 +1,60 @@
+package com.springcache.redis.demo.cache;
+
+import com.springcache.redis.demo.metrics.RedisMetrics;
+import org.springframework.data.redis.cache.RedisCacheWriter;
+
+import java.time.Duration;
+
+/**
+ * 记录 Spring Cache 读写redis的耗时和异常、命中率及缓存值大小, 实际读写交给被包装的 RedisCacheWriter
+ */
+public class MeteredRedisCacheWriter implements RedisCacheWriter {
+
+    private final RedisCacheWriter delegate;
+
+    private final RedisMetrics redisMetrics;
+
+    public MeteredRedisCacheWriter(RedisCacheWriter delegate, RedisMetrics redisMetrics) {
+        this.delegate = delegate;
+        this.redisMetrics = redisMetrics;
+    }
+
+    @Override
+    public void put(String name, byte[] key, byte[] value, Duration ttl) {
+        redisMetrics.recordCacheValueSize(name, value.length);
+        redisMetrics.record(RedisMetrics.LETTUCE, RedisMetrics.SPRING_CACHE, "set", () -> {
+            delegate.put(name, key, value, ttl);
+            return null;
+        });
+    }
+
+    @Override
+    public byte[] get(String name, byte[] key) {
+        byte[] value = redisMetrics.record(RedisMetrics.LETTUCE, RedisMetrics.SPRING_CACHE, "get", () -> delegate.get(name, key));
+        redisMetrics.recordCacheGet(name, value != null);
+        return value;
+    }
+
+    @Override
+    public byte[] putIfAbsent(String name, byte[] key, byte[] value, Duration ttl) {
+        redisMetrics.recordCacheValueSize(name, value.length);
+        return redisMetrics.record(RedisMetrics.LETTUCE, RedisMetrics.SPRING_CACHE, "setnx",
+                () -> delegate.putIfAbsent(name, key, value, ttl));
+    }
+
+    @Override
+    public void remove(String name, byte[] key) {
+        redisMetrics.record(RedisMetrics.LETTUCE, RedisMetrics.SPRING_CACHE, "del", () -> {
+            delegate.remove(name, key);
+            return null;
+        });
+    }
+
+    @Override
+    public void clean(String name, byte[] pattern) {
+        redisMetrics.record(RedisMetrics.LETTUCE, RedisMetrics.SPRING_CACHE, "clean", () -> {
+            delegate.clean(name, pattern);
+            return null;
+        });
+    }
+}
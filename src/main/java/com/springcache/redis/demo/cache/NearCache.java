@@ -0,0 +1,90 @@
+package com.springcache.redis.demo.cache;
+
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import com.springcache.redis.demo.config.CacheConfig;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.stereotype.Component;
+
+import javax.annotation.PostConstruct;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * 进程内一级缓存(L1), 位于 redis 二级缓存(L2)之前
+ * 每个缓存名称对应一个按条目数和存活时间淘汰的 Caffeine 缓存,
+ * 数据变更时由 CacheChangeNotifier 通知其他节点失效本地副本。
+ * 注意: 本地缓存直接返回同一个对象实例, 调用方不应修改返回的对象。
+ */
+@Component
+public class NearCache {
+
+    @Autowired
+    private CacheConfig cacheConfig;
+
+    @Autowired
+    private CacheChangeNotifier cacheChangeNotifier;
+
+    private final ConcurrentHashMap<String, Cache<String, Object>> caches = new ConcurrentHashMap<>();
+
+    @PostConstruct
+    public void init() {
+        // 其他节点数据变更时失效本地副本
+        cacheChangeNotifier.addListener(this::invalidate);
+    }
+
+    /**
+     * 指定缓存是否启用本地缓存
+     *
+     * @param cacheName 缓存名称
+     * @return 是否启用
+     */
+    public boolean isEnabled(String cacheName) {
+        return cacheConfig.isNearEnabled() && cacheConfig.getSpec(cacheName).isNearEnabled();
+    }
+
+    /**
+     * 读取本地缓存
+     *
+     * @param cacheName 缓存名称
+     * @param key       KEY
+     * @return 未命中返回null
+     */
+    public Object get(String cacheName, String key) {
+        return getCache(cacheName).getIfPresent(key);
+    }
+
+    /**
+     * 写入本地缓存
+     *
+     * @param cacheName 缓存名称
+     * @param key       KEY
+     * @param value     值
+     */
+    public void put(String cacheName, String key, Object value) {
+        getCache(cacheName).put(key, value);
+    }
+
+    /**
+     * 失效本地缓存
+     *
+     * @param cacheName 缓存名称
+     * @param key       KEY
+     */
+    public void invalidate(String cacheName, String key) {
+        Cache<String, Object> cache = caches.get(cacheName);
+        if (cache != null) {
+            cache.invalidate(key);
+        }
+    }
+
+    private Cache<String, Object> getCache(String cacheName) {
+        return caches.computeIfAbsent(cacheName, name -> {
+            CacheConfig.CacheSpec spec = cacheConfig.getSpec(name);
+            return Caffeine.newBuilder()
+                    .maximumSize(spec.getNearMaxSize())
+                    .expireAfterWrite(spec.getNearTtlSeconds(), TimeUnit.SECONDS)
+                    .build();
+        });
+    }
+}
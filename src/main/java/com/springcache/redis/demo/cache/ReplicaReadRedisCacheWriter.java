@@ -0,0 +1,50 @@
+package com.springcache.redis.demo.cache;
+
+import com.springcache.redis.demo.config.SpringCacheConfig;
+import org.springframework.data.redis.cache.RedisCacheWriter;
+
+import java.time.Duration;
+
+/**
+ * Spring Cache 读写分离: 配置了 read-from-replica 的缓存 GET 交给 reader(可访问从节点),
+ * 其余缓存的 GET 及所有写入、删除、putIfAbsent 交给 writer(主节点)
+ */
+public class ReplicaReadRedisCacheWriter implements RedisCacheWriter {
+
+    private final RedisCacheWriter writer;
+
+    private final RedisCacheWriter reader;
+
+    private final SpringCacheConfig springCacheConfig;
+
+    public ReplicaReadRedisCacheWriter(RedisCacheWriter writer, RedisCacheWriter reader, SpringCacheConfig springCacheConfig) {
+        this.writer = writer;
+        this.reader = reader;
+        this.springCacheConfig = springCacheConfig;
+    }
+
+    @Override
+    public void put(String name, byte[] key, byte[] value, Duration ttl) {
+        writer.put(name, key, value, ttl);
+    }
+
+    @Override
+    public byte[] get(String name, byte[] key) {
+        return springCacheConfig.getSpec(name).isReadFromReplica() ? reader.get(name, key) : writer.get(name, key);
+    }
+
+    @Override
+    public byte[] putIfAbsent(String name, byte[] key, byte[] value, Duration ttl) {
+        return writer.putIfAbsent(name, key, value, ttl);
+    }
+
+    @Override
+    public void remove(String name, byte[] key) {
+        writer.remove(name, key);
+    }
+
+    @Override
+    public void clean(String name, byte[] pattern) {
+        writer.clean(name, pattern);
+    }
+}
@@ -0,0 +1,84 @@
+package com.springcache.redis.demo.cache;
+
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutionException;
+import java.util.function.Supplier;
+
+/**
+ * 进程内请求合并
+ * 同一KEY同时只有一个线程执行加载, 其余线程等待同一个结果, 不再各自去竞争分布式锁
+ */
+public class SingleFlight {
+
+    private final ConcurrentHashMap<String, CompletableFuture<Object>> calls = new ConcurrentHashMap<>();
+
+    /**
+     * 执行加载, 同一KEY正在加载时等待其结果
+     *
+     * @param key      KEY
+     * @param supplier 加载方法
+     * @param <V>
+     * @return 加载结果
+     */
+    @SuppressWarnings("unchecked")
+    public <V> Outcome<V> execute(String key, Supplier<V> supplier) {
+        CompletableFuture<Object> future = new CompletableFuture<>();
+        CompletableFuture<Object> running = calls.putIfAbsent(key, future);
+        if (running != null) {
+            return new Outcome<>((V) await(running), true);
+        }
+        try {
+            V value = supplier.get();
+            future.complete(value);
+            return new Outcome<>(value, false);
+        } catch (RuntimeException | Error ex) {
+            future.completeExceptionally(ex);
+            throw ex;
+        } finally {
+            calls.remove(key, future);
+        }
+    }
+
+    private Object await(CompletableFuture<Object> future) {
+        try {
+            return future.get();
+        } catch (InterruptedException ex) {
+            Thread.currentThread().interrupt();
+            throw new IllegalStateException("等待合并请求结果被中断", ex);
+        } catch (ExecutionException ex) {
+            Throwable cause = ex.getCause();
+            if (cause instanceof RuntimeException) {
+                throw (RuntimeException) cause;
+            }
+            if (cause instanceof Error) {
+                throw (Error) cause;
+            }
+            throw new IllegalStateException(cause);
+        }
+    }
+
+    /**
+     * 加载结果
+     *
+     * @param <V>
+     */
+    public static class Outcome<V> {
+        private final V value;
+        //是否复用了其他线程的加载结果
+        private final boolean shared;
+
+        Outcome(V value, boolean shared) {
+            this.value = value;
+            this.shared = shared;
+        }
+
+        public V getValue() {
+            return value;
+        }
+
+        public boolean isShared() {
+            return shared;
+        }
+    }
+}
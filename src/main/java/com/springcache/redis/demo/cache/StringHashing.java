@@ -0,0 +1,27 @@
+package com.springcache.redis.demo.cache;
+
+import com.springcache.redis.demo.utils.LongHashing;
+
+import java.nio.charset.StandardCharsets;
+
+/**
+ * 字符串KEY的64位哈希, LocalBloomFilter 和 CountMinSketch 共用
+ * 低32位和高32位分别作为双重哈希的 h1, h2
+ */
+final class StringHashing {
+
+    private StringHashing() {
+    }
+
+    /**
+     * 64位 FNV-1a 哈希, 再经过 murmur3 fmix64 打散
+     */
+    static long hash(String key) {
+        long h = 0xcbf29ce484222325L;
+        for (byte b : key.getBytes(StandardCharsets.UTF_8)) {
+            h ^= b;
+            h *= 0x100000001b3L;
+        }
+        return LongHashing.mix(h);
+    }
+}
@@ -0,0 +1,32 @@
+package com.springcache.redis.demo.cache;
+
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * 过期时间随机抖动
+ * 同一批写入的KEY使用相同的过期时间会同时过期, 集中回源; 每次写入时在过期时间上随机增加 [0, 抖动窗口) 毫秒, 使过期时间均匀分散。
+ * 抖动窗口 = 过期时间 * percent / 100 + seconds 秒, 两者都为0时不抖动。只延长不缩短, 不影响最短的缓存时间。
+ */
+public final class TtlJitter {
+
+    private TtlJitter() {
+    }
+
+    /**
+     * @param ttlMillis 过期时间毫秒, 小于等于0(永不过期)时不抖动
+     * @param percent   按过期时间百分比计算的抖动窗口
+     * @param seconds   固定的抖动窗口秒数
+     * @return 抖动后的过期时间毫秒
+     */
+    public static long apply(long ttlMillis, int percent, long seconds) {
+        if (ttlMillis <= 0) {
+            return ttlMillis;
+        }
+        long window = ttlMillis * percent / 100 + TimeUnit.SECONDS.toMillis(seconds);
+        if (window <= 0) {
+            return ttlMillis;
+        }
+        return ttlMillis + ThreadLocalRandom.current().nextLong(window);
+    }
+}
@@ -0,0 +1,54 @@
+package com.springcache.redis.demo.cache;
+
+import com.springcache.redis.demo.config.SpringCacheConfig;
+import org.springframework.data.redis.cache.RedisCacheWriter;
+
+import java.time.Duration;
+
+/**
+ * Spring Cache 写入时按缓存配置对过期时间加随机抖动, RedisCacheConfiguration 只支持固定的过期时间
+ */
+public class TtlJitterRedisCacheWriter implements RedisCacheWriter {
+
+    private final RedisCacheWriter delegate;
+
+    private final SpringCacheConfig springCacheConfig;
+
+    public TtlJitterRedisCacheWriter(RedisCacheWriter delegate, SpringCacheConfig springCacheConfig) {
+        this.delegate = delegate;
+        this.springCacheConfig = springCacheConfig;
+    }
+
+    @Override
+    public void put(String name, byte[] key, byte[] value, Duration ttl) {
+        delegate.put(name, key, value, jitter(name, ttl));
+    }
+
+    @Override
+    public byte[] get(String name, byte[] key) {
+        return delegate.get(name, key);
+    }
+
+    @Override
+    public byte[] putIfAbsent(String name, byte[] key, byte[] value, Duration ttl) {
+        return delegate.putIfAbsent(name, key, value, jitter(name, ttl));
+    }
+
+    @Override
+    public void remove(String name, byte[] key) {
+        delegate.remove(name, key);
+    }
+
+    @Override
+    public void clean(String name, byte[] pattern) {
+        delegate.clean(name, pattern);
+    }
+
+    private Duration jitter(String name, Duration ttl) {
+        if (ttl == null) {
+            return null;
+        }
+        SpringCacheConfig.CacheSpec spec = springCacheConfig.getSpec(name);
+        return Duration.ofMillis(TtlJitter.apply(ttl.toMillis(), spec.getTtlJitterPercent(), spec.getTtlJitterSeconds()));
+    }
+}
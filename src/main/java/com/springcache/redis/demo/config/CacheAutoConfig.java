@@ -0,0 +1,38 @@
+package com.springcache.redis.demo.config;
+
+import com.springcache.redis.demo.cache.FastJsonCacheCodec;
+import com.springcache.redis.demo.cache.FstCacheCodec;
+import com.springcache.redis.demo.entity.ProductInfo;
+import com.springcache.redis.demo.entity.User;
+import org.springframework.boot.context.properties.EnableConfigurationProperties;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+
+/**
+ * CacheTemplate 相关组件配置
+ */
+@Configuration
+@EnableConfigurationProperties(CacheConfig.class)
+public class CacheAutoConfig {
+
+    /**
+     * fastjson 编解码, 默认使用
+     *
+     * @return
+     */
+    @Bean
+    public FastJsonCacheCodec fastJsonCacheCodec() {
+        return new FastJsonCacheCodec();
+    }
+
+    /**
+     * FST 二进制编解码, 注册缓存实体类型以减小体积
+     * 新增类型只能追加在末尾, 否则已缓存的数据无法解码
+     *
+     * @return
+     */
+    @Bean
+    public FstCacheCodec fstCacheCodec() {
+        return new FstCacheCodec(User.class, ProductInfo.class);
+    }
+}
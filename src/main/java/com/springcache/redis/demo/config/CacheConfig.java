@@ -0,0 +1,167 @@
+package com.springcache.redis.demo.config;
+
+import lombok.AccessLevel;
+import lombok.Data;
+import lombok.EqualsAndHashCode;
+import lombok.Getter;
+import lombok.Setter;
+import lombok.ToString;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.context.annotation.PropertySource;
+import org.springframework.core.env.Environment;
+import org.springframework.stereotype.Component;
+
+import javax.annotation.PostConstruct;
+import java.util.HashMap;
+import java.util.Map;
+
+/**
+ * CacheTemplate 相关配置
+ * 未在 caches 中单独配置的缓存使用 defaults 中的配置, 单独配置的缓存未配置的字段也继承 defaults
+ */
+@Data
+@Component
+@PropertySource("classpath:cache.properties")
+@ConfigurationProperties(ignoreUnknownFields = false,
+        prefix = "cache")
+public class CacheConfig {
+    /**
+     * 本地一级缓存(L1)总开关
+     */
+    private boolean nearEnabled = false;
+
+    /**
+     * 后台刷新(stale-while-revalidate)线程数
+     */
+    private int refreshThreads = 2;
+
+    /**
+     * 异步读取(getCacheDataAsync)执行 CacheLoadable 的线程数, redis读写和加锁不占用线程
+     */
+    private int asyncLoadThreads = 8;
+
+    /**
+     * 布隆过滤器全量重建间隔(秒)
+     */
+    private long bloomRebuildSeconds = 600;
+
+    /**
+     * 是否探测热点KEY, 热点KEY在进程内保存短时间的副本
+     */
+    private boolean hotKeyEnabled = true;
+
+    /**
+     * 热点探测的采样百分比
+     */
+    private int hotKeySamplePercent = 10;
+
+    /**
+     * 滑动窗口内读取次数达到该值即为热点
+     */
+    private long hotKeyThreshold = 500;
+
+    /**
+     * 最多同时保留的热点KEY数量
+     */
+    private int hotKeyTopK = 20;
+
+    /**
+     * 滑动窗口的时间片(秒)及时间片个数, 窗口长度 = 两者相乘
+     */
+    private long hotKeyWindowSeconds = 5;
+    private int hotKeyWindows = 6;
+
+    /**
+     * 热点KEY进程内副本的存活时间(毫秒)及最大条目数
+     */
+    private long hotKeyReplicaTtlMillis = 1000;
+    private long hotKeyReplicaMaxSize = 1000;
+
+    /**
+     * 默认缓存配置
+     */
+    private CacheSpec defaults = new CacheSpec();
+
+    /**
+     * 按缓存名称单独配置, 如: cache.caches[userCache].near-max-size=10000
+     * 未单独配置的字段继承 defaults
+     */
+    private Map<String, CacheSpec> caches = new HashMap<>();
+
+    //只用于合并配置, 不作为配置项
+    @Autowired
+    @Getter(AccessLevel.NONE)
+    @Setter(AccessLevel.NONE)
+    @ToString.Exclude
+    @EqualsAndHashCode.Exclude
+    private Environment environment;
+
+    /**
+     * 绑定完成后, 以 defaults 为基础合并各缓存的单独配置
+     */
+    @PostConstruct
+    public void init() {
+        caches = CacheSpecs.inheritDefaults(environment, "cache", defaults, caches, CacheSpec::new);
+    }
+
+    /**
+     * 获取指定缓存的配置
+     *
+     * @param cacheName 缓存名称
+     * @return 缓存配置
+     */
+    public CacheSpec getSpec(String cacheName) {
+        CacheSpec spec = caches.get(cacheName);
+        return spec != null ? spec : defaults;
+    }
+
+    @Data
+    public static class CacheSpec {
+        /**
+         * 是否启用本地一级缓存
+         */
+        private boolean nearEnabled = true;
+        /**
+         * 本地缓存最大条目数
+         */
+        private long nearMaxSize = 10000;
+        /**
+         * 本地缓存写入后存活时间(秒)
+         */
+        private long nearTtlSeconds = 60;
+        /**
+         * redis 中缓存值的编解码: fastjson / fst
+         */
+        private String codec = "fastjson";
+        /**
+         * 软过期时间占过期时间(硬过期)的百分比, 0 表示不启用
+         * 超过软过期后仍返回旧值, 同时在后台加锁刷新, 只有硬过期后才阻塞加载
+         */
+        private int softTtlPercent = 0;
+        /**
+         * 空值缓存时间(秒), 防止不存在的数据每次都加锁回源, 0 表示不缓存空值
+         */
+        private long nullTtlSeconds = 0;
+        /**
+         * 过期时间随机抖动, 按过期时间的百分比, 0 表示不抖动
+         */
+        private int ttlJitterPercent = 0;
+        /**
+         * 过期时间随机抖动, 固定窗口(秒), 与百分比同时配置时相加
+         */
+        private long ttlJitterSeconds = 0;
+        /**
+         * 是否启用布隆过滤器, 需要通过 CacheTemplate.registerBloomFilter 注册KEY数据源
+         */
+        private boolean bloomEnabled = false;
+        /**
+         * 布隆过滤器预计元素个数
+         */
+        private long bloomExpectedInsertions = 1000000;
+        /**
+         * 布隆过滤器期望误判率
+         */
+        private double bloomFalseProbability = 0.01;
+    }
+}
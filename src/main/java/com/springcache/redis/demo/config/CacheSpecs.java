@@ -0,0 +1,42 @@
+package com.springcache.redis.demo.config;
+
+import org.springframework.beans.BeanUtils;
+import org.springframework.boot.context.properties.bind.Bindable;
+import org.springframework.boot.context.properties.bind.Binder;
+import org.springframework.core.env.Environment;
+
+import java.util.HashMap;
+import java.util.Map;
+import java.util.function.Supplier;
+
+/**
+ * 按缓存名称单独配置时继承默认配置
+ * 默认绑定时 caches[x] 是新建的对象, 未配置的字段取 Java 字段的初始值而不是 defaults 中配置的值,
+ * 这里以 defaults 的副本为基础重新绑定 caches[x], 只覆盖单独配置的字段。
+ */
+final class CacheSpecs {
+
+    private CacheSpecs() {
+    }
+
+    /**
+     * @param environment 配置来源, 包含 @PropertySource 及命令行参数
+     * @param prefix      配置前缀, 如 cache
+     * @param defaults    已绑定的默认配置
+     * @param caches      已绑定的单独配置, 只用到缓存名称
+     * @param factory     创建配置对象
+     * @return 缓存名称 -> 合并后的配置
+     */
+    static <S> Map<String, S> inheritDefaults(Environment environment, String prefix, S defaults,
+                                              Map<String, S> caches, Supplier<S> factory) {
+        Binder binder = Binder.get(environment);
+        Map<String, S> merged = new HashMap<>();
+        for (String cacheName : caches.keySet()) {
+            S spec = factory.get();
+            BeanUtils.copyProperties(defaults, spec);
+            binder.bind(prefix + ".caches[" + cacheName + "]", Bindable.ofInstance(spec));
+            merged.put(cacheName, spec);
+        }
+        return merged;
+    }
+}
@@ -1,13 +1,19 @@
 package com.springcache.redis.demo.config;
 
+import com.springcache.redis.demo.utils.JedisUtil;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.boot.context.properties.EnableConfigurationProperties;
 import org.springframework.context.annotation.Bean;
 import org.springframework.context.annotation.Configuration;
-import org.springframework.context.annotation.Scope;
-import redis.clients.jedis.Jedis;
+import redis.clients.jedis.HostAndPort;
 import redis.clients.jedis.JedisPool;
 import redis.clients.jedis.JedisPoolConfig;
+import redis.clients.jedis.JedisSentinelPool;
+import redis.clients.jedis.JedisSlotBasedConnectionHandler;
+
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
 
 /**
  * # @EnableConfigurationProperties注解给出了该配置类所需要的配置信息类，也就是JedisConfig类，
@@ -17,31 +23,47 @@ import redis.clients.jedis.JedisPoolConfig;
 @EnableConfigurationProperties(JedisConfig.class)
 public class JedisAutoConfig {
 
-    private volatile JedisPool jedisPool = null;
     @Autowired
     private JedisConfig jedisConfig;
 
+    @Autowired
+    private RedisTopologyConfig redisTopologyConfig;
+
     /**
-     * Jedis不支持单例，且非线程安全，每次获取实例时需要重新创建，否则会有异常！
+     * 共享连接池, 整个应用只创建一个, 容器关闭时关闭
+     * Jedis不支持单例，且非线程安全，使用方通过 JedisUtil 每次从池中借用连接, 用完后 close() 归还
+     * 按 topology.properties 的部署方式创建: 主从模式只连接主节点(nodes 第一个), 哨兵模式跟随主节点切换
      *
      * @return
      */
-    @Bean
-    public Jedis getJedis() {
-        if (jedisPool == null) {
-            //采用双锁机制，安全且在多线程情况下能保持高性能
-            synchronized (JedisAutoConfig.class) {
-                JedisPoolConfig config = new JedisPoolConfig();
-                config.setMaxTotal(jedisConfig.getMaxTotal());
-                config.setMaxIdle(jedisConfig.getMaxIdle());
-                config.setMaxWaitMillis(jedisConfig.getMaxWait());
-                config.setTestOnBorrow(jedisConfig.getTestOnBorrow());
-                config.setTestOnReturn(jedisConfig.getTestOnReturn());
-                jedisPool = new JedisPool(config, jedisConfig.getHost(), jedisConfig.getPort(),
-                        jedisConfig.getTimeOut(), jedisConfig.getPassword());
-            }
+    @Bean(destroyMethod = "close")
+    public JedisUtil jedisUtil() {
+        JedisPoolConfig config = new JedisPoolConfig();
+        config.setMaxTotal(jedisConfig.getMaxTotal());
+        config.setMaxIdle(jedisConfig.getMaxIdle());
+        config.setMaxWaitMillis(jedisConfig.getMaxWait());
+        config.setTestOnBorrow(jedisConfig.getTestOnBorrow());
+        config.setTestOnReturn(jedisConfig.getTestOnReturn());
+        config.setJmxNamePrefix("jedis-pool");
+        List<String> nodes = redisTopologyConfig.getNodes();
+        switch (redisTopologyConfig.getMode()) {
+            case SENTINEL:
+                return new JedisUtil(new JedisSentinelPool(redisTopologyConfig.getMasterName(), new HashSet<>(nodes),
+                        config, jedisConfig.getTimeOut(), jedisConfig.getPassword()));
+            case CLUSTER:
+                Set<HostAndPort> clusterNodes = new HashSet<>();
+                for (String node : nodes) {
+                    clusterNodes.add(HostAndPort.parseString(node));
+                }
+                return new JedisUtil(new JedisSlotBasedConnectionHandler(clusterNodes, config,
+                        jedisConfig.getTimeOut(), jedisConfig.getTimeOut(), jedisConfig.getPassword()));
+            case MASTER_REPLICA:
+                HostAndPort master = HostAndPort.parseString(nodes.get(0));
+                return new JedisUtil(new JedisPool(config, master.getHost(), master.getPort(),
+                        jedisConfig.getTimeOut(), jedisConfig.getPassword()));
+            default:
+                return new JedisUtil(new JedisPool(config, jedisConfig.getHost(), jedisConfig.getPort(),
+                        jedisConfig.getTimeOut(), jedisConfig.getPassword()));
         }
-
-        return jedisPool.getResource();
     }
 }
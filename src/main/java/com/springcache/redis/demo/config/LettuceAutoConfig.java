@@ -0,0 +1,160 @@
+package com.springcache.redis.demo.config;
+
+import io.lettuce.core.ReadFrom;
+import io.lettuce.core.cluster.ClusterClientOptions;
+import io.lettuce.core.cluster.ClusterTopologyRefreshOptions;
+import io.lettuce.core.resource.ClientResources;
+import org.apache.commons.pool2.impl.GenericObjectPoolConfig;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.boot.autoconfigure.data.redis.RedisProperties;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.context.annotation.Primary;
+import org.springframework.data.redis.connection.RedisClusterConfiguration;
+import org.springframework.data.redis.connection.RedisConfiguration;
+import org.springframework.data.redis.connection.RedisConnectionFactory;
+import org.springframework.data.redis.connection.ReactiveRedisConnectionFactory;
+import org.springframework.data.redis.connection.RedisPassword;
+import org.springframework.data.redis.connection.RedisSentinelConfiguration;
+import org.springframework.data.redis.connection.RedisStandaloneConfiguration;
+import org.springframework.data.redis.connection.RedisStaticMasterReplicaConfiguration;
+import org.springframework.data.redis.connection.lettuce.LettuceClientConfiguration;
+import org.springframework.data.redis.connection.lettuce.LettuceConnectionFactory;
+import org.springframework.data.redis.connection.lettuce.LettucePoolingClientConfiguration;
+import org.springframework.data.redis.core.ReactiveRedisTemplate;
+import org.springframework.data.redis.core.StringRedisTemplate;
+import org.springframework.data.redis.serializer.RedisSerializationContext;
+import org.springframework.data.redis.serializer.RedisSerializer;
+
+import java.util.HashSet;
+import java.util.List;
+
+/**
+ * Lettuce(spring.redis.*) 连接配置, 按 topology.properties 选择部署方式
+ * redisConnectionFactory / stringRedisTemplate 访问主节点, 用于写入、分布式锁及其他所有操作;
+ * replicaConnectionFactory / replicaRedisTemplate 供缓存读取使用, 开启 read-from-replica 时优先访问从节点。
+ * byteReactiveRedisTemplate / replicaByteReactiveRedisTemplate 为同样两个连接上的非阻塞版本, 值为字节, 供异步读取缓存使用。
+ */
+@Configuration
+public class LettuceAutoConfig {
+
+    @Autowired
+    private RedisProperties redisProperties;
+
+    @Autowired
+    private RedisTopologyConfig redisTopologyConfig;
+
+    @Autowired
+    private ClientResources clientResources;
+
+    @Bean
+    @Primary
+    public LettuceConnectionFactory redisConnectionFactory() {
+        return new LettuceConnectionFactory(serverConfiguration(), clientConfiguration(ReadFrom.MASTER));
+    }
+
+    /**
+     * 缓存读取的连接, 不开启从节点读取时同样访问主节点
+     */
+    @Bean
+    public LettuceConnectionFactory replicaConnectionFactory() {
+        ReadFrom readFrom = redisTopologyConfig.isReplicaReadable() ? ReadFrom.REPLICA_PREFERRED : ReadFrom.MASTER;
+        return new LettuceConnectionFactory(serverConfiguration(), clientConfiguration(readFrom));
+    }
+
+    @Bean
+    @Primary
+    public StringRedisTemplate stringRedisTemplate(RedisConnectionFactory redisConnectionFactory) {
+        return new StringRedisTemplate(redisConnectionFactory);
+    }
+
+    @Bean
+    public StringRedisTemplate replicaRedisTemplate(@Qualifier("replicaConnectionFactory") RedisConnectionFactory replicaConnectionFactory) {
+        return new StringRedisTemplate(replicaConnectionFactory);
+    }
+
+    @Bean
+    public ReactiveRedisTemplate<String, byte[]> byteReactiveRedisTemplate(ReactiveRedisConnectionFactory redisConnectionFactory) {
+        return new ReactiveRedisTemplate<>(redisConnectionFactory, byteSerializationContext());
+    }
+
+    @Bean
+    public ReactiveRedisTemplate<String, byte[]> replicaByteReactiveRedisTemplate(
+            @Qualifier("replicaConnectionFactory") ReactiveRedisConnectionFactory replicaConnectionFactory) {
+        return new ReactiveRedisTemplate<>(replicaConnectionFactory, byteSerializationContext());
+    }
+
+    /**
+     * KEY 为字符串, 值为原始字节, 由 CacheCodec 编解码
+     */
+    private static RedisSerializationContext<String, byte[]> byteSerializationContext() {
+        return RedisSerializationContext.<String, byte[]>newSerializationContext(RedisSerializer.string())
+                .value(RedisSerializer.byteArray())
+                .build();
+    }
+
+    private RedisConfiguration serverConfiguration() {
+        List<String> nodes = redisTopologyConfig.getNodes();
+        RedisPassword password = RedisPassword.of(redisProperties.getPassword());
+        switch (redisTopologyConfig.getMode()) {
+            case SENTINEL:
+                RedisSentinelConfiguration sentinel = new RedisSentinelConfiguration(redisTopologyConfig.getMasterName(),
+                        new HashSet<>(nodes));
+                sentinel.setPassword(password);
+                sentinel.setDatabase(redisProperties.getDatabase());
+                return sentinel;
+            case CLUSTER:
+                RedisClusterConfiguration cluster = new RedisClusterConfiguration(nodes);
+                cluster.setPassword(password);
+                return cluster;
+            case MASTER_REPLICA:
+                String[] master = nodes.get(0).split(":");
+                RedisStaticMasterReplicaConfiguration masterReplica =
+                        new RedisStaticMasterReplicaConfiguration(master[0], Integer.parseInt(master[1]));
+                for (String node : nodes.subList(1, nodes.size())) {
+                    String[] replica = node.split(":");
+                    masterReplica.node(replica[0], Integer.parseInt(replica[1]));
+                }
+                masterReplica.setPassword(password);
+                masterReplica.setDatabase(redisProperties.getDatabase());
+                return masterReplica;
+            default:
+                RedisStandaloneConfiguration standalone = new RedisStandaloneConfiguration(redisProperties.getHost(),
+                        redisProperties.getPort());
+                standalone.setPassword(password);
+                standalone.setDatabase(redisProperties.getDatabase());
+                return standalone;
+        }
+    }
+
+    /**
+     * 与 spring boot 默认配置相同: spring.redis.timeout 及 spring.redis.lettuce.pool.*
+     */
+    private LettuceClientConfiguration clientConfiguration(ReadFrom readFrom) {
+        RedisProperties.Pool pool = redisProperties.getLettuce().getPool();
+        LettuceClientConfiguration.LettuceClientConfigurationBuilder builder;
+        if (pool != null) {
+            GenericObjectPoolConfig<?> poolConfig = new GenericObjectPoolConfig<>();
+            poolConfig.setMaxTotal(pool.getMaxActive());
+            poolConfig.setMaxIdle(pool.getMaxIdle());
+            poolConfig.setMinIdle(pool.getMinIdle());
+            if (pool.getMaxWait() != null) {
+                poolConfig.setMaxWaitMillis(pool.getMaxWait().toMillis());
+            }
+            builder = LettucePoolingClientConfiguration.builder().poolConfig(poolConfig);
+        } else {
+            builder = LettuceClientConfiguration.builder();
+        }
+        if (redisProperties.getTimeout() != null) {
+            builder.commandTimeout(redisProperties.getTimeout());
+        }
+        if (redisTopologyConfig.getMode() == RedisTopologyConfig.Mode.CLUSTER) {
+            // 集群节点变化(主从切换、槽位迁移)后自动刷新拓扑
+            builder.clientOptions(ClusterClientOptions.builder()
+                    .topologyRefreshOptions(ClusterTopologyRefreshOptions.builder().enableAllAdaptiveRefreshTriggers().build())
+                    .build());
+        }
+        return builder.clientResources(clientResources).readFrom(readFrom).build();
+    }
+}
@@ -0,0 +1,58 @@
+package com.springcache.redis.demo.config;
+
+import com.springcache.redis.demo.loadtest.DecrementStrategy;
+import lombok.Data;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.context.annotation.PropertySource;
+import org.springframework.stereotype.Component;
+
+/**
+ * 秒杀压测配置
+ */
+@Data
+@Component
+@PropertySource("classpath:loadtest.properties")
+@ConfigurationProperties(ignoreUnknownFields = false,
+        prefix = "loadtest")
+public class LoadTestConfig {
+    /**
+     * 是否定时执行压测
+     */
+    private boolean enabled = true;
+    /**
+     * 定时执行的cron表达式
+     */
+    private String cron = "0/5 * * * * ?";
+    /**
+     * 压测的减库存方式
+     */
+    private DecrementStrategy strategy = DecrementStrategy.JEDIS;
+    /**
+     * 并发数
+     */
+    private int concurrency = 20;
+    /**
+     * 每秒请求数上限, 0 表示不限制
+     */
+    private int ratePerSecond = 0;
+    /**
+     * 每次压测的请求总数, 0 表示不限制(以持续时间为准)
+     */
+    private long requests = 20;
+    /**
+     * 每次压测的持续时间(秒), 0 表示不限制(以请求总数为准)
+     */
+    private long durationSeconds = 0;
+    /**
+     * 运行在JDK21及以上时是否使用虚拟线程
+     */
+    private boolean virtualThreads = false;
+    /**
+     * 商品ID
+     */
+    private long productId = 1;
+    /**
+     * 每次购买数量
+     */
+    private int productQuantity = 1;
+}
@@ -0,0 +1,36 @@
+package com.springcache.redis.demo.config;
+
+import lombok.Data;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.context.annotation.PropertySource;
+import org.springframework.stereotype.Component;
+
+/**
+ * 分布式锁配置
+ */
+@Data
+@Component
+@PropertySource("classpath:lock.properties")
+@ConfigurationProperties(ignoreUnknownFields = false,
+        prefix = "lock")
+public class LockConfig {
+    /**
+     * 获取锁失败后首次等待的毫秒数, 之后每次翻倍
+     */
+    private long minBackoffMillis = 2;
+
+    /**
+     * 两次尝试之间最长等待的毫秒数
+     */
+    private long maxBackoffMillis = 64;
+
+    /**
+     * 是否在释放锁时发布消息唤醒等待者, 等待者不必等到退避时间结束
+     */
+    private boolean pubsubEnabled = true;
+
+    /**
+     * 是否在持有锁期间自动续期, 每隔 1/3 租期续期一次
+     */
+    private boolean watchdogEnabled = true;
+}
@@ -0,0 +1,112 @@
+package com.springcache.redis.demo.config;
+
+import com.springcache.redis.demo.cache.CacheChangeNotifier;
+import com.springcache.redis.demo.cache.CacheCodec;
+import com.springcache.redis.demo.cache.CacheCodecRedisSerializer;
+import com.springcache.redis.demo.cache.FstCacheCodec;
+import com.springcache.redis.demo.cache.HotKeyDetector;
+import com.springcache.redis.demo.cache.HotKeyRedisCacheWriter;
+import com.springcache.redis.demo.cache.HotKeyReplica;
+import com.springcache.redis.demo.cache.MeteredRedisCacheWriter;
+import com.springcache.redis.demo.cache.ReplicaReadRedisCacheWriter;
+import com.springcache.redis.demo.cache.TtlJitterRedisCacheWriter;
+import com.springcache.redis.demo.metrics.RedisMetrics;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.boot.context.properties.EnableConfigurationProperties;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.core.io.ResourceLoader;
+import org.springframework.data.redis.cache.RedisCacheConfiguration;
+import org.springframework.data.redis.cache.RedisCacheManager;
+import org.springframework.data.redis.cache.RedisCacheWriter;
+import org.springframework.data.redis.connection.RedisConnectionFactory;
+import org.springframework.data.redis.serializer.JdkSerializationRedisSerializer;
+import org.springframework.data.redis.serializer.RedisSerializationContext;
+import org.springframework.data.redis.serializer.RedisSerializer;
+
+import java.time.Duration;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Spring Cache(@Cacheable 等注解)使用的 RedisCacheManager
+ * 按 spring-cache.properties 为每个缓存设置过期时间及随机抖动, 缓存值默认使用 fst 编码, 比JDK序列化体积小;
+ * 读写redis时记录 redis.client.command、cache.gets、cache.value.size 指标
+ * 开启 redis.topology.read-from-replica 时, 配置了 read-from-replica 的缓存通过 replicaConnectionFactory 优先读取从节点,
+ * 其余缓存只读主节点; 热点KEY读取进程内副本
+ */
+@Configuration
+@EnableConfigurationProperties(SpringCacheConfig.class)
+public class RedisCacheAutoConfig {
+
+    private static final String JDK_CODEC = "jdk";
+
+    @Autowired
+    private RedisMetrics redisMetrics;
+
+    @Autowired
+    private SpringCacheConfig springCacheConfig;
+
+    @Autowired
+    private List<CacheCodec> codecList;
+
+    @Autowired
+    private HotKeyDetector hotKeyDetector;
+
+    @Autowired
+    private HotKeyReplica hotKeyReplica;
+
+    @Autowired
+    private CacheChangeNotifier cacheChangeNotifier;
+
+    @Bean
+    public RedisCacheManager cacheManager(RedisConnectionFactory redisConnectionFactory,
+                                          @Qualifier("replicaConnectionFactory") RedisConnectionFactory replicaConnectionFactory,
+                                          ResourceLoader resourceLoader) {
+        RedisCacheWriter cacheWriter = new MeteredRedisCacheWriter(new TtlJitterRedisCacheWriter(new ReplicaReadRedisCacheWriter(
+                RedisCacheWriter.nonLockingRedisCacheWriter(redisConnectionFactory),
+                RedisCacheWriter.nonLockingRedisCacheWriter(replicaConnectionFactory), springCacheConfig), springCacheConfig),
+                redisMetrics);
+        // 热点KEY命中进程内副本时不访问redis, 也不计入 redis 指标
+        cacheWriter = new HotKeyRedisCacheWriter(cacheWriter, hotKeyDetector, hotKeyReplica, cacheChangeNotifier,
+                springCacheConfig);
+        RedisSerializer<Object> valueSerializer = valueSerializer(resourceLoader.getClassLoader());
+        Map<String, RedisCacheConfiguration> cacheConfigurations = new HashMap<>();
+        springCacheConfig.getCaches().forEach((name, spec) ->
+                cacheConfigurations.put(name, cacheConfiguration(spec, valueSerializer)));
+        return RedisCacheManager.builder(cacheWriter)
+                .cacheDefaults(cacheConfiguration(springCacheConfig.getDefaults(), valueSerializer))
+                .withInitialCacheConfigurations(cacheConfigurations)
+                .build();
+    }
+
+    private RedisCacheConfiguration cacheConfiguration(SpringCacheConfig.CacheSpec spec, RedisSerializer<Object> valueSerializer) {
+        String keyPrefix = springCacheConfig.getKeyPrefix();
+        RedisCacheConfiguration configuration = RedisCacheConfiguration.defaultCacheConfig()
+                .computePrefixWith(cacheName -> keyPrefix + cacheName + "::")
+                .serializeValuesWith(RedisSerializationContext.SerializationPair.fromSerializer(valueSerializer))
+                .entryTtl(Duration.ofSeconds(spec.getTtlSeconds()));
+        return spec.isCacheNullValues() ? configuration : configuration.disableCachingNullValues();
+    }
+
+    /**
+     * 缓存值编解码, 读取时需要从字节还原类型
+     */
+    private RedisSerializer<Object> valueSerializer(ClassLoader classLoader) {
+        String codec = springCacheConfig.getCodec();
+        if (JDK_CODEC.equals(codec)) {
+            return new JdkSerializationRedisSerializer(classLoader);
+        }
+        if (!FstCacheCodec.NAME.equals(codec)) {
+            throw new IllegalArgumentException("Spring Cache 不支持的编解码->" + codec);
+        }
+        for (CacheCodec cacheCodec : codecList) {
+            if (cacheCodec.name().equals(codec)) {
+                return new CacheCodecRedisSerializer(cacheCodec);
+            }
+        }
+        throw new IllegalArgumentException("未找到编解码->" + codec);
+    }
+}
@@ -0,0 +1,57 @@
+package com.springcache.redis.demo.config;
+
+import lombok.Data;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.context.annotation.PropertySource;
+import org.springframework.stereotype.Component;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * redis 部署方式, Lettuce、Jedis、Redisson 三个客户端共用
+ * 单机模式下各客户端使用各自配置的地址(spring.redis.*, jedis.*, redission.*), 其他模式使用 nodes, 密码仍取各自配置。
+ */
+@Data
+@Component
+@PropertySource("classpath:topology.properties")
+@ConfigurationProperties(ignoreUnknownFields = false,
+        prefix = "redis.topology")
+public class RedisTopologyConfig {
+
+    public enum Mode {
+        //单机
+        STANDALONE,
+        //哨兵, nodes 为哨兵地址
+        SENTINEL,
+        //集群, nodes 为集群节点地址
+        CLUSTER,
+        //主从, nodes 第一个为主节点, 其余为从节点
+        MASTER_REPLICA
+    }
+
+    private Mode mode = Mode.STANDALONE;
+
+    /**
+     * 节点地址, 格式 host:port
+     */
+    private List<String> nodes = new ArrayList<>();
+
+    /**
+     * 哨兵模式的主节点名称
+     */
+    private String masterName;
+
+    /**
+     * 缓存读取(CacheTemplate、Spring Cache 的 GET)是否优先从从节点读取
+     * 写入和分布式锁始终访问主节点; 从节点有复制延迟, 刚写入的数据可能短时间内读不到
+     */
+    private boolean readFromReplica = false;
+
+    /**
+     * 当前模式是否有从节点可读
+     */
+    public boolean isReplicaReadable() {
+        return readFromReplica && mode != Mode.STANDALONE;
+    }
+}
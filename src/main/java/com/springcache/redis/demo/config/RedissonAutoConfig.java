@@ -3,11 +3,14 @@ package com.springcache.redis.demo.config;
 import org.redisson.Redisson;
 import org.redisson.api.RedissonClient;
 import org.redisson.config.Config;
+import org.redisson.config.ReadMode;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.boot.context.properties.EnableConfigurationProperties;
 import org.springframework.context.annotation.Bean;
 import org.springframework.context.annotation.Configuration;
 
+import java.util.Arrays;
+
 /**
  * # @EnableConfigurationProperties注解给出了该配置类所需要的配置信息类，也就是RedissionConfig类，
  * 这样spring容器才会去读取配置信息到RedissionConfig对象中。
@@ -19,60 +22,59 @@ public class RedissonAutoConfig {
     @Autowired
     private RedissionConfig redissionConfig;
 
+    @Autowired
+    private RedisTopologyConfig redisTopologyConfig;
+
     /**
-     * 单机模式配置
+     * 按 topology.properties 的部署方式配置, 单机模式使用 redission.host
+     * 分布式锁需要读到最新的值, 各模式均只从主节点读取
      *
      * @return
      */
     @Bean
     public RedissonClient getRedisson() {
         Config config = new Config();
-        config.useSingleServer()
-                .setAddress(redissionConfig.getHost())
-                .setPassword(redissionConfig.getPassword())
-                .setReconnectionTimeout(10000)
-                .setRetryInterval(5000)
-                .setTimeout(10000)
-                .setConnectTimeout(10000);
+        String[] nodes = redisTopologyConfig.getNodes().stream().map(node -> "redis://" + node).toArray(String[]::new);
+        switch (redisTopologyConfig.getMode()) {
+            case SENTINEL:
+                config.useSentinelServers()
+                        .setMasterName(redisTopologyConfig.getMasterName())
+                        .addSentinelAddress(nodes)
+                        .setReadMode(ReadMode.MASTER)
+                        .setPassword(redissionConfig.getPassword())
+                        .setRetryInterval(5000)
+                        .setTimeout(10000)
+                        .setConnectTimeout(10000);
+                break;
+            case CLUSTER:
+                config.useClusterServers()
+                        .addNodeAddress(nodes)
+                        .setReadMode(ReadMode.MASTER)
+                        .setPassword(redissionConfig.getPassword())
+                        .setRetryInterval(5000)
+                        .setTimeout(10000)
+                        .setConnectTimeout(10000);
+                break;
+            case MASTER_REPLICA:
+                config.useMasterSlaveServers()
+                        .setMasterAddress(nodes[0])
+                        .addSlaveAddress(Arrays.copyOfRange(nodes, 1, nodes.length))
+                        .setReadMode(ReadMode.MASTER)
+                        .setPassword(redissionConfig.getPassword())
+                        .setRetryInterval(5000)
+                        .setTimeout(10000)
+                        .setConnectTimeout(10000);
+                break;
+            default:
+                // 单机模式配置
+                config.useSingleServer()
+                        .setAddress(redissionConfig.getHost())
+                        .setPassword(redissionConfig.getPassword())
+                        .setReconnectionTimeout(10000)
+                        .setRetryInterval(5000)
+                        .setTimeout(10000)
+                        .setConnectTimeout(10000);
+        }
         return Redisson.create(config);
     }
-
-
-    /*
-    @Bean
-    public RedissonClient getRedisson() {
-        RedissonClient redisson;
-        Config config = new Config();
-
-        //主从模式
-        config.useMasterSlaveServers()
-                //可以用"rediss://"来启用SSL连接
-                .setMasterAddress("redis://***(主服务器IP):6379")
-                .setPassword("web2017")
-                .addSlaveAddress("redis://***（从服务器IP）:6379")
-                .setReconnectionTimeout(10000)
-                .setRetryInterval(5000)
-                .setTimeout(10000)
-                .setConnectTimeout(10000);//（连接超时，单位：毫秒 默认值：3000）;
-
-        // 哨兵模式
-        config.useSentinelServers()
-                .setMasterName("mymaster")
-                .setPassword("web2017")
-                .addSentinelAddress("***(哨兵IP):26379", "***(哨兵IP):26379", "***(哨兵IP):26380");
-
-
-        //集群模式
-        config.useClusterServers()
-                .addNodeAddress("redis://服务器IP:7001")
-                .addNodeAddress("redis://服务器IP:7002")
-                .addNodeAddress("redis://服务器IP:7003")
-                .addNodeAddress("redis://服务器IP:7001")
-                .addNodeAddress("redis://服务器IP:7002")
-                .addNodeAddress("redis://服务器IP:7003");
-
-        redisson = Redisson.create(config);
-
-        return redisson;
-    }*/
 }
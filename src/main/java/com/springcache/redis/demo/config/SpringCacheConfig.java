@@ -0,0 +1,107 @@
+package com.springcache.redis.demo.config;
+
+import lombok.AccessLevel;
+import lombok.Data;
+import lombok.EqualsAndHashCode;
+import lombok.Getter;
+import lombok.Setter;
+import lombok.ToString;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.context.annotation.PropertySource;
+import org.springframework.core.env.Environment;
+import org.springframework.stereotype.Component;
+
+import javax.annotation.PostConstruct;
+import java.util.HashMap;
+import java.util.Map;
+
+/**
+ * Spring Cache(@Cacheable 等注解)的 RedisCacheManager 配置
+ * 未在 caches 中单独配置的缓存使用 defaults 中的配置, 单独配置的缓存未配置的字段也继承 defaults
+ */
+@Data
+@Component
+@PropertySource("classpath:spring-cache.properties")
+@ConfigurationProperties(ignoreUnknownFields = false,
+        prefix = "spring-cache")
+public class SpringCacheConfig {
+    /**
+     * KEY 前缀, 完整的KEY为 前缀 + 缓存名称 + :: + KEY
+     */
+    private String keyPrefix = "sc:";
+
+    /**
+     * 缓存值编解码: fst(二进制, 体积小) / jdk(JDK序列化)
+     * 缓存值需要自带类型信息才能还原, fastjson 不适用
+     */
+    private String codec = "fst";
+
+    /**
+     * 默认缓存配置
+     */
+    private CacheSpec defaults = new CacheSpec();
+
+    /**
+     * 按缓存名称单独配置, 如: spring-cache.caches[productInfoCache].ttl-seconds=600
+     * 未单独配置的字段继承 defaults
+     */
+    private Map<String, CacheSpec> caches = new HashMap<>();
+
+    //只用于合并配置, 不作为配置项
+    @Autowired
+    @Getter(AccessLevel.NONE)
+    @Setter(AccessLevel.NONE)
+    @ToString.Exclude
+    @EqualsAndHashCode.Exclude
+    private Environment environment;
+
+    /**
+     * 绑定完成后, 以 defaults 为基础合并各缓存的单独配置
+     */
+    @PostConstruct
+    public void init() {
+        caches = CacheSpecs.inheritDefaults(environment, "spring-cache", defaults, caches, CacheSpec::new);
+    }
+
+    /**
+     * 获取指定缓存的配置
+     *
+     * @param cacheName 缓存名称
+     * @return 缓存配置
+     */
+    public CacheSpec getSpec(String cacheName) {
+        CacheSpec spec = caches.get(cacheName);
+        return spec != null ? spec : defaults;
+    }
+
+    @Data
+    public static class CacheSpec {
+        /**
+         * 过期时间(秒), 0 表示永不过期
+         */
+        private long ttlSeconds = 3600;
+        /**
+         * 是否缓存空值(方法返回null)
+         */
+        private boolean cacheNullValues = true;
+        /**
+         * 过期时间随机抖动, 按过期时间的百分比, 0 表示不抖动
+         */
+        private int ttlJitterPercent = 0;
+        /**
+         * 过期时间随机抖动, 固定窗口(秒), 与百分比同时配置时相加
+         */
+        private long ttlJitterSeconds = 0;
+        /**
+         * 是否探测热点KEY并保存进程内副本, 需要 cache.hot-key-enabled 同时开启
+         * 副本可能短暂落后于redis, 在分布式锁内读取后回写的缓存应关闭
+         */
+        private boolean hotKeyEnabled = true;
+        /**
+         * 开启 redis.topology.read-from-replica 时是否从从节点读取, 默认只读主节点
+         * 从节点有复制延迟, 在分布式锁内读取后回写的缓存不能开启
+         */
+        private boolean readFromReplica = false;
+    }
+}
@@ -0,0 +1,30 @@
+package com.springcache.redis.demo.config;
+
+import com.springcache.redis.demo.metrics.RedisMetrics;
+import com.springcache.redis.demo.stock.IdempotencyStore;
+import com.springcache.redis.demo.stock.RedisIdempotencyStore;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.context.properties.EnableConfigurationProperties;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.data.redis.core.StringRedisTemplate;
+
+/**
+ * 秒杀库存相关组件, 按 stock.properties 选择实现
+ */
+@Configuration
+@EnableConfigurationProperties(StockConfig.class)
+public class StockAutoConfig {
+
+    @Autowired
+    private StockConfig stockConfig;
+
+    /**
+     * 已购用户记录, 加锁扣减和Lua扣减必须使用同一份记录, 因此只使用 redis 已购用户集合;
+     * 本地记录由 PurchaseFilter 在其前面过滤已知的重复购买
+     */
+    @Bean
+    public IdempotencyStore idempotencyStore(StringRedisTemplate redisTemplate, RedisMetrics redisMetrics) {
+        return new RedisIdempotencyStore(redisTemplate, stockConfig, redisMetrics);
+    }
+}
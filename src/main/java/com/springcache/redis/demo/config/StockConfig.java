@@ -0,0 +1,76 @@
+package com.springcache.redis.demo.config;
+
+import lombok.Data;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.context.annotation.PropertySource;
+import org.springframework.stereotype.Component;
+
+import java.util.HashMap;
+import java.util.Map;
+
+/**
+ * redis 库存配置
+ */
+@Data
+@Component
+@PropertySource("classpath:stock.properties")
+@ConfigurationProperties(ignoreUnknownFields = false,
+        prefix = "stock")
+public class StockConfig {
+    /**
+     * 默认库存分段数
+     */
+    private int defaultSegments = 1;
+
+    /**
+     * 热点商品单独配置分段数, 如: stock.segments[1]=8
+     * 库存初始化后不能再修改分段数
+     */
+    private Map<Long, Integer> segments = new HashMap<>();
+
+    /**
+     * redis 已购用户集合在最后一次写入后的过期秒数, 0 表示不过期
+     */
+    private long purchasedTtlSeconds = 7 * 24 * 3600;
+
+    /**
+     * 是否在本地记录已知购买过的用户, 重复点击的用户不加锁也不访问redis
+     */
+    private boolean purchaseFilterEnabled = true;
+
+    /**
+     * 每个商品本地最多记录的用户数, 达到后不再记录
+     */
+    private int purchaseFilterMaxUsers = 100000;
+
+    /**
+     * 是否在扣减库存前检查本地售罄标记和准入令牌桶, 不能通过的请求不访问redis
+     */
+    private boolean guardEnabled = true;
+
+    /**
+     * 令牌桶容量 = 剩余库存 * admission-multiplier, 不小于 admission-min-tokens
+     */
+    private int admissionMultiplier = 2;
+
+    /**
+     * 令牌桶最小容量
+     */
+    private int admissionMinTokens = 10;
+
+    /**
+     * 令牌桶每秒补充的令牌数
+     */
+    private int admissionRefillPerSecond = 200;
+
+    /**
+     * 获取商品的库存分段数
+     *
+     * @param productId 商品ID
+     * @return 分段数
+     */
+    public int getSegments(long productId) {
+        Integer count = segments.get(productId);
+        return count != null && count > 0 ? count : Math.max(1, defaultSegments);
+    }
+}
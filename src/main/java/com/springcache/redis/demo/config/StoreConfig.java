@@ -0,0 +1,36 @@
+package com.springcache.redis.demo.config;
+
+import lombok.Data;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.context.annotation.PropertySource;
+import org.springframework.stereotype.Component;
+
+/**
+ * 本地实体存储配置
+ */
+@Data
+@Component
+@PropertySource("classpath:store.properties")
+@ConfigurationProperties(ignoreUnknownFields = false,
+        prefix = "store")
+public class StoreConfig {
+    /**
+     * 分段数, 向上取2的幂, 写入只锁一个分段
+     */
+    private int stripes = 16;
+
+    /**
+     * 每个存储预计的实体数量, 用于确定初始容量
+     */
+    private int expectedSize = 1024;
+
+    /**
+     * 是否将值编码后存放在堆外内存, 关闭时值为堆内对象
+     */
+    private boolean offHeap = false;
+
+    /**
+     * 堆外存储的编解码: fst / fastjson
+     */
+    private String codec = "fst";
+}
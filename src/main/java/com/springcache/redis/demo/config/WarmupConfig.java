@@ -0,0 +1,73 @@
+package com.springcache.redis.demo.config;
+
+import lombok.Data;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.context.annotation.PropertySource;
+import org.springframework.stereotype.Component;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * 缓存预热配置
+ */
+@Data
+@Component
+@PropertySource("classpath:warmup.properties")
+@ConfigurationProperties(ignoreUnknownFields = false,
+        prefix = "warmup")
+public class WarmupConfig {
+    /**
+     * 是否在启动时预热, 预热完成后应用才就绪
+     */
+    private boolean enabled = true;
+
+    /**
+     * 并行加载的线程数, 所有缓存共用
+     */
+    private int parallelism = 4;
+
+    /**
+     * 每批加载的ID数量, 一批数据以管道方式一次写入
+     */
+    private int batchSize = 100;
+
+    /**
+     * 预热最长时间(秒), 超时后放弃剩余批次, 应用照常启动
+     */
+    private long timeoutSeconds = 60;
+
+    /**
+     * 是否记录访问次数最多的ID, 供下次启动预热
+     */
+    private boolean recordEnabled = true;
+
+    /**
+     * 每个缓存最多记录的ID数量
+     */
+    private int recordMaxKeys = 10000;
+
+    /**
+     * 访问次数写入redis的间隔(秒)
+     */
+    private long recordIntervalSeconds = 60;
+
+    /**
+     * 按缓存名称配置预热的ID, 只预热已配置且已注册加载方式的缓存
+     */
+    private Map<String, WarmupSpec> caches = new HashMap<>();
+
+    @Data
+    public static class WarmupSpec {
+        /**
+         * 固定预热的ID
+         */
+        private List<String> ids = new ArrayList<>();
+        /**
+         * 另外预热上次运行记录的访问次数最多的前N个ID, 0 表示不使用
+         */
+        private int topN = 0;
+    }
+}
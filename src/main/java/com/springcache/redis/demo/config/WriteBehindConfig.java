@@ -0,0 +1,41 @@
+package com.springcache.redis.demo.config;
+
+import lombok.Data;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.context.annotation.PropertySource;
+import org.springframework.stereotype.Component;
+
+/**
+ * 延迟写入(write-behind)配置
+ */
+@Data
+@Component
+@PropertySource("classpath:writebehind.properties")
+@ConfigurationProperties(ignoreUnknownFields = false,
+        prefix = "write-behind")
+public class WriteBehindConfig {
+    /**
+     * 是否延迟写入, 关闭时更新直接写入存储
+     */
+    private boolean enabled = true;
+
+    /**
+     * 每批写入存储的最大KEY数量, 同一KEY的多次更新合并为最后一次
+     */
+    private int batchSize = 100;
+
+    /**
+     * 两次写入之间的间隔(毫秒)
+     */
+    private long flushIntervalMillis = 1000;
+
+    /**
+     * 一批写入失败后的最大重试次数, 仍失败则保留在redis中等下一次写入
+     */
+    private int maxRetries = 3;
+
+    /**
+     * 重试的初始等待时间(毫秒), 每次翻倍
+     */
+    private long retryBackoffMillis = 200;
+}
@@ -0,0 +1,69 @@
+package com.springcache.redis.demo.controller;
+
+import com.springcache.redis.demo.cache.CacheStats;
+import com.springcache.redis.demo.cache.HotKey;
+import com.springcache.redis.demo.cache.HotKeyDetector;
+import com.springcache.redis.demo.response.Result;
+import com.springcache.redis.demo.utils.ResultUtil;
+import com.springcache.redis.demo.warmup.CacheWarmup;
+import com.springcache.redis.demo.warmup.WarmupReport;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.web.bind.annotation.RequestMapping;
+import org.springframework.web.bind.annotation.RequestMethod;
+import org.springframework.web.bind.annotation.RestController;
+
+import java.util.List;
+import java.util.Map;
+
+@RestController
+@RequestMapping("api/cache")
+public class CacheController {
+    @Autowired
+    private CacheStats cacheStats;
+
+    @Autowired
+    private CacheWarmup cacheWarmup;
+
+    @Autowired
+    private HotKeyDetector hotKeyDetector;
+
+    /**
+     * 缓存命中统计
+     *
+     * @return 缓存名称 -> 各级缓存命中/未命中次数
+     */
+    @RequestMapping(value = "/stats", method = RequestMethod.GET)
+    public Result<Map<String, Map<String, Long>>> stats() {
+        return ResultUtil.success(cacheStats.snapshot());
+    }
+
+    /**
+     * 当前的热点KEY
+     *
+     * @return 按滑动窗口内估计读取次数从高到低
+     */
+    @RequestMapping(value = "/hot-keys", method = RequestMethod.GET)
+    public Result<List<HotKey>> hotKeys() {
+        return ResultUtil.success(hotKeyDetector.getHotKeys());
+    }
+
+    /**
+     * 最近一次缓存预热的报告
+     *
+     * @return 各缓存的预热ID数、写入条数、批次及耗时
+     */
+    @RequestMapping(value = "/warmup", method = RequestMethod.GET)
+    public Result<List<WarmupReport>> warmupReports() {
+        return ResultUtil.success(cacheWarmup.getLastReports());
+    }
+
+    /**
+     * 重新预热, 阻塞到完成或超时
+     *
+     * @return 各缓存的预热报告
+     */
+    @RequestMapping(value = "/warmup", method = RequestMethod.POST)
+    public Result<List<WarmupReport>> warmup() {
+        return ResultUtil.success(cacheWarmup.warmup());
+    }
+}
@@ -0,0 +1,42 @@
+package com.springcache.redis.demo.controller;
+
+import com.springcache.redis.demo.config.LoadTestConfig;
+import com.springcache.redis.demo.loadtest.DecrementStrategy;
+import com.springcache.redis.demo.loadtest.LoadGenerator;
+import com.springcache.redis.demo.loadtest.LoadReport;
+import com.springcache.redis.demo.response.Result;
+import com.springcache.redis.demo.utils.ResultUtil;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.web.bind.annotation.*;
+
+@RestController
+@RequestMapping("api/loadtest")
+public class LoadTestController {
+    @Autowired
+    private LoadGenerator loadGenerator;
+
+    @Autowired
+    private LoadTestConfig loadTestConfig;
+
+    /**
+     * 开始一次压测
+     *
+     * @param strategy 减库存方式, 不传使用配置的方式
+     * @return 是否已开始
+     */
+    @RequestMapping(value = "/run", method = RequestMethod.POST)
+    public Result<Boolean> run(@RequestParam(required = false) DecrementStrategy strategy) {
+        boolean started = loadGenerator.start(strategy != null ? strategy : loadTestConfig.getStrategy());
+        return started ? ResultUtil.success(true) : ResultUtil.failure("LOADTEST-RUNNING", "上一次压测尚未结束");
+    }
+
+    /**
+     * 最近一次压测报告
+     *
+     * @return 压测报告
+     */
+    @RequestMapping(value = "/report", method = RequestMethod.GET)
+    public Result<LoadReport> report() {
+        return ResultUtil.success(loadGenerator.getLastReport());
+    }
+}
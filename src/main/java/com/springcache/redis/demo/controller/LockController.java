@@ -0,0 +1,42 @@
+package com.springcache.redis.demo.controller;
+
+import com.springcache.redis.demo.lock.JedisDistributedLock;
+import com.springcache.redis.demo.response.Result;
+import com.springcache.redis.demo.utils.JedisUtil;
+import com.springcache.redis.demo.utils.ResultUtil;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.web.bind.annotation.RequestMapping;
+import org.springframework.web.bind.annotation.RequestMethod;
+import org.springframework.web.bind.annotation.RestController;
+
+import java.util.Map;
+
+@RestController
+@RequestMapping("api/lock")
+public class LockController {
+    @Autowired
+    private JedisDistributedLock jedisDistributedLock;
+
+    @Autowired
+    private JedisUtil jedisUtil;
+
+    /**
+     * jedis 分布式锁统计
+     *
+     * @return 加锁成功/失败次数及每次加锁尝试SET的次数
+     */
+    @RequestMapping(value = "/stats", method = RequestMethod.GET)
+    public Result<Map<String, Number>> stats() {
+        return ResultUtil.success(jedisDistributedLock.getStats());
+    }
+
+    /**
+     * jedis 连接池状态
+     *
+     * @return 借出/空闲连接数, 等待线程数及借用等待时间
+     */
+    @RequestMapping(value = "/jedis-pool", method = RequestMethod.GET)
+    public Result<Map<String, Number>> jedisPool() {
+        return ResultUtil.success(jedisUtil.getPoolStats());
+    }
+}
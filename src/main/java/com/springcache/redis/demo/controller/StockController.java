@@ -0,0 +1,72 @@
+package com.springcache.redis.demo.controller;
+
+import com.springcache.redis.demo.entity.ProductInfo;
+import com.springcache.redis.demo.response.Result;
+import com.springcache.redis.demo.service.ProductInfoService;
+import com.springcache.redis.demo.stock.PurchaseFilter;
+import com.springcache.redis.demo.stock.RedisStock;
+import com.springcache.redis.demo.stock.StockGuard;
+import com.springcache.redis.demo.utils.ResultUtil;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.web.bind.annotation.RequestMapping;
+import org.springframework.web.bind.annotation.RequestMethod;
+import org.springframework.web.bind.annotation.RequestParam;
+import org.springframework.web.bind.annotation.RestController;
+
+import java.util.Map;
+
+@RestController
+@RequestMapping("api/stock")
+public class StockController {
+    @Autowired
+    private ProductInfoService productInfoService;
+
+    @Autowired
+    private RedisStock redisStock;
+
+    @Autowired
+    private StockGuard stockGuard;
+
+    @Autowired
+    private PurchaseFilter purchaseFilter;
+
+    /**
+     * 补货: 更新商品库存和redis库存, 清除所有节点的售罄标记
+     *
+     * @param productId 商品ID
+     * @param stock     新库存
+     * @return 更新后的商品信息
+     */
+    @RequestMapping(value = "/restock", method = RequestMethod.POST)
+    public Result<ProductInfo> restock(@RequestParam Long productId, @RequestParam Integer stock) {
+        ProductInfo productInfo = productInfoService.selectByPrimaryKey(productId);
+        if (productInfo == null) {
+            return ResultUtil.failure("PRODUCT-NOT-FOUND", "商品不存在");
+        }
+        productInfo.setProductStock(stock);
+        productInfoService.updateByPrimaryKey(productInfo);
+        redisStock.reset(productId, stock);
+        stockGuard.restock(productId, stock);
+        return ResultUtil.success(productInfo);
+    }
+
+    /**
+     * 秒杀准入统计
+     *
+     * @return 商品ID -> 售罄标记, 令牌桶容量及放行/拒绝次数
+     */
+    @RequestMapping(value = "/guard", method = RequestMethod.GET)
+    public Result<Map<Long, Map<String, Object>>> guard() {
+        return ResultUtil.success(stockGuard.getStats());
+    }
+
+    /**
+     * 本地已购用户过滤统计
+     *
+     * @return 直接拒绝的次数及各商品本地记录的用户数
+     */
+    @RequestMapping(value = "/purchase-filter", method = RequestMethod.GET)
+    public Result<Map<String, Object>> purchaseFilter() {
+        return ResultUtil.success(purchaseFilter.getStats());
+    }
+}
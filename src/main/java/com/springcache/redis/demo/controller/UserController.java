@@ -7,6 +7,9 @@ import com.springcache.redis.demo.service.UserService;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.web.bind.annotation.*;
 
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+
 @RestController
 @RequestMapping("api/user")
 public class UserController {
@@ -37,6 +40,40 @@ public class UserController {
         return ResultUtil.success(result);
     }
 
+    /**
+     * 批量获取
+     *
+     * @param ids key值, 如: /batch?ids=10001,10002
+     * @return 返回结果
+     */
+    @RequestMapping(value = "/batch", method = RequestMethod.GET)
+    public Result<List<User>> batch(@RequestParam List<Long> ids) {
+        List<User> result = userService.getAll(ids);
+        return ResultUtil.success(result);
+    }
+
+    /**
+     * 异步获取, 等待缓存和分布式锁期间不占用请求线程
+     *
+     * @param id key值
+     * @return 返回结果
+     */
+    @RequestMapping(value = "/async/get/{id}", method = RequestMethod.GET)
+    public CompletableFuture<Result<User>> getAsync(@PathVariable Long id) {
+        return userService.getAsync(id).thenApply(ResultUtil::success);
+    }
+
+    /**
+     * 异步批量获取
+     *
+     * @param ids key值, 如: /async/batch?ids=10001,10002
+     * @return 返回结果
+     */
+    @RequestMapping(value = "/async/batch", method = RequestMethod.GET)
+    public CompletableFuture<Result<List<User>>> batchAsync(@RequestParam List<Long> ids) {
+        return userService.getAllAsync(ids).thenApply(ResultUtil::success);
+    }
+
     /**
      * 删除
      *
@@ -0,0 +1,39 @@
+package com.springcache.redis.demo.controller;
+
+import com.springcache.redis.demo.response.Result;
+import com.springcache.redis.demo.utils.ResultUtil;
+import com.springcache.redis.demo.writebehind.WriteBehindManager;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.web.bind.annotation.RequestMapping;
+import org.springframework.web.bind.annotation.RequestMethod;
+import org.springframework.web.bind.annotation.RestController;
+
+import java.util.Map;
+
+@RestController
+@RequestMapping("api/write-behind")
+public class WriteBehindController {
+    @Autowired
+    private WriteBehindManager writeBehindManager;
+
+    /**
+     * 延迟写入统计
+     *
+     * @return 存储名称 -> 提交次数, 写入KEY数量, 批次, 重试/失败次数及待写入数量
+     */
+    @RequestMapping(value = "/stats", method = RequestMethod.GET)
+    public Result<Map<String, Map<String, Number>>> stats() {
+        return ResultUtil.success(writeBehindManager.getStats());
+    }
+
+    /**
+     * 立即写入所有待写入的更新
+     *
+     * @return 写入后的统计
+     */
+    @RequestMapping(value = "/flush", method = RequestMethod.POST)
+    public Result<Map<String, Map<String, Number>>> flush() {
+        writeBehindManager.flushAll();
+        return ResultUtil.success(writeBehindManager.getStats());
+    }
+}
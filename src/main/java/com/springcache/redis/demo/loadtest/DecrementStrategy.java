@@ -0,0 +1,65 @@
+package com.springcache.redis.demo.loadtest;
+
+import com.springcache.redis.demo.lock.BusinessTask;
+import com.springcache.redis.demo.stock.StockResult;
+
+/**
+ * 压测的减库存方式, 对应 BusinessTask 的各个 decrementProductStore 方法
+ */
+public enum DecrementStrategy {
+    /**
+     * Redisson tryLock()
+     */
+    TRY_LOCK {
+        @Override
+        public StockResult execute(BusinessTask businessTask, Long productId, Integer productQuantity) {
+            return businessTask.decrementProductStoreTryLock(productId, productQuantity);
+        }
+    },
+    /**
+     * Redisson lock()
+     */
+    LOCK {
+        @Override
+        public StockResult execute(BusinessTask businessTask, Long productId, Integer productQuantity) {
+            return businessTask.decrementProductStoreLock(productId, productQuantity);
+        }
+    },
+    /**
+     * RedisTemplate SETNX 分布式锁
+     */
+    REDIS_TEMPLATE {
+        @Override
+        public StockResult execute(BusinessTask businessTask, Long productId, Integer productQuantity) {
+            return businessTask.decrementProductStore(productId, productQuantity);
+        }
+    },
+    /**
+     * Jedis SET NX PX 分布式锁
+     */
+    JEDIS {
+        @Override
+        public StockResult execute(BusinessTask businessTask, Long productId, Integer productQuantity) {
+            return businessTask.decrementProductStoreJedis(productId, productQuantity);
+        }
+    },
+    /**
+     * Lua 脚本原子扣减, 不加锁
+     */
+    LUA {
+        @Override
+        public StockResult execute(BusinessTask businessTask, Long productId, Integer productQuantity) {
+            return businessTask.decrementProductStoreLua(productId, productQuantity);
+        }
+    };
+
+    /**
+     * 执行一次减库存
+     *
+     * @param businessTask    秒杀业务
+     * @param productId       商品ID
+     * @param productQuantity 购买数量
+     * @return 扣减结果
+     */
+    public abstract StockResult execute(BusinessTask businessTask, Long productId, Integer productQuantity);
+}
@@ -0,0 +1,249 @@
+package com.springcache.redis.demo.loadtest;
+
+import com.alibaba.fastjson.JSON;
+import com.springcache.redis.demo.config.LoadTestConfig;
+import com.springcache.redis.demo.lock.BusinessTask;
+import com.springcache.redis.demo.stock.StockResult;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.scheduling.concurrent.CustomizableThreadFactory;
+import org.springframework.stereotype.Component;
+
+import javax.annotation.PreDestroy;
+import java.lang.reflect.Method;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.EnumMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.concurrent.locks.LockSupport;
+
+/**
+ * 秒杀压测
+ * 固定数量的工作线程循环调用减库存方法, 按配置限制请求总数、持续时间和每秒请求数,
+ * 结束后汇总吞吐量、各扣减结果次数及延迟分位数。同一时间只运行一次压测。
+ */
+@Slf4j
+@Component
+public class LoadGenerator {
+
+    @Autowired
+    private BusinessTask businessTask;
+
+    @Autowired
+    private LoadTestConfig loadTestConfig;
+
+    //压测协调线程, 不占用定时任务线程
+    private final ExecutorService coordinator = Executors.newSingleThreadExecutor(new CustomizableThreadFactory("loadtest-"));
+
+    private final AtomicBoolean running = new AtomicBoolean(false);
+
+    private volatile LoadReport lastReport;
+
+    @PreDestroy
+    public void destroy() {
+        coordinator.shutdownNow();
+    }
+
+    /**
+     * 异步开始一次压测
+     *
+     * @param strategy 减库存方式
+     * @return 上一次压测尚未结束时返回false
+     */
+    public boolean start(DecrementStrategy strategy) {
+        if (!running.compareAndSet(false, true)) {
+            log.warn("上一次压测尚未结束, 忽略本次压测");
+            return false;
+        }
+        try {
+            coordinator.execute(() -> {
+                try {
+                    lastReport = run(strategy);
+                } catch (Exception ex) {
+                    log.error("压测异常->" + ex.getMessage());
+                } finally {
+                    running.set(false);
+                }
+            });
+            return true;
+        } catch (RejectedExecutionException ex) {
+            running.set(false);
+            return false;
+        }
+    }
+
+    /**
+     * 最近一次压测报告
+     *
+     * @return 尚未压测时返回null
+     */
+    public LoadReport getLastReport() {
+        return lastReport;
+    }
+
+    /**
+     * 执行一次压测, 阻塞直到结束
+     *
+     * @param strategy 减库存方式
+     * @return 压测报告
+     */
+    public LoadReport run(DecrementStrategy strategy) throws Exception {
+        int concurrency = Math.max(1, loadTestConfig.getConcurrency());
+        long requests = loadTestConfig.getRequests();
+        long durationNanos = TimeUnit.SECONDS.toNanos(loadTestConfig.getDurationSeconds());
+        if (requests <= 0 && durationNanos <= 0) {
+            // 两者都不限制时只执行一轮, 防止压测无法结束
+            requests = concurrency;
+        }
+        long intervalNanos = loadTestConfig.getRatePerSecond() > 0 ? TimeUnit.SECONDS.toNanos(1) / loadTestConfig.getRatePerSecond() : 0;
+        Long productId = loadTestConfig.getProductId();
+        Integer productQuantity = loadTestConfig.getProductQuantity();
+
+        AtomicLong remaining = new AtomicLong(requests > 0 ? requests : Long.MAX_VALUE);
+        Map<StockResult, LongAdder> counts = new EnumMap<>(StockResult.class);
+        for (StockResult result : StockResult.values()) {
+            counts.put(result, new LongAdder());
+        }
+
+        long startTime = System.currentTimeMillis();
+        long start = System.nanoTime();
+        long deadline = durationNanos > 0 ? start + durationNanos : Long.MAX_VALUE;
+        AtomicLong nextSlot = new AtomicLong(start);
+
+        ExecutorService workers = newWorkers(concurrency);
+        List<Future<long[]>> futures = new ArrayList<>(concurrency);
+        try {
+            for (int i = 0; i < concurrency; i++) {
+                futures.add(workers.submit(() -> {
+                    LongList latencies = new LongList();
+                    while (System.nanoTime() < deadline && remaining.getAndDecrement() > 0) {
+                        if (intervalNanos > 0) {
+                            // 按固定间隔分配请求时间片, 实现每秒请求数上限
+                            long slot = nextSlot.getAndAdd(intervalNanos);
+                            if (slot >= deadline) {
+                                break;
+                            }
+                            long wait = slot - System.nanoTime();
+                            if (wait > 0) {
+                                LockSupport.parkNanos(wait);
+                            }
+                        }
+                        long begin = System.nanoTime();
+                        StockResult result;
+                        try {
+                            result = strategy.execute(businessTask, productId, productQuantity);
+                        } catch (Exception ex) {
+                            result = StockResult.ERROR;
+                        }
+                        latencies.add(System.nanoTime() - begin);
+                        counts.get(result == null ? StockResult.ERROR : result).increment();
+                    }
+                    return latencies.toArray();
+                }));
+            }
+            List<long[]> results = new ArrayList<>(concurrency);
+            for (Future<long[]> future : futures) {
+                results.add(future.get());
+            }
+            LoadReport report = buildReport(strategy, concurrency, startTime, System.nanoTime() - start, results, counts);
+            log.info("压测完成->" + JSON.toJSONString(report));
+            return report;
+        } finally {
+            workers.shutdownNow();
+        }
+    }
+
+    /**
+     * 创建工作线程池, 配置使用虚拟线程且运行在JDK21及以上时每个任务一个虚拟线程
+     */
+    private ExecutorService newWorkers(int concurrency) {
+        if (loadTestConfig.isVirtualThreads()) {
+            try {
+                Method method = Executors.class.getMethod("newVirtualThreadPerTaskExecutor");
+                return (ExecutorService) method.invoke(null);
+            } catch (ReflectiveOperationException ex) {
+                log.warn("当前JDK不支持虚拟线程, 使用平台线程");
+            }
+        }
+        return new ThreadPoolExecutor(concurrency, concurrency, 0, TimeUnit.MILLISECONDS,
+                new LinkedBlockingQueue<>(concurrency), new CustomizableThreadFactory("loadtest-worker-"));
+    }
+
+    private LoadReport buildReport(DecrementStrategy strategy, int concurrency, long startTime, long elapsedNanos,
+                                   List<long[]> results, Map<StockResult, LongAdder> counts) {
+        int total = 0;
+        for (long[] latencies : results) {
+            total += latencies.length;
+        }
+        long[] all = new long[total];
+        int offset = 0;
+        for (long[] latencies : results) {
+            System.arraycopy(latencies, 0, all, offset, latencies.length);
+            offset += latencies.length;
+        }
+        Arrays.sort(all);
+
+        Map<String, Long> resultCounts = new LinkedHashMap<>();
+        counts.forEach((result, count) -> resultCounts.put(result.name(), count.sum()));
+        long success = counts.get(StockResult.SUCCESS).sum();
+
+        LoadReport report = new LoadReport();
+        report.setStrategy(strategy);
+        report.setConcurrency(concurrency);
+        report.setStartTime(startTime);
+        report.setDurationMillis(TimeUnit.NANOSECONDS.toMillis(elapsedNanos));
+        report.setRequests(total);
+        report.setThroughput(elapsedNanos > 0 ? total * 1e9 / elapsedNanos : 0);
+        report.setSuccess(success);
+        report.setFailure(total - success);
+        report.setResults(resultCounts);
+        report.setP50Millis(percentile(all, 0.5));
+        report.setP90Millis(percentile(all, 0.9));
+        report.setP99Millis(percentile(all, 0.99));
+        report.setP999Millis(percentile(all, 0.999));
+        report.setMaxMillis(total > 0 ? all[total - 1] / 1e6 : 0);
+        return report;
+    }
+
+    /**
+     * 已排序延迟的分位数(毫秒)
+     */
+    private static double percentile(long[] sorted, double percentile) {
+        if (sorted.length == 0) {
+            return 0;
+        }
+        int index = (int) Math.ceil(percentile * sorted.length) - 1;
+        return sorted[Math.max(0, index)] / 1e6;
+    }
+
+    /**
+     * 工作线程各自记录延迟, 避免装箱
+     */
+    private static class LongList {
+        private long[] values = new long[1024];
+        private int size;
+
+        void add(long value) {
+            if (size == values.length) {
+                values = Arrays.copyOf(values, size << 1);
+            }
+            values[size++] = value;
+        }
+
+        long[] toArray() {
+            return Arrays.copyOf(values, size);
+        }
+    }
+}
@@ -0,0 +1,56 @@
+package com.springcache.redis.demo.loadtest;
+
+import lombok.Data;
+
+import java.util.Map;
+
+/**
+ * 一次压测的汇总报告
+ */
+@Data
+public class LoadReport {
+    /**
+     * 减库存方式
+     */
+    private DecrementStrategy strategy;
+    /**
+     * 并发数
+     */
+    private int concurrency;
+    /**
+     * 开始时间
+     */
+    private long startTime;
+    /**
+     * 耗时(毫秒)
+     */
+    private long durationMillis;
+    /**
+     * 请求总数
+     */
+    private long requests;
+    /**
+     * 每秒请求数
+     */
+    private double throughput;
+    /**
+     * 成功数(抢到商品)
+     */
+    private long success;
+    /**
+     * 失败数(未抢到、重复购买、获取锁失败、异常)
+     */
+    private long failure;
+    /**
+     * 各扣减结果的次数
+     */
+    private Map<String, Long> results;
+    /**
+     * 延迟(毫秒)
+     */
+    private double p50Millis;
+    private double p90Millis;
+    private double p99Millis;
+    private double p999Millis;
+    private double maxMillis;
+}
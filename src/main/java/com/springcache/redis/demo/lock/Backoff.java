@@ -0,0 +1,33 @@
+package com.springcache.redis.demo.lock;
+
+import com.springcache.redis.demo.config.LockConfig;
+
+import java.util.concurrent.ThreadLocalRandom;
+
+/**
+ * 获取锁失败后的等待时间
+ * 从 lock.min-backoff-millis 开始每次翻倍, 不超过 lock.max-backoff-millis,
+ * 在 [backoff/2, backoff] 之间随机取值, 避免多个等待者同时重试
+ */
+class Backoff {
+
+    private final long maxBackoff;
+    private long backoff;
+
+    Backoff(LockConfig lockConfig) {
+        backoff = Math.max(1, lockConfig.getMinBackoffMillis());
+        maxBackoff = Math.max(backoff, lockConfig.getMaxBackoffMillis());
+    }
+
+    /**
+     * 下一次等待的毫秒数
+     *
+     * @param remainingMillis 剩余可等待的毫秒数
+     * @return 不超过剩余时间, 至少1毫秒(wait(0) 表示无限等待)
+     */
+    long next(long remainingMillis) {
+        long sleep = backoff / 2 + ThreadLocalRandom.current().nextLong(backoff / 2 + 1);
+        backoff = Math.min(maxBackoff, backoff << 1);
+        return Math.max(1, Math.min(remainingMillis, sleep));
+    }
+}
@@ -1,19 +1,26 @@
 package com.springcache.redis.demo.lock;
 
+import com.springcache.redis.demo.config.LoadTestConfig;
 import com.springcache.redis.demo.entity.ProductInfo;
 import com.springcache.redis.demo.entity.User;
+import com.springcache.redis.demo.loadtest.LoadGenerator;
+import com.springcache.redis.demo.metrics.RedisMetrics;
 import com.springcache.redis.demo.service.ProductInfoService;
 import com.springcache.redis.demo.service.UserService;
-import com.springcache.redis.demo.utils.JedisUtil;
+import com.springcache.redis.demo.stock.IdempotencyStore;
+import com.springcache.redis.demo.stock.PurchaseFilter;
+import com.springcache.redis.demo.stock.RedisStock;
+import com.springcache.redis.demo.stock.StockGuard;
+import com.springcache.redis.demo.stock.StockResult;
 import lombok.extern.slf4j.Slf4j;
-import org.apache.commons.collections4.MapUtils;
 import org.redisson.api.RLock;
 import org.redisson.api.RedissonClient;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.scheduling.annotation.Scheduled;
 import org.springframework.stereotype.Component;
-import redis.clients.jedis.Jedis;
 
+import java.util.Map;
+import java.util.UUID;
 import java.util.concurrent.ConcurrentHashMap;
 import java.util.concurrent.TimeUnit;
 
@@ -35,16 +42,6 @@ public class BusinessTask {
     @Autowired
     private JedisDistributedLock jedisDistributedLock;
 
-    @Autowired
-    private JedisUtil jedisUtil;
-
-    /**
-     * 单例模式使用会抛redis.clients.jedis.exceptions.JedisConnectionException
-     * 和 redis.clients.jedis.exceptions.JedisDataException:
-     */
-    @Autowired
-    private Jedis jedis;
-
     @Autowired
     private ProductInfoService productInfoService;
 
@@ -57,28 +54,43 @@ public class BusinessTask {
     @Autowired
     private BusinessTask businessTask;
 
+    @Autowired
+    private RedisStock redisStock;
+
+    @Autowired
+    private StockGuard stockGuard;
+
+    @Autowired
+    private IdempotencyStore idempotencyStore;
+
+    @Autowired
+    private PurchaseFilter purchaseFilter;
+
+    @Autowired
+    private LoadGenerator loadGenerator;
+
+    @Autowired
+    private LoadTestConfig loadTestConfig;
+
+    @Autowired
+    private RedisMetrics redisMetrics;
+
     /**
      * 参与秒杀的用户
      */
     private Long[] userIds = {10001L, 10002L, 10003L, 10004L, 10005L, 10006L};
 
+    //商品ID -> 同步redis库存到商品信息时使用的锁
+    private final Map<Long, Object> stockSyncLocks = new ConcurrentHashMap<>();
+
     /**
-     * 记录秒杀成功的用户，实际情况可能存在redis
+     * 定时压测, 由 LoadGenerator 使用有界线程池按 loadtest.properties 配置发起请求并汇总报告
      */
-    private static ConcurrentHashMap<Long, Long> killUserIdMaps = new ConcurrentHashMap<>();
-
-    @Scheduled(cron = "0/5 * * * * ? ")
+    @Scheduled(cron = "${loadtest.cron:0/5 * * * * ?}")
     public void doSomething() {
-        for (int i = 0; i < 20; i++) {
-            Thread thread = new Thread() {
-                @Override
-                public void run() {
-                    businessTask.decrementProductStoreJedis(1L, 1);
-                }
-            };
-            thread.start();
+        if (loadTestConfig.isEnabled()) {
+            loadGenerator.start(loadTestConfig.getStrategy());
         }
-
     }
 
     /**
@@ -88,15 +100,27 @@ public class BusinessTask {
      *
      * @param productId
      * @param productQuantity
-     * @return
+     * @return 扣减结果
      */
-    public void decrementProductStoreTryLock(Long productId, Integer productQuantity) {
+    public StockResult decrementProductStoreTryLock(Long productId, Integer productQuantity) {
         final String lockKey = "dec_store_" + productId + "_redis_lock";
+        // 已售罄或超过准入速率时直接拒绝, 不查询用户也不加锁
+        StockResult rejected = stockGuard.admit(productId);
+        if (rejected != null) {
+            return rejected;
+        }
+        // 在读取库存之前取得补货代数, 补货前读到的库存不会在补货后标记售罄
+        long generation = stockGuard.generation(productId);
         // 随机获取访问的用户，模拟不同用户请求
         int index = (int) (Math.random() * userIds.length);
         User user = userService.get(userIds[index]);
+        // 本地已知购买过的用户直接拒绝, 不加锁也不访问redis
+        if (purchaseFilter.contains(productId, user.getId())) {
+            return StockResult.DUPLICATE;
+        }
         // 加锁
         RLock lock = redissonClient.getLock(lockKey);
+        boolean lockFlag = false;
 
         try {
             // 第一个参数为 30， 尝试获取锁的的最大等待时间为30s
@@ -106,39 +130,47 @@ public class BusinessTask {
             // 当获取锁时，当前线程已持有该锁，那么锁可用时，返回true，同时设置持有count加1；
             // 当获取锁时，如果其他线程持有该锁，无可用锁资源，直接返回false，这时候线程不用阻塞等待，可以先去做其他事情；
             // 即使该锁是公平锁fairLock，使用tryLock()的方式获取锁也会是非公平的方式，只要获取锁时该锁可用那么就会直接获取并返回true。这种直接插入的特性在一些特定场景是很有用的。但是如果就是想使用公平的方式的话，可以试一试tryLock(0, TimeUnit.SECONDS)，几乎跟公平锁没区别，只是会监测中断事件。
-            boolean lockFlag = lock.tryLock(30, 60, TimeUnit.SECONDS);
+            lockFlag = tryLock(lock, 30, 60);
             if (lockFlag) {
                 //商品秒杀处理
                 ProductInfo productInfo = productInfoService.selectByPrimaryKey(productId);
 
                 // 做幂等性处理
-                if (MapUtils.isNotEmpty(killUserIdMaps)
-                        && killUserIdMaps.get(user.getId()) != null
-                        && killUserIdMaps.get(user.getId()).equals(productId)) {
+                if (idempotencyStore.isPurchased(productId, user.getId())) {
+                    purchaseFilter.add(productId, user.getId());
                     log.warn("用户：" + user.getUsername() + "---已抢到商品：" + productInfo.getProductName() + "，不可以重新领取!");
-                    return;
+                    return StockResult.DUPLICATE;
                 }
 
                 //判断缓存的商品库存，是否被抢完了
                 if (productInfo.getProductStock() > 0 || productInfo.getProductStock() >= productQuantity) {
                     log.info("剩余库存->" + productInfo.getProductStock());
-                    // 将秒杀抢到商品的用户存入缓存
-                    killUserIdMaps.put(user.getId(), productId);
                     // 减库存操作
                     productInfo.setProductStock(productInfo.getProductStock() - productQuantity);
                     productInfoService.updateByPrimaryKey(productInfo);
+                    // 扣减成功后才记录已购用户, 扣减失败时用户仍可重试
+                    idempotencyStore.markPurchased(productId, user.getId());
+                    purchaseFilter.add(productId, user.getId());
+                    stockGuard.updateStock(productId, productInfo.getProductStock(), generation);
                     log.info("用户：" + user.getUsername() + "--->抢到商品：" + productInfo.getProductName());
+                    return StockResult.SUCCESS;
                 } else {
+                    stockGuard.markSoldOut(productId, generation);
                     log.warn("用户：" + user.getUsername() + "--->未抢到商品<---" + productInfo.getProductName());
+                    return StockResult.SOLD_OUT;
                 }
             } else {
                 log.warn("当前锁资源被占用--->未获取到锁");
+                return StockResult.LOCK_FAILED;
             }
         } catch (Exception e) {
             log.error("秒杀出现了错误！->" + e.getMessage());
+            return StockResult.ERROR;
         } finally {
-            // 解锁
-            lock.unlock();
+            // 未获取到锁时不能解锁, 否则抛出 IllegalMonitorStateException
+            if (lockFlag) {
+                unlock(lock);
+            }
         }
     }
 
@@ -150,13 +182,26 @@ public class BusinessTask {
      *
      * @param productId
      * @param productQuantity
+     * @return 扣减结果
      */
-    public void decrementProductStoreLock(Long productId, Integer productQuantity) {
+    public StockResult decrementProductStoreLock(Long productId, Integer productQuantity) {
         String key = "dec_store_" + productId + "_redis_lock";
+        // 已售罄或超过准入速率时直接拒绝, 不查询用户也不加锁
+        StockResult rejected = stockGuard.admit(productId);
+        if (rejected != null) {
+            return rejected;
+        }
+        // 在读取库存之前取得补货代数, 补货前读到的库存不会在补货后标记售罄
+        long generation = stockGuard.generation(productId);
         // 随机获取访问的用户，模拟不同用户请求
         int index = (int) (Math.random() * userIds.length);
         User user = userService.get(userIds[index]);
+        // 本地已知购买过的用户直接拒绝, 不加锁也不访问redis
+        if (purchaseFilter.contains(productId, user.getId())) {
+            return StockResult.DUPLICATE;
+        }
         RLock lock = redissonClient.getLock(key);
+        boolean locked = false;
 
         try {
             // 加锁 操作很类似Java的ReentrantLock机制
@@ -165,34 +210,45 @@ public class BusinessTask {
             // 当锁可用，并且当前线程没有持有该锁，直接获取锁并把count set为1.
             // 当锁可用，并且当前线程已经持有该锁，直接获取锁并把count增加1.
             // 当锁不可用，那么当前线程被阻塞，休眠一直到该锁可以获取，然后把持有count设置为1.
-            lock.lock(60, TimeUnit.SECONDS);
+            redisMetrics.record(RedisMetrics.REDISSON, RedisMetrics.REDISSON_LOCK, "lock", () -> {
+                lock.lock(60, TimeUnit.SECONDS);
+                return null;
+            });
+            locked = true;
             ProductInfo productInfo = productInfoService.selectByPrimaryKey(productId);
             // 做幂等性处理
-            if (MapUtils.isNotEmpty(killUserIdMaps)
-                    && killUserIdMaps.get(user.getId()) != null
-                    && killUserIdMaps.get(user.getId()).equals(productId)) {
+            if (idempotencyStore.isPurchased(productId, user.getId())) {
+                purchaseFilter.add(productId, user.getId());
                 log.warn("用户：" + user.getUsername() + "---已抢到商品：" + productInfo.getProductName() + "，不可以重新领取!");
-                return;
+                return StockResult.DUPLICATE;
             }
 
             //判断缓存的商品库存，是否被抢完了
             if (productInfo.getProductStock() > 0 || productInfo.getProductStock() >= productQuantity) {
                 log.info("剩余库存->" + productInfo.getProductStock());
-                // 将秒杀抢到商品的用户存入缓存
-                killUserIdMaps.put(user.getId(), productId);
                 // 减库存操作
                 productInfo.setProductStock(productInfo.getProductStock() - productQuantity);
                 productInfoService.updateByPrimaryKey(productInfo);
+                // 扣减成功后才记录已购用户, 扣减失败时用户仍可重试
+                idempotencyStore.markPurchased(productId, user.getId());
+                purchaseFilter.add(productId, user.getId());
+                stockGuard.updateStock(productId, productInfo.getProductStock(), generation);
                 log.info("用户：" + user.getUsername() + "--->抢到商品：" + productInfo.getProductName());
+                return StockResult.SUCCESS;
             } else {
+                stockGuard.markSoldOut(productId, generation);
                 log.warn("用户：" + user.getUsername() + "--->未抢到商品<---" + productInfo.getProductName());
+                return StockResult.SOLD_OUT;
             }
         } catch (Exception ex) {
             log.error("减库存操作异常->" + ex.getMessage());
             ex.printStackTrace();
+            return StockResult.ERROR;
         } finally {
-            //解锁
-            lock.unlock();
+            //解锁, 加锁失败时不能解锁
+            if (locked) {
+                unlock(lock);
+            }
         }
     }
 
@@ -201,46 +257,63 @@ public class BusinessTask {
      *
      * @param productId
      * @param productQuantity
+     * @return 扣减结果
      */
-    public void decrementProductStore(Long productId, Integer productQuantity) {
+    public StockResult decrementProductStore(Long productId, Integer productQuantity) {
         String key = "dec_store_" + productId + "_redis_lock";
+        // 已售罄或超过准入速率时直接拒绝, 不查询用户也不加锁
+        StockResult rejected = stockGuard.admit(productId);
+        if (rejected != null) {
+            return rejected;
+        }
+        // 在读取库存之前取得补货代数, 补货前读到的库存不会在补货后标记售罄
+        long generation = stockGuard.generation(productId);
         // 随机获取访问的用户，模拟不同用户请求
         int index = (int) (Math.random() * userIds.length);
         User user = userService.get(userIds[index]);
+        // 本地已知购买过的用户直接拒绝, 不加锁也不访问redis
+        if (purchaseFilter.contains(productId, user.getId())) {
+            return StockResult.DUPLICATE;
+        }
 
-        long time = System.currentTimeMillis();
+        // 最多等待1秒, 租期3秒, 持有期间自动续期
+        //如果加锁失败
+        if (!distributedLock.tryLock(key, 1000, 3 * 1000)) {
+            log.warn("->获取锁失败!");
+            return StockResult.LOCK_FAILED;
+        }
         try {
-            //如果加锁失败
-            if (!distributedLock.tryLock(key, String.valueOf(time), 10 * 1000)) {
-                log.warn("->获取锁失败!");
-                return;
-            }
             ProductInfo productInfo = productInfoService.selectByPrimaryKey(productId);
             // 做幂等性处理
-            if (MapUtils.isNotEmpty(killUserIdMaps)
-                    && killUserIdMaps.get(user.getId()) != null
-                    && killUserIdMaps.get(user.getId()).equals(productId)) {
+            if (idempotencyStore.isPurchased(productId, user.getId())) {
+                purchaseFilter.add(productId, user.getId());
                 log.warn("用户：" + user.getUsername() + "---已抢到商品：" + productInfo.getProductName() + "，不可以重新领取!");
-                return;
+                return StockResult.DUPLICATE;
             }
             //判断缓存的商品库存，是否被抢完了
             if (productInfo.getProductStock() > 0 || productInfo.getProductStock() >= productQuantity) {
                 log.info("剩余库存->" + productInfo.getProductStock());
-                // 将秒杀抢到商品的用户存入缓存
-                killUserIdMaps.put(user.getId(), productId);
                 // 减库存操作
                 productInfo.setProductStock(productInfo.getProductStock() - productQuantity);
                 productInfoService.updateByPrimaryKey(productInfo);
+                // 扣减成功后才记录已购用户, 扣减失败时用户仍可重试
+                idempotencyStore.markPurchased(productId, user.getId());
+                purchaseFilter.add(productId, user.getId());
+                stockGuard.updateStock(productId, productInfo.getProductStock(), generation);
                 log.info("用户：" + user.getUsername() + "--->抢到商品：" + productInfo.getProductName());
+                return StockResult.SUCCESS;
             } else {
+                stockGuard.markSoldOut(productId, generation);
                 log.warn("用户：" + user.getUsername() + "--->未抢到商品<---" + productInfo.getProductName());
+                return StockResult.SOLD_OUT;
             }
         } catch (Exception ex) {
             log.error("减库存操作异常->" + ex.getMessage());
             ex.printStackTrace();
+            return StockResult.ERROR;
         } finally {
             //释放锁
-            distributedLock.unlock(key, String.valueOf(time));
+            distributedLock.unlock(key);
         }
     }
 
@@ -250,49 +323,184 @@ public class BusinessTask {
      *
      * @param productId
      * @param productQuantity
+     * @return 扣减结果
      */
-    public void decrementProductStoreJedis(Long productId, Integer productQuantity) {
+    public StockResult decrementProductStoreJedis(Long productId, Integer productQuantity) {
         String key = "dec_store_" + productId + "_jedis_lock";
+        // 已售罄或超过准入速率时直接拒绝, 不查询用户也不加锁
+        StockResult rejected = stockGuard.admit(productId);
+        if (rejected != null) {
+            return rejected;
+        }
+        // 在读取库存之前取得补货代数, 补货前读到的库存不会在补货后标记售罄
+        long generation = stockGuard.generation(productId);
         // 随机获取访问的用户，模拟不同用户请求
         int index = (int) (Math.random() * userIds.length);
         User user = userService.get(userIds[index]);
+        // 本地已知购买过的用户直接拒绝, 不加锁也不访问redis
+        if (purchaseFilter.contains(productId, user.getId())) {
+            return StockResult.DUPLICATE;
+        }
 
-        long time = System.currentTimeMillis();
+        // 每次加锁使用唯一的值, 同一毫秒内的其他线程不能释放本线程的锁
+        String value = UUID.randomUUID().toString();
+        boolean locked = false;
         try {
-            // 获取分布式锁,锁定1秒
+            // 获取分布式锁,锁定1秒, 最多等待1.1秒
             int lockMills = 1000;
+            locked = jedisDistributedLock.tryLock(key, value, lockMills, lockMills + 100);
             //如果加锁失败
-            if (jedisDistributedLock.getDistributedLock(jedisUtil.getJedis(), key, String.valueOf(time), lockMills)) {
+            if (locked) {
                 ProductInfo productInfo = productInfoService.selectByPrimaryKey(productId);
                 // 做幂等性处理
-                if (MapUtils.isNotEmpty(killUserIdMaps)
-                        && killUserIdMaps.get(user.getId()) != null
-                        && killUserIdMaps.get(user.getId()).equals(productId)) {
+                if (idempotencyStore.isPurchased(productId, user.getId())) {
+                    purchaseFilter.add(productId, user.getId());
                     log.warn("用户：" + user.getUsername() + "---已抢到商品：" + productInfo.getProductName() + "，不可以重新领取!");
-                    return;
+                    return StockResult.DUPLICATE;
                 }
                 //判断缓存的商品库存，是否被抢完了
                 if (productInfo.getProductStock() > 0 || productInfo.getProductStock() >= productQuantity) {
                     log.info("剩余库存->" + productInfo.getProductStock());
-                    // 将秒杀抢到商品的用户存入缓存
-                    killUserIdMaps.put(user.getId(), productId);
                     // 减库存操作
                     productInfo.setProductStock(productInfo.getProductStock() - productQuantity);
                     productInfoService.updateByPrimaryKey(productInfo);
+                    // 扣减成功后才记录已购用户, 扣减失败时用户仍可重试
+                    idempotencyStore.markPurchased(productId, user.getId());
+                    purchaseFilter.add(productId, user.getId());
+                    stockGuard.updateStock(productId, productInfo.getProductStock(), generation);
                     log.info("用户：" + user.getUsername() + "--->抢到商品：" + productInfo.getProductName());
+                    return StockResult.SUCCESS;
                 } else {
+                    stockGuard.markSoldOut(productId, generation);
                     log.warn("用户：" + user.getUsername() + "--->未抢到商品<---" + productInfo.getProductName());
+                    return StockResult.SOLD_OUT;
                 }
             } else {
                 log.warn("->获取分布式锁失败，则提示服务器正忙，稍后再试!");
+                return StockResult.LOCK_FAILED;
             }
 
         } catch (Exception ex) {
             log.error("减库存操作异常->" + ex.getMessage());
             ex.printStackTrace();
+            return StockResult.ERROR;
         } finally {
             //释放锁
-            jedisDistributedLock.releaseDistributedLock(jedis, key, String.valueOf(time));
+            if (locked) {
+                jedisDistributedLock.unlock(key, value);
+            }
         }
     }
+
+    /**
+     * 减库存操作
+     * 不加锁, 库存保存在redis中, 由Lua脚本原子地完成幂等判断和扣减库存, 扣减后剩余库存延迟写入商品信息
+     *
+     * @param productId
+     * @param productQuantity
+     * @return 扣减结果
+     */
+    public StockResult decrementProductStoreLua(Long productId, Integer productQuantity) {
+        // 已售罄或超过准入速率时直接拒绝, 不查询用户也不加锁
+        StockResult rejected = stockGuard.admit(productId);
+        if (rejected != null) {
+            return rejected;
+        }
+        // 在读取库存之前取得补货代数, 补货前读到的库存不会在补货后标记售罄
+        long generation = stockGuard.generation(productId);
+        // 随机获取访问的用户，模拟不同用户请求
+        int index = (int) (Math.random() * userIds.length);
+        User user = userService.get(userIds[index]);
+        // 本地已知购买过的用户直接拒绝, 不加锁也不访问redis
+        if (purchaseFilter.contains(productId, user.getId())) {
+            return StockResult.DUPLICATE;
+        }
+        try {
+            long code = redisStock.decrement(productId, user.getId(), productQuantity);
+            if (StockResult.of(code) == StockResult.NOT_INITIALIZED) {
+                // 首次秒杀时从商品信息初始化redis库存, 多个线程同时初始化只有一个生效
+                ProductInfo productInfo = productInfoService.selectByPrimaryKey(productId);
+                redisStock.init(productId, productInfo.getProductStock());
+                // 以redis中实际生效的库存为准, 初始化可能由其他线程或节点完成
+                Integer stock = redisStock.getStock(productId);
+                if (stock != null) {
+                    stockGuard.updateStock(productId, stock, generation);
+                }
+                code = redisStock.decrement(productId, user.getId(), productQuantity);
+            }
+            switch (StockResult.of(code)) {
+                case SUCCESS:
+                    purchaseFilter.add(productId, user.getId());
+                    Integer stock = syncStock(productId);
+                    if (stock != null) {
+                        stockGuard.updateStock(productId, stock, generation);
+                    }
+                    log.info("用户：" + user.getUsername() + "--->抢到商品：" + productId + "，剩余库存->" + code);
+                    return StockResult.SUCCESS;
+                case DUPLICATE:
+                    purchaseFilter.add(productId, user.getId());
+                    log.warn("用户：" + user.getUsername() + "---已抢到商品：" + productId + "，不可以重新领取!");
+                    return StockResult.DUPLICATE;
+                case SOLD_OUT:
+                    // 没有单个分段够本次数量时也返回库存不足, 以各分段之和确认售罄, 剩余零散库存仍可被小数量购买
+                    Integer remaining = syncStock(productId);
+                    if (remaining != null) {
+                        stockGuard.updateStock(productId, remaining, generation);
+                    }
+                    log.warn("用户：" + user.getUsername() + "--->未抢到商品<---" + productId);
+                    return StockResult.SOLD_OUT;
+                default:
+                    log.warn("商品：" + productId + "--->库存未初始化");
+                    return StockResult.NOT_INITIALIZED;
+            }
+        } catch (Exception ex) {
+            log.error("减库存操作异常->" + ex.getMessage());
+            ex.printStackTrace();
+            return StockResult.ERROR;
+        }
+    }
+
+    /**
+     * Redisson tryLock, 记录等待耗时
+     */
+    /**
+     * Lua 扣减只修改redis库存, 扣减后把各分段之和通过商品信息的延迟写入队列同步到商品库存,
+     * 其他方式读取的商品库存不会停留在旧值。同一商品在本节点内串行同步, 后提交的一定是后读取的库存
+     *
+     * @param productId 商品ID
+     * @return redis中的剩余库存, 未初始化返回null
+     */
+    private Integer syncStock(long productId) {
+        synchronized (stockSyncLocks.computeIfAbsent(productId, id -> new Object())) {
+            Integer stock = redisStock.getStock(productId);
+            if (stock == null) {
+                return null;
+            }
+            ProductInfo productInfo = productInfoService.selectByPrimaryKey(productId);
+            if (productInfo != null && productInfo.getProductStock() != stock) {
+                productInfo.setProductStock(stock);
+                productInfoService.updateByPrimaryKey(productInfo);
+            }
+            return stock;
+        }
+    }
+
+    private boolean tryLock(RLock lock, long waitSeconds, long leaseSeconds) throws InterruptedException {
+        long start = System.nanoTime();
+        try {
+            boolean locked = lock.tryLock(waitSeconds, leaseSeconds, TimeUnit.SECONDS);
+            redisMetrics.record(RedisMetrics.REDISSON, RedisMetrics.REDISSON_LOCK, "lock", System.nanoTime() - start, null);
+            return locked;
+        } catch (InterruptedException | RuntimeException ex) {
+            redisMetrics.record(RedisMetrics.REDISSON, RedisMetrics.REDISSON_LOCK, "lock", System.nanoTime() - start, ex);
+            throw ex;
+        }
+    }
+
+    private void unlock(RLock lock) {
+        redisMetrics.record(RedisMetrics.REDISSON, RedisMetrics.REDISSON_LOCK, "unlock", () -> {
+            lock.unlock();
+            return null;
+        });
+    }
 }
@@ -1,70 +1,149 @@
 package com.springcache.redis.demo.lock;
 
+import com.springcache.redis.demo.config.LockConfig;
+import com.springcache.redis.demo.metrics.RedisMetrics;
 import lombok.extern.slf4j.Slf4j;
-import org.apache.commons.lang3.StringUtils;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.data.redis.core.StringRedisTemplate;
+import org.springframework.data.redis.core.script.DefaultRedisScript;
 import org.springframework.stereotype.Component;
 
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.UUID;
 import java.util.concurrent.TimeUnit;
 
 /**
  * Redis 分布式锁
+ * 锁的值为 节点ID:线程ID, 只有持有者能续期和释放; 加锁一次 SET NX PX, 解锁一次 Lua 脚本, 不依赖各节点的时钟。
+ * 可重入: 同一线程重复加锁只增加本地计数, 不访问redis, 计数归零时才真正释放。
+ * 加锁和解锁必须在同一线程中。
  */
 @Component
 @Slf4j
 public class DistributedLock {
+
+    //当前节点标识
+    private static final String NODE_ID = UUID.randomUUID().toString();
+
+    /**
+     * KEYS[1] 锁, ARGV[1] 锁的值
+     * 值相等才删除, 返回: 1 已释放; 0 锁已过期或不属于自己
+     */
+    private static final String RELEASE_SCRIPT =
+            "if redis.call('get', KEYS[1]) == ARGV[1] then return redis.call('del', KEYS[1]) else return 0 end";
+
+    private static final DefaultRedisScript<Long> RELEASE = new DefaultRedisScript<>(RELEASE_SCRIPT, Long.class);
+
+    private static final DefaultRedisScript<Long> RENEW = new DefaultRedisScript<>(LockWatchdog.RENEW_SCRIPT, Long.class);
+
     @Autowired
     private StringRedisTemplate redisTemplate;
 
+    @Autowired
+    private LockWatchdog lockWatchdog;
+
+    @Autowired
+    private LockConfig lockConfig;
+
+    @Autowired
+    private RedisMetrics redisMetrics;
+
+    //当前线程持有的锁, KEY -> 重入次数
+    private final ThreadLocal<Map<String, Integer>> holds = ThreadLocal.withInitial(HashMap::new);
+
     /**
      * 获取锁
-     * 通过redis的setnx方式（不存在则设置）,往redis上设置一个带有过期时间的key
-     * 如果设置成功，则获得了分布式锁
-     * SET lockId content PX millisecond NX
+     * 通过redis的setnx方式（不存在则设置）,往redis上设置一个带有过期时间的key, 失败后退避重试
+     * SET lockId token PX leaseMillis NX
      *
-     * @param key
-     * @param value
-     * @param millisecond
-     * @return
+     * @param key         锁
+     * @param waitMillis  最长等待毫秒值, 0 表示只尝试一次
+     * @param leaseMillis 租期毫秒值, 持有期间由 LockWatchdog 续期
+     * @return 加锁成功标志
      */
-    public boolean tryLock(String key, String value, long millisecond) {
-        Boolean success = redisTemplate.opsForValue().setIfAbsent(
-                key,
-                value,
-                millisecond,
-                TimeUnit.MILLISECONDS);
-
-        if (success != null && success) {
+    public boolean tryLock(String key, long waitMillis, long leaseMillis) {
+        Map<String, Integer> held = holds.get();
+        Integer count = held.get(key);
+        if (count != null) {
+            held.put(key, count + 1);
             return true;
         }
-
-        String currentValue = redisTemplate.opsForValue().get(key);
-        if (StringUtils.isNotEmpty(currentValue) && Long.parseLong(currentValue) < System.currentTimeMillis()) {
-            //获取上一个锁的时间 高并发的情况可能会出现已经被修改的问题  所以多一次判断保证线程的安全
-            String oldValue = redisTemplate.opsForValue().getAndSet(key, value);
-            return StringUtils.isNotEmpty(oldValue) && oldValue.equals(currentValue);
+        String token = token();
+        long deadline = System.nanoTime() + TimeUnit.MILLISECONDS.toNanos(waitMillis);
+        Backoff backoff = new Backoff(lockConfig);
+        try {
+            while (true) {
+                Boolean success = redisMetrics.record(RedisMetrics.LETTUCE, RedisMetrics.DISTRIBUTED_LOCK, "set",
+                        () -> redisTemplate.opsForValue().setIfAbsent(key, token, leaseMillis, TimeUnit.MILLISECONDS));
+                if (success != null && success) {
+                    held.put(key, 1);
+                    lockWatchdog.watch(key, token, leaseMillis, this::renew);
+                    return true;
+                }
+                long remaining = TimeUnit.NANOSECONDS.toMillis(deadline - System.nanoTime());
+                if (remaining <= 0) {
+                    return false;
+                }
+                Thread.sleep(backoff.next(remaining));
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            return false;
         }
-
-        return false;
     }
 
     /**
      * 释放锁
-     * 当处理完业务逻辑后，需要手动的把锁释放掉
+     * 当处理完业务逻辑后，需要手动的把锁释放掉; 重入时只减少计数
      *
-     * @param key
-     * @param value
+     * @param key 锁
      */
-    public void unlock(String key, String value) {
-        String currentValue = redisTemplate.opsForValue().get(key);
+    public void unlock(String key) {
+        Map<String, Integer> held = holds.get();
+        Integer count = held.get(key);
+        if (count == null) {
+            log.warn("当前线程未持有锁->" + key);
+            return;
+        }
+        if (count > 1) {
+            held.put(key, count - 1);
+            return;
+        }
+        held.remove(key);
+        String token = token();
+        lockWatchdog.unwatch(key, token);
         try {
-            if (StringUtils.isNotEmpty(currentValue) && currentValue.equals(value)) {
-                redisTemplate.opsForValue().getOperations().delete(key);
-                log.info("已成功释放锁!");
+            Long result = redisMetrics.record(RedisMetrics.LETTUCE, RedisMetrics.DISTRIBUTED_LOCK, "release",
+                    () -> redisTemplate.execute(RELEASE, Collections.singletonList(key), token));
+            if (result == null || result == 0) {
+                log.warn("锁已过期或被其他持有者获取->" + key);
             }
         } catch (Exception e) {
             log.error("释放锁异常->" + e.getMessage());
         }
     }
+
+    /**
+     * 当前线程是否持有锁
+     *
+     * @param key 锁
+     */
+    public boolean isHeldByCurrentThread(String key) {
+        return holds.get().containsKey(key);
+    }
+
+    /**
+     * 锁的值仍是自己的时重新设置过期时间
+     */
+    private boolean renew(String key, String value, long millisecond) {
+        Long result = redisMetrics.record(RedisMetrics.LETTUCE, RedisMetrics.DISTRIBUTED_LOCK, "renew",
+                () -> redisTemplate.execute(RENEW, Collections.singletonList(key), value, String.valueOf(millisecond)));
+        return result != null && result == 1;
+    }
+
+    private static String token() {
+        return NODE_ID + ":" + Thread.currentThread().getId();
+    }
 }
@@ -1,14 +1,31 @@
 package com.springcache.redis.demo.lock;
 
+import com.springcache.redis.demo.config.LockConfig;
+import com.springcache.redis.demo.metrics.RedisMetrics;
+import com.springcache.redis.demo.utils.JedisUtil;
 import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.stereotype.Component;
 import redis.clients.jedis.Jedis;
+import redis.clients.jedis.JedisPubSub;
 import redis.clients.jedis.params.SetParams;
 
+import javax.annotation.PostConstruct;
+import javax.annotation.PreDestroy;
+import java.util.Arrays;
 import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.LongAccumulator;
+import java.util.concurrent.atomic.LongAdder;
 
 /**
  * jedis(3.x)分布式锁
+ * 获取锁失败后按指数退避并加随机抖动后重试, 避免等待者不停地向redis发送SET;
+ * 开启发布/订阅时, 释放锁会发布消息, 等待者被唤醒后立即重试, 不必等到退避时间结束。
+ * 每次操作从共享连接池借用连接, 用完归还。
  */
 @Component
 @Slf4j
@@ -18,65 +35,236 @@ public class JedisDistributedLock {
     private static final String LOCK_SUCCESS = "OK";
     //解锁成功标志
     private static final String RELEASE_SUCCESS = "1";
+    //锁释放通知的频道, 消息内容为锁的KEY
+    private static final String RELEASE_CHANNEL = "jedisLock::release";
 
     /**
-     * 尝试获得锁
+     * 获取锁对应的value值，检查是否与requestId相等，如果相等则删除锁（解锁); eval()方法执行Lua脚本是原子性的
+     * ARGV[2] 不为空时向该频道发布锁已释放的消息
+     */
+    private static final String RELEASE_SCRIPT =
+            "if redis.call('get', KEYS[1]) == ARGV[1] then " +
+            "redis.call('del', KEYS[1]) " +
+            "if ARGV[2] ~= '' then redis.call('publish', ARGV[2], KEYS[1]) end " +
+            "return 1 else return 0 end";
+
+    @Autowired
+    private JedisUtil jedisUtil;
+
+    @Autowired
+    private LockConfig lockConfig;
+
+    @Autowired
+    private LockWatchdog lockWatchdog;
+
+    @Autowired
+    private RedisMetrics redisMetrics;
+
+    //正在等待的锁, 收到释放消息时唤醒; 锁的KEY数量有限, 不移除
+    private final Map<String, Waiter> waiters = new ConcurrentHashMap<>();
+
+    //加锁统计
+    private final LongAdder acquired = new LongAdder();
+    private final LongAdder failed = new LongAdder();
+    private final LongAdder attempts = new LongAdder();
+    private final LongAdder wakeups = new LongAdder();
+    private final LongAccumulator maxAttempts = new LongAccumulator(Math::max, 0);
+
+    private volatile boolean running;
+    private volatile JedisPubSub subscriber;
+    private Thread subscribeThread;
+
+    @PostConstruct
+    public void init() {
+        if (!lockConfig.isPubsubEnabled()) {
+            return;
+        }
+        running = true;
+        subscribeThread = new Thread(this::subscribe, "jedis-lock-subscriber");
+        subscribeThread.setDaemon(true);
+        subscribeThread.start();
+    }
+
+    @PreDestroy
+    public void destroy() {
+        running = false;
+        JedisPubSub current = subscriber;
+        if (current != null && current.isSubscribed()) {
+            current.unsubscribe();
+        }
+        if (subscribeThread != null) {
+            subscribeThread.interrupt();
+        }
+    }
+
+    /**
+     * 尝试获得锁, 在等待时间内退避重试
      *
-     * @param jedis     redis实例
-     * @param key       具体的锁
-     * @param value     锁的值，解锁的时候用
-     * @param lockMills 锁定毫秒值
+     * @param key        具体的锁
+     * @param value      锁的值，解锁的时候用
+     * @param lockMills  锁定毫秒值
+     * @param waitMillis 最长等待毫秒值, 0 表示只尝试一次
      * @return 加锁成功标志
      */
-    public boolean getDistributedLock(Jedis jedis, String key, String value, int lockMills) {
-        boolean isLocked = false;
+    public boolean tryLock(String key, String value, long lockMills, long waitMillis) {
+        long deadline = System.nanoTime() + TimeUnit.MILLISECONDS.toNanos(waitMillis);
+        Backoff backoff = new Backoff(lockConfig);
+        //只在键不存在时才进行设置操作
+        SetParams setParams = SetParams.setParams().nx().px(lockMills);
+        Waiter waiter = lockConfig.isPubsubEnabled() ? waiters.computeIfAbsent(key, k -> new Waiter()) : null;
+        if (waiter != null) {
+            waiter.count.increment();
+        }
+        int spins = 0;
         try {
-            long beginMills = System.currentTimeMillis();
-            long tryMills = lockMills + 100;//尝试获取分布式锁的时间
-            SetParams setParams = new SetParams();
-            //只在键不存在时才进行设置操作
-            setParams.nx();
-            while (System.currentTimeMillis() - beginMills < tryMills) {
-                String result = jedis.set(key, value, setParams.px(lockMills));
-                if (LOCK_SUCCESS.equals(result)) {
-                    isLocked = true;
-                    break;
+            while (true) {
+                // 先记录版本号再尝试加锁, 加锁失败后若期间已收到释放消息则不再等待
+                long version = waiter != null ? waiter.version : 0;
+                spins++;
+                if (set(key, value, setParams)) {
+                    acquired.increment();
+                    lockWatchdog.watch(key, value, lockMills, this::renew);
+                    return true;
+                }
+                long remaining = TimeUnit.NANOSECONDS.toMillis(deadline - System.nanoTime());
+                if (remaining <= 0) {
+                    failed.increment();
+                    return false;
+                }
+                long sleep = backoff.next(remaining);
+                if (waiter != null) {
+                    waiter.await(version, sleep);
+                } else {
+                    Thread.sleep(sleep);
                 }
             }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            failed.increment();
+            return false;
         } catch (Exception e) {
             log.error("----getDistributedLock error------", e);
+            failed.increment();
+            return false;
         } finally {
-            if (jedis != null) {
-                jedis.close();
+            attempts.add(spins);
+            maxAttempts.accumulate(spins);
+            if (waiter != null) {
+                waiter.count.decrement();
             }
         }
-        return isLocked;
     }
 
     /**
      * 尝试解锁(删除key)
      *
-     * @param jedis redis实例
      * @param key   具体的锁
-     * @param value
-     * @return
+     * @param value 加锁时的值
+     * @return 解锁成功标志
      */
-    public boolean releaseDistributedLock(Jedis jedis, String key, String value) {
-        boolean isUnlocked = false;
+    public boolean unlock(String key, String value) {
+        lockWatchdog.unwatch(key, value);
+        String channel = lockConfig.isPubsubEnabled() ? RELEASE_CHANNEL : "";
         try {
-            //获取锁对应的value值，检查是否与requestId相等，如果相等则删除锁（解锁);eval()方法执行Lua脚本是原子性的
-            String script = "if redis.call('get', KEYS[1]) == ARGV[1] then return redis.call('del', KEYS[1]) else return 0 end";
-            Object result = jedis.eval(script, Collections.singletonList(key), Collections.singletonList(value));
-            if (RELEASE_SUCCESS.equals(result.toString())) {
-                isUnlocked = true;
-            }
+            Object result = redisMetrics.record(RedisMetrics.JEDIS, RedisMetrics.JEDIS_LOCK, "release",
+                    () -> jedisUtil.execute(key, jedis -> jedis.eval(RELEASE_SCRIPT, Collections.singletonList(key),
+                            Arrays.asList(value, channel))));
+            return RELEASE_SUCCESS.equals(String.valueOf(result));
         } catch (Exception e) {
             log.error("------releaseDistributedLock error------", e);
-        } finally {
-            if (jedis != null) {
-                jedis.close();
+            return false;
+        }
+    }
+
+    /**
+     * 加锁统计
+     *
+     * @return acquired 成功次数, failed 失败次数, attempts SET总次数, avgAttempts 平均每次加锁的SET次数,
+     * maxAttempts 单次加锁最多的SET次数, wakeups 被释放消息唤醒的次数
+     */
+    public Map<String, Number> getStats() {
+        Map<String, Number> stats = new LinkedHashMap<>();
+        long total = acquired.sum() + failed.sum();
+        stats.put("acquired", acquired.sum());
+        stats.put("failed", failed.sum());
+        stats.put("attempts", attempts.sum());
+        stats.put("avgAttempts", total > 0 ? (double) attempts.sum() / total : 0);
+        stats.put("maxAttempts", maxAttempts.get());
+        stats.put("wakeups", wakeups.sum());
+        return stats;
+    }
+
+    private boolean set(String key, String value, SetParams setParams) {
+        String result = redisMetrics.record(RedisMetrics.JEDIS, RedisMetrics.JEDIS_LOCK, "set",
+                () -> jedisUtil.execute(key, jedis -> jedis.set(key, value, setParams)));
+        return LOCK_SUCCESS.equals(result);
+    }
+
+    /**
+     * 锁的值仍是自己的时重新设置过期时间
+     */
+    private boolean renew(String key, String value, long lockMills) {
+        Object result = redisMetrics.record(RedisMetrics.JEDIS, RedisMetrics.JEDIS_LOCK, "renew",
+                () -> jedisUtil.execute(key, jedis -> jedis.eval(LockWatchdog.RENEW_SCRIPT, Collections.singletonList(key),
+                        Arrays.asList(value, String.valueOf(lockMills)))));
+        return RELEASE_SUCCESS.equals(String.valueOf(result));
+    }
+
+    /**
+     * 订阅锁释放消息, 连接断开后重新订阅
+     * 订阅期间独占一个连接
+     */
+    private void subscribe() {
+        while (running) {
+            JedisPubSub pubSub = new JedisPubSub() {
+                @Override
+                public void onMessage(String channel, String message) {
+                    Waiter waiter = waiters.get(message);
+                    if (waiter != null) {
+                        waiter.signal();
+                    }
+                }
+            };
+            subscriber = pubSub;
+            try (Jedis jedis = jedisUtil.getJedis()) {
+                jedis.subscribe(pubSub, RELEASE_CHANNEL);
+            } catch (Exception ex) {
+                if (!running) {
+                    return;
+                }
+                log.error("订阅锁释放消息异常, 稍后重试->" + ex.getMessage());
+                try {
+                    Thread.sleep(1000);
+                } catch (InterruptedException e) {
+                    return;
+                }
+            }
+        }
+    }
+
+    /**
+     * 同一把锁的等待者
+     */
+    private class Waiter {
+        //正在等待的线程数
+        private final LongAdder count = new LongAdder();
+        //每收到一次释放消息加一
+        private volatile long version;
+
+        synchronized void await(long expectedVersion, long millis) throws InterruptedException {
+            // wait(0) 会一直等到被唤醒, 丢失释放消息时线程将永远挂起
+            if (version == expectedVersion && millis > 0) {
+                wait(millis);
+            }
+        }
+
+        synchronized void signal() {
+            version++;
+            if (count.sum() > 0) {
+                // 只唤醒一个等待者, 其余等待者按退避时间重试, 避免所有等待者同时争抢
+                wakeups.increment();
+                notify();
             }
         }
-        return isUnlocked;
     }
 }
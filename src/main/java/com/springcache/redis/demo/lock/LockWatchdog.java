@@ -0,0 +1,140 @@
+package com.springcache.redis.demo.lock;
+
+import com.springcache.redis.demo.config.LockConfig;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.scheduling.concurrent.CustomizableThreadFactory;
+import org.springframework.stereotype.Component;
+
+import javax.annotation.PreDestroy;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.ScheduledThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * 分布式锁续期
+ * 持有锁期间每隔 1/3 租期检查锁的值是否仍是自己的, 是则重新设置过期时间, 所有锁共用一个后台线程。
+ * 锁可以使用较短的租期: 持有者宕机后锁很快过期, 业务处理变慢时锁也不会中途失效。
+ */
+@Slf4j
+@Component
+public class LockWatchdog {
+
+    /**
+     * KEYS[1] 锁, ARGV[1] 锁的值, ARGV[2] 租期毫秒
+     * 返回: 1 续期成功; 0 锁已不属于自己
+     */
+    public static final String RENEW_SCRIPT =
+            "if redis.call('get', KEYS[1]) == ARGV[1] then " +
+            "return redis.call('pexpire', KEYS[1], ARGV[2]) else return 0 end";
+
+    /**
+     * 续期方式, 由各锁使用自己的客户端执行 RENEW_SCRIPT
+     */
+    public interface Renewer {
+        /**
+         * @param key         锁
+         * @param value       锁的值
+         * @param leaseMillis 租期毫秒
+         * @return 锁仍属于自己并续期成功
+         */
+        boolean renew(String key, String value, long leaseMillis);
+    }
+
+    @Autowired
+    private LockConfig lockConfig;
+
+    private final ScheduledThreadPoolExecutor scheduler;
+
+    //持有的锁, KEY -> 续期任务
+    private final Map<String, Lease> leases = new ConcurrentHashMap<>();
+
+    public LockWatchdog() {
+        scheduler = new ScheduledThreadPoolExecutor(1, new CustomizableThreadFactory("lock-watchdog-"));
+        scheduler.setRemoveOnCancelPolicy(true);
+    }
+
+    @PreDestroy
+    public void destroy() {
+        scheduler.shutdownNow();
+    }
+
+    /**
+     * 加锁成功后开始续期, 直到 unwatch
+     *
+     * @param key         锁
+     * @param value       锁的值
+     * @param leaseMillis 租期毫秒
+     * @param renewer     续期方式
+     */
+    public void watch(String key, String value, long leaseMillis, Renewer renewer) {
+        if (!lockConfig.isWatchdogEnabled()) {
+            return;
+        }
+        long period = Math.max(1, leaseMillis / 3);
+        Lease lease = new Lease(value);
+        Lease previous = leases.put(key, lease);
+        if (previous != null) {
+            previous.cancel();
+        }
+        lease.future = scheduler.scheduleAtFixedRate(() -> renew(key, lease, leaseMillis, renewer),
+                period, period, TimeUnit.MILLISECONDS);
+        // 调度前已经 unwatch 时取消刚创建的任务
+        if (lease.cancelled) {
+            lease.future.cancel(false);
+        }
+    }
+
+    /**
+     * 解锁前停止续期
+     *
+     * @param key   锁
+     * @param value 锁的值
+     */
+    public void unwatch(String key, String value) {
+        Lease lease = leases.get(key);
+        if (lease != null && lease.value.equals(value) && leases.remove(key, lease)) {
+            lease.cancel();
+        }
+    }
+
+    /**
+     * 正在续期的锁数量
+     */
+    public int size() {
+        return leases.size();
+    }
+
+    private void renew(String key, Lease lease, long leaseMillis, Renewer renewer) {
+        try {
+            if (!renewer.renew(key, lease.value, leaseMillis)) {
+                log.warn("锁已过期或被其他持有者获取, 停止续期->" + key);
+                leases.remove(key, lease);
+                lease.cancel();
+            }
+        } catch (Exception ex) {
+            // 下次继续尝试, 租期内恢复即可
+            log.error("锁续期异常->" + key + ", " + ex.getMessage());
+        }
+    }
+
+    private static class Lease {
+        private final String value;
+        private volatile ScheduledFuture<?> future;
+        private volatile boolean cancelled;
+
+        Lease(String value) {
+            this.value = value;
+        }
+
+        void cancel() {
+            cancelled = true;
+            ScheduledFuture<?> current = future;
+            if (current != null) {
+                current.cancel(false);
+            }
+        }
+    }
+}
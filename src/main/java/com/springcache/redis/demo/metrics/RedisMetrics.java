@@ -0,0 +1,160 @@
+package com.springcache.redis.demo.metrics;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.DistributionSummary;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.stereotype.Component;
+
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.CompletionStage;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Supplier;
+
+/**
+ * redis 客户端命令指标
+ * 应用同时使用 Lettuce、Jedis、Redisson 三个客户端, 按 客户端 / 调用方 / 命令 记录:
+ * redis.client.command 命令耗时(含分位数), redis.client.errors 异常次数。
+ * 通过 /actuator/metrics/redis.client.command?tag=client:jedis 查看。
+ * Spring Cache 另外记录 cache.gets 命中/未命中次数 和 cache.value.size 写入的缓存值字节数。
+ */
+@Component
+public class RedisMetrics {
+
+    public static final String LETTUCE = "lettuce";
+    public static final String JEDIS = "jedis";
+    public static final String REDISSON = "redisson";
+
+    public static final String CACHE_TEMPLATE = "cacheTemplate";
+    public static final String SPRING_CACHE = "springCache";
+    public static final String DISTRIBUTED_LOCK = "distributedLock";
+    public static final String JEDIS_LOCK = "jedisLock";
+    public static final String REDISSON_LOCK = "redissonLock";
+    public static final String STOCK = "stock";
+    public static final String WARMUP = "warmup";
+    public static final String WRITE_BEHIND = "writeBehind";
+
+    private static final String COMMAND_TIMER = "redis.client.command";
+    private static final String ERROR_COUNTER = "redis.client.errors";
+    private static final String CACHE_GETS = "cache.gets";
+    private static final String CACHE_VALUE_SIZE = "cache.value.size";
+
+    @Autowired
+    private MeterRegistry meterRegistry;
+
+    //客户端|调用方|命令 -> 计时器, 避免每次从注册表查找
+    private final Map<String, Timer> timers = new ConcurrentHashMap<>();
+
+    //缓存名称|hit/miss -> 计数器
+    private final Map<String, Counter> cacheGets = new ConcurrentHashMap<>();
+
+    //缓存名称 -> 缓存值字节数
+    private final Map<String, DistributionSummary> cacheValueSizes = new ConcurrentHashMap<>();
+
+    /**
+     * 执行并记录一次redis操作
+     *
+     * @param client    客户端
+     * @param subsystem 调用方
+     * @param command   命令
+     * @param action    redis操作
+     * @return 操作结果
+     */
+    public <T> T record(String client, String subsystem, String command, Supplier<T> action) {
+        long start = System.nanoTime();
+        try {
+            T result = action.get();
+            record(client, subsystem, command, System.nanoTime() - start, null);
+            return result;
+        } catch (RuntimeException ex) {
+            record(client, subsystem, command, System.nanoTime() - start, ex);
+            throw ex;
+        }
+    }
+
+    /**
+     * 执行并记录一次异步redis操作, 在操作完成时记录耗时
+     *
+     * @param client    客户端
+     * @param subsystem 调用方
+     * @param command   命令
+     * @param action    发起redis操作
+     * @return 操作结果
+     */
+    public <T> CompletableFuture<T> recordAsync(String client, String subsystem, String command,
+                                                Supplier<? extends CompletionStage<T>> action) {
+        long start = System.nanoTime();
+        CompletableFuture<T> future;
+        try {
+            future = action.get().toCompletableFuture();
+        } catch (RuntimeException ex) {
+            record(client, subsystem, command, System.nanoTime() - start, ex);
+            throw ex;
+        }
+        return future.whenComplete((result, ex) -> record(client, subsystem, command, System.nanoTime() - start,
+                ex instanceof CompletionException && ex.getCause() != null ? ex.getCause() : ex));
+    }
+
+    /**
+     * 记录一次已完成的redis操作, 用于抛出受检异常等不便使用 Supplier 的场景
+     *
+     * @param client    客户端
+     * @param subsystem 调用方
+     * @param command   命令
+     * @param nanos     耗时纳秒
+     * @param error     异常, 成功时为null
+     */
+    public void record(String client, String subsystem, String command, long nanos, Throwable error) {
+        timer(client, subsystem, command).record(nanos, TimeUnit.NANOSECONDS);
+        if (error != null) {
+            Counter.builder(ERROR_COUNTER)
+                    .tag("client", client)
+                    .tag("subsystem", subsystem)
+                    .tag("command", command)
+                    .tag("exception", error.getClass().getSimpleName())
+                    .register(meterRegistry)
+                    .increment();
+        }
+    }
+
+    /**
+     * 记录一次缓存读取
+     *
+     * @param cacheName 缓存名称
+     * @param hit       是否命中
+     */
+    public void recordCacheGet(String cacheName, boolean hit) {
+        String result = hit ? "hit" : "miss";
+        cacheGets.computeIfAbsent(cacheName + "|" + result, k -> Counter.builder(CACHE_GETS)
+                .tag("cache", cacheName)
+                .tag("result", result)
+                .register(meterRegistry)).increment();
+    }
+
+    /**
+     * 记录一次写入的缓存值大小
+     *
+     * @param cacheName 缓存名称
+     * @param bytes     序列化后的字节数
+     */
+    public void recordCacheValueSize(String cacheName, int bytes) {
+        cacheValueSizes.computeIfAbsent(cacheName, k -> DistributionSummary.builder(CACHE_VALUE_SIZE)
+                .tag("cache", cacheName)
+                .baseUnit("bytes")
+                .register(meterRegistry)).record(bytes);
+    }
+
+    private Timer timer(String client, String subsystem, String command) {
+        return timers.computeIfAbsent(client + "|" + subsystem + "|" + command, k -> Timer.builder(COMMAND_TIMER)
+                .tag("client", client)
+                .tag("subsystem", subsystem)
+                .tag("command", command)
+                .publishPercentiles(0.5, 0.9, 0.99)
+                .publishPercentileHistogram()
+                .register(meterRegistry));
+    }
+}
@@ -0,0 +1,35 @@
+package com.springcache.redis.demo.metrics;
+
+import com.springcache.redis.demo.utils.JedisUtil;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.binder.MeterBinder;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.stereotype.Component;
+
+/**
+ * redis 连接池指标
+ * Jedis 每次操作从连接池借用连接(集群模式为各节点连接池的合计): redis.pool.active / idle / waiters 连接池使用情况,
+ * redis.pool.borrow.wait / redis.pool.borrow.wait.max 借用连接的平均/最长等待毫秒。
+ * Lettuce 的普通命令共用一个连接, Redisson 开源版不公开连接池状态, 二者的饱和体现在 redis.client.command 的耗时上。
+ */
+@Component
+public class RedisPoolMetrics implements MeterBinder {
+
+    @Autowired
+    private JedisUtil jedisUtil;
+
+    @Override
+    public void bindTo(MeterRegistry registry) {
+        Gauge.builder("redis.pool.active", jedisUtil, JedisUtil::getNumActive)
+                .tag("client", RedisMetrics.JEDIS).register(registry);
+        Gauge.builder("redis.pool.idle", jedisUtil, JedisUtil::getNumIdle)
+                .tag("client", RedisMetrics.JEDIS).register(registry);
+        Gauge.builder("redis.pool.waiters", jedisUtil, JedisUtil::getNumWaiters)
+                .tag("client", RedisMetrics.JEDIS).register(registry);
+        Gauge.builder("redis.pool.borrow.wait", jedisUtil, JedisUtil::getMeanBorrowWaitMillis)
+                .tag("client", RedisMetrics.JEDIS).baseUnit("milliseconds").register(registry);
+        Gauge.builder("redis.pool.borrow.wait.max", jedisUtil, JedisUtil::getMaxBorrowWaitMillis)
+                .tag("client", RedisMetrics.JEDIS).baseUnit("milliseconds").register(registry);
+    }
+}
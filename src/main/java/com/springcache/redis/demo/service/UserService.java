@@ -2,6 +2,10 @@ package com.springcache.redis.demo.service;
 
 import com.springcache.redis.demo.entity.User;
 
+import java.util.Collection;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+
 public interface UserService {
     /**
      * 更新
@@ -19,6 +23,30 @@ public interface UserService {
      */
     User get(Long id);
 
+    /**
+     * 批量获取
+     *
+     * @param ids key值
+     * @return 按传入顺序返回, 不存在的用户不返回
+     */
+    List<User> getAll(Collection<Long> ids);
+
+    /**
+     * 异步获取, 等待redis和分布式锁时不占用线程
+     *
+     * @param id key值
+     * @return 返回结果
+     */
+    CompletableFuture<User> getAsync(Long id);
+
+    /**
+     * 异步批量获取, 每个用户分别异步读取
+     *
+     * @param ids key值
+     * @return 按传入顺序返回, 不存在的用户不返回
+     */
+    CompletableFuture<List<User>> getAllAsync(Collection<Long> ids);
+
     /**
      * 删除
      *
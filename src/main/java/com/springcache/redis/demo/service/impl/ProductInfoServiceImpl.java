@@ -1,13 +1,33 @@
 package com.springcache.redis.demo.service.impl;
 
+import com.springcache.redis.demo.cache.TtlJitter;
+import com.springcache.redis.demo.config.SpringCacheConfig;
 import com.springcache.redis.demo.entity.ProductInfo;
+import com.springcache.redis.demo.metrics.RedisMetrics;
 import com.springcache.redis.demo.service.ProductInfoService;
+import com.springcache.redis.demo.store.LongKeyStore;
+import com.springcache.redis.demo.store.LongKeyStoreFactory;
+import com.springcache.redis.demo.warmup.CacheWarmup;
+import com.springcache.redis.demo.writebehind.WriteBehindManager;
+import com.springcache.redis.demo.writebehind.WriteBehindQueue;
 import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.cache.Cache;
+import org.springframework.cache.CacheManager;
 import org.springframework.cache.annotation.CachePut;
 import org.springframework.cache.annotation.Cacheable;
+import org.springframework.data.redis.cache.RedisCache;
+import org.springframework.data.redis.cache.RedisCacheConfiguration;
+import org.springframework.data.redis.connection.RedisStringCommands;
+import org.springframework.data.redis.core.RedisCallback;
+import org.springframework.data.redis.core.StringRedisTemplate;
+import org.springframework.data.redis.core.types.Expiration;
+import org.springframework.data.redis.util.ByteUtils;
 import org.springframework.stereotype.Service;
 
-import java.util.HashMap;
+import javax.annotation.PostConstruct;
+import java.nio.charset.StandardCharsets;
+import java.util.LinkedHashMap;
 import java.util.Map;
 
 /**
@@ -16,12 +36,89 @@ import java.util.Map;
 @Slf4j
 @Service
 public class ProductInfoServiceImpl implements ProductInfoService {
-    private static final Map<Long, ProductInfo> DATABASES = new HashMap<>();
+    //Spring Cache 缓存名称
+    private static final String CACHE_NAME = "productInfoCache";
 
-    static {
-        DATABASES.put(1L, new ProductInfo(1L, 3, "Iphone XS"));
-        DATABASES.put(2L, new ProductInfo(2L, 2, "Iphone XS Plus"));
-        DATABASES.put(3L, new ProductInfo(3L, 2, "Iphone 10"));
+    @Autowired
+    private CacheManager cacheManager;
+
+    @Autowired
+    private CacheWarmup cacheWarmup;
+
+    @Autowired
+    private StringRedisTemplate stringRedisTemplate;
+
+    @Autowired
+    private SpringCacheConfig springCacheConfig;
+
+    @Autowired
+    private RedisMetrics redisMetrics;
+
+    @Autowired
+    private WriteBehindManager writeBehindManager;
+
+    @Autowired
+    private LongKeyStoreFactory longKeyStoreFactory;
+
+    //延迟写入线程与请求线程同时访问
+    private LongKeyStore<ProductInfo> databases;
+
+    //库存等更新先写入redis, 由后台任务批量写入 databases
+    private WriteBehindQueue<ProductInfo> writeBehind;
+
+    @PostConstruct
+    public void init() {
+        databases = longKeyStoreFactory.create("productInfo", ProductInfo.class);
+        databases.put(1L, new ProductInfo(1L, 3, "Iphone XS"));
+        databases.put(2L, new ProductInfo(2L, 2, "Iphone XS Plus"));
+        databases.put(3L, new ProductInfo(3L, 2, "Iphone 10"));
+        writeBehind = writeBehindManager.register("productInfo", ProductInfo.class, this::writeBatch);
+        // 启动预热, KEY 与 @Cacheable 的 key 一致
+        cacheWarmup.register(CACHE_NAME, ids -> {
+            Map<String, ProductInfo> pending = writeBehind.pending(ids);
+            Map<String, ProductInfo> values = new LinkedHashMap<>();
+            for (String id : ids) {
+                ProductInfo productInfo = pending.containsKey(id) ? pending.get(id) : databases.get(Long.valueOf(id));
+                if (productInfo != null) {
+                    values.put("product:" + id, productInfo);
+                }
+            }
+            putAll(values);
+            return values.size();
+        });
+    }
+
+    /**
+     * 以管道方式一次写入一批缓存, KEY前缀、编解码及过期时间(含抖动)与 @Cacheable 写入时一致
+     *
+     * @param values 缓存KEY -> 产品信息
+     */
+    private void putAll(Map<String, ProductInfo> values) {
+        if (values.isEmpty()) {
+            return;
+        }
+        Cache cache = cacheManager.getCache(CACHE_NAME);
+        if (!(cache instanceof RedisCache)) {
+            values.forEach(cache::put);
+            return;
+        }
+        RedisCacheConfiguration configuration = ((RedisCache) cache).getCacheConfiguration();
+        String prefix = configuration.getKeyPrefixFor(CACHE_NAME);
+        long ttlMillis = configuration.getTtl().toMillis();
+        SpringCacheConfig.CacheSpec spec = springCacheConfig.getSpec(CACHE_NAME);
+        redisMetrics.record(RedisMetrics.LETTUCE, RedisMetrics.SPRING_CACHE, "multiSet",
+                () -> stringRedisTemplate.executePipelined((RedisCallback<Object>) connection -> {
+                    for (Map.Entry<String, ProductInfo> entry : values.entrySet()) {
+                        byte[] rawKey = (prefix + entry.getKey()).getBytes(StandardCharsets.UTF_8);
+                        byte[] rawValue = ByteUtils.getBytes(configuration.getValueSerializationPair().write(entry.getValue()));
+                        // 0 表示永不过期
+                        Expiration expiration = ttlMillis > 0
+                                ? Expiration.milliseconds(TtlJitter.apply(ttlMillis, spec.getTtlJitterPercent(), spec.getTtlJitterSeconds()))
+                                : Expiration.persistent();
+                        connection.set(rawKey, rawValue, expiration, RedisStringCommands.SetOption.UPSERT);
+                    }
+                    return null;
+                }, null));
     }
 
     /**
@@ -34,7 +131,7 @@ public class ProductInfoServiceImpl implements ProductInfoService {
     @Override
     public ProductInfo selectByPrimaryKey(long productId) {
         log.info("----进入 selectByPrimaryKey 方法----");
-        return DATABASES.get(productId);
+        return writeBehind.read(String.valueOf(productId), () -> databases.get(productId));
     }
 
     /**
@@ -45,8 +142,25 @@ public class ProductInfoServiceImpl implements ProductInfoService {
     @CachePut(value = "productInfoCache", key = "'product:' + #productInfo.productId", condition = "#productInfo.productName.length() < 10")
     @Override
     public ProductInfo updateByPrimaryKey(ProductInfo productInfo) {
-        DATABASES.put(productInfo.getProductId(), productInfo);
+        writeBehind.submit(String.valueOf(productInfo.getProductId()), productInfo);
         log.info("----进入 updateByPrimaryKey 方法----");
         return productInfo;
     }
+
+    /**
+     * 延迟写入: 同一产品的多次更新已合并为最后一次
+     *
+     * @param batch 产品ID -> 产品信息
+     */
+    private void writeBatch(Map<String, ProductInfo> batch) {
+        for (Map.Entry<String, ProductInfo> entry : batch.entrySet()) {
+            Long id = Long.valueOf(entry.getKey());
+            if (entry.getValue() == null) {
+                databases.remove(id);
+            } else {
+                databases.put(id, entry.getValue());
+            }
+        }
+        log.info("----批量写入产品信息 " + batch.size() + " 条----");
+    }
 }
@@ -1,9 +1,16 @@
 package com.springcache.redis.demo.service.impl;
 
+import com.springcache.redis.demo.cache.BatchCacheLoadable;
 import com.springcache.redis.demo.cache.CacheLoadable;
 import com.springcache.redis.demo.cache.CacheTemplate;
 import com.springcache.redis.demo.entity.User;
 import com.springcache.redis.demo.service.UserService;
+import com.springcache.redis.demo.store.LongKeyStore;
+import com.springcache.redis.demo.store.LongKeyStoreFactory;
+import com.springcache.redis.demo.warmup.CacheWarmup;
+import com.springcache.redis.demo.warmup.HotKeyRecorder;
+import com.springcache.redis.demo.writebehind.WriteBehindManager;
+import com.springcache.redis.demo.writebehind.WriteBehindQueue;
 import lombok.extern.slf4j.Slf4j;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.cache.annotation.CacheEvict;
@@ -11,8 +18,13 @@ import org.springframework.cache.annotation.CachePut;
 import org.springframework.cache.annotation.Cacheable;
 import org.springframework.stereotype.Service;
 
+import javax.annotation.PostConstruct;
+import java.util.ArrayList;
+import java.util.Collection;
 import java.util.HashMap;
+import java.util.List;
 import java.util.Map;
+import java.util.concurrent.CompletableFuture;
 import java.util.concurrent.TimeUnit;
 
 /**
@@ -22,18 +34,59 @@ import java.util.concurrent.TimeUnit;
 @Service
 public class UserServiceImpl implements UserService {
 
-    private static final Map<Long, User> DATABASES = new HashMap<>();
+    //CacheTemplate 缓存名称
+    private static final String CACHE_NAME = "userCache";
+    //CacheTemplate 缓存KEY前缀
+    private static final String CACHE_KEY = "cacheTemplate::userCache::user:";
 
     @Autowired
     private CacheTemplate<User> cacheTemplate;
 
-    static {
-        DATABASES.put(10001L, new User(10001L, "he yong", "heyong@1988"));
-        DATABASES.put(10002L, new User(10002L, "eric.he", "eric@1988"));
-        DATABASES.put(10003L, new User(10003L, "sky.zhang", "sky@1987"));
-        DATABASES.put(10004L, new User(10004L, "alex.zheng", "alex@1989"));
-        DATABASES.put(10005L, new User(10005L, "felix.huang", "felix@1987"));
-        DATABASES.put(10006L, new User(10006L, "robert.luo", "luobo@1987"));
+    @Autowired
+    private CacheWarmup cacheWarmup;
+
+    @Autowired
+    private HotKeyRecorder hotKeyRecorder;
+
+    @Autowired
+    private WriteBehindManager writeBehindManager;
+
+    @Autowired
+    private LongKeyStoreFactory longKeyStoreFactory;
+
+    //延迟写入线程与请求线程同时访问
+    private LongKeyStore<User> databases;
+
+    //更新先写入redis, 由后台任务批量写入 databases
+    private WriteBehindQueue<User> writeBehind;
+
+    @PostConstruct
+    public void init() {
+        databases = longKeyStoreFactory.create("user", User.class);
+        databases.put(10001L, new User(10001L, "he yong", "heyong@1988"));
+        databases.put(10002L, new User(10002L, "eric.he", "eric@1988"));
+        databases.put(10003L, new User(10003L, "sky.zhang", "sky@1987"));
+        databases.put(10004L, new User(10004L, "alex.zheng", "alex@1989"));
+        databases.put(10005L, new User(10005L, "felix.huang", "felix@1987"));
+        databases.put(10006L, new User(10006L, "robert.luo", "luobo@1987"));
+        writeBehind = writeBehindManager.register("user", User.class, this::writeBatch);
+        // 布隆过滤器拦截不存在的用户ID, 包括尚未写入 databases 的新用户
+        cacheTemplate.registerBloomFilter(CACHE_NAME, () -> {
+            List<String> keys = new ArrayList<>();
+            databases.forEachKey(id -> keys.add(CACHE_KEY + id));
+            for (String id : writeBehind.pendingKeys()) {
+                keys.add(CACHE_KEY + id);
+            }
+            return keys;
+        });
+        // 启动预热: 批量读取, 未命中的以管道方式一次写入
+        cacheWarmup.register(CACHE_NAME, ids -> {
+            List<Long> userIds = new ArrayList<>();
+            for (String id : ids) {
+                userIds.add(Long.valueOf(id));
+            }
+            return loadBatch(userIds).size();
+        });
     }
 
     /**
@@ -45,7 +98,9 @@ public class UserServiceImpl implements UserService {
     @CachePut(value = "userCache", key = "'user:' + #user.id", condition = "#user.username.length() < 10")
     @Override
     public User saveOrUpdate(User user) {
-        DATABASES.put(user.getId(), user);
+        writeBehind.submit(String.valueOf(user.getId()), user);
+        // 新值直接写入缓存, 不等待延迟写入完成
+        cacheTemplate.put(CACHE_NAME, CACHE_KEY + user.getId(), user, 10000, TimeUnit.MINUTES);
         log.info("----进入 saveOrUpdate 方法----");
         return user;
     }
@@ -58,12 +113,99 @@ public class UserServiceImpl implements UserService {
      */
     @Override
     public User get(Long id) {
-        return cacheTemplate.getCacheData("cacheTemplate::userCache::user:" + id,
-                10000, TimeUnit.MINUTES, new CacheLoadable<User>() {
+        hotKeyRecorder.record(CACHE_NAME, String.valueOf(id));
+        return cacheTemplate.getCacheData(CACHE_NAME, CACHE_KEY + id, 10000, TimeUnit.MINUTES, loader(id), User.class);
+    }
+
+    /**
+     * 异步获取
+     *
+     * @param id key值
+     * @return 返回结果
+     */
+    @Override
+    public CompletableFuture<User> getAsync(Long id) {
+        hotKeyRecorder.record(CACHE_NAME, String.valueOf(id));
+        return cacheTemplate.getCacheDataAsync(CACHE_NAME, CACHE_KEY + id, 10000, TimeUnit.MINUTES, loader(id), User.class);
+    }
+
+    /**
+     * 异步批量获取
+     *
+     * @param ids key值
+     * @return 按传入顺序返回, 不存在的用户不返回
+     */
+    @Override
+    public CompletableFuture<List<User>> getAllAsync(Collection<Long> ids) {
+        List<CompletableFuture<User>> futures = new ArrayList<>();
+        for (Long id : ids) {
+            futures.add(getAsync(id));
+        }
+        return CompletableFuture.allOf(futures.toArray(new CompletableFuture[0])).thenApply(done -> {
+            List<User> users = new ArrayList<>();
+            for (CompletableFuture<User> future : futures) {
+                User user = future.join();
+                if (user != null) {
+                    users.add(user);
+                }
+            }
+            return users;
+        });
+    }
+
+    /**
+     * 单个用户的回源加载, 同步和异步读取共用
+     */
+    private CacheLoadable<User> loader(Long id) {
+        return new CacheLoadable<User>() {
+            @Override
+            public User load() {
+                log.info("----进入 get 方法----");
+                return writeBehind.read(String.valueOf(id), () -> databases.get(id));
+            }
+        };
+    }
+
+    /**
+     * 批量获取
+     *
+     * @param ids key值
+     * @return 按传入顺序返回, 不存在的用户不返回
+     */
+    @Override
+    public List<User> getAll(Collection<Long> ids) {
+        for (Long id : ids) {
+            hotKeyRecorder.record(CACHE_NAME, String.valueOf(id));
+        }
+        return new ArrayList<>(loadBatch(ids).values());
+    }
+
+    /**
+     * 批量从缓存读取, 未命中的批量加载并写入缓存
+     *
+     * @param ids key值
+     * @return ID -> 用户, 按传入顺序, 不存在的用户不返回
+     */
+    private Map<Long, User> loadBatch(Collection<Long> ids) {
+        return cacheTemplate.getCacheDataBatch(CACHE_NAME, ids, id -> CACHE_KEY + id,
+                10000, TimeUnit.MINUTES, new BatchCacheLoadable<Long, User>() {
                     @Override
-                    public User load() {
-                        log.info("----进入 get 方法----");
-                        return DATABASES.get(id);
+                    public Map<Long, User> load(Collection<Long> missIds) {
+                        log.info("----进入 getAll 方法----");
+                        List<String> keys = new ArrayList<>();
+                        for (Long id : missIds) {
+                            keys.add(String.valueOf(id));
+                        }
+                        Map<String, User> pending = writeBehind.pending(keys);
+                        Map<Long, User> result = new HashMap<>();
+                        for (Long id : missIds) {
+                            String key = String.valueOf(id);
+                            User user = pending.containsKey(key) ? pending.get(key) : databases.get(id);
+                            if (user != null) {
+                                result.put(id, user);
+                            }
+                        }
+                        return result;
                     }
                 }, User.class);
     }
@@ -76,7 +218,25 @@ public class UserServiceImpl implements UserService {
     @CacheEvict(value = "userCache", key = "'user:' + #id")
     @Override
     public void delete(Long id) {
-        DATABASES.remove(id);
+        writeBehind.submit(String.valueOf(id), null);
+        cacheTemplate.evict(CACHE_NAME, CACHE_KEY + id);
         log.info("----进入 delete 方法----");
     }
+
+    /**
+     * 延迟写入: 同一用户的多次更新已合并为最后一次
+     *
+     * @param batch 用户ID -> 用户, null 表示删除
+     */
+    private void writeBatch(Map<String, User> batch) {
+        for (Map.Entry<String, User> entry : batch.entrySet()) {
+            Long id = Long.valueOf(entry.getKey());
+            if (entry.getValue() == null) {
+                databases.remove(id);
+            } else {
+                databases.put(id, entry.getValue());
+            }
+        }
+        log.info("----批量写入用户 " + batch.size() + " 条----");
+    }
 }
@@ -0,0 +1,24 @@
+package com.springcache.redis.demo.stock;
+
+/**
+ * 秒杀已购用户记录, 防止同一用户重复购买同一商品
+ * 由 RedisIdempotencyStore 实现, 与Lua扣减共用已购用户集合, 多节点共享; PurchaseFilter 在本地预先过滤已知的重复购买。
+ * 调用方在同一把分布式锁内先检查再记录, 检查和扣减库存对其他请求是原子的。
+ */
+public interface IdempotencyStore {
+    /**
+     * 用户是否已购买该商品
+     *
+     * @param productId 商品ID
+     * @param userId    用户ID
+     */
+    boolean isPurchased(long productId, long userId);
+
+    /**
+     * 记录用户已购买该商品
+     *
+     * @param productId 商品ID
+     * @param userId    用户ID
+     */
+    void markPurchased(long productId, long userId);
+}
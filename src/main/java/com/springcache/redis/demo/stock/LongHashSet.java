@@ -0,0 +1,110 @@
+package com.springcache.redis.demo.stock;
+
+import com.springcache.redis.demo.utils.LongHashing;
+
+import java.util.concurrent.atomic.AtomicLongArray;
+
+/**
+ * long 集合, 开放寻址 + 线性探测, 不装箱
+ * 每个元素只占一个 long 槽位, 装载因子超过 1/2 时扩容一倍。
+ * contains 不加锁: 槽位为 AtomicLongArray, 扩容完成后才替换数组, 并发读取最多漏掉正在写入的元素;
+ * add/clear 串行执行。
+ */
+public class LongHashSet {
+
+    //空槽位, 元素0单独记录
+    private static final long EMPTY = 0L;
+
+    private volatile AtomicLongArray table;
+    private volatile boolean containsZero;
+    private volatile int size;
+
+    /**
+     * @param expectedSize 预计元素数量
+     */
+    public LongHashSet(int expectedSize) {
+        table = new AtomicLongArray(LongHashing.tableSize(expectedSize));
+    }
+
+    /**
+     * @return 是否包含
+     */
+    public boolean contains(long value) {
+        if (value == EMPTY) {
+            return containsZero;
+        }
+        AtomicLongArray slots = table;
+        int mask = slots.length() - 1;
+        for (int i = slot(value, mask); ; i = (i + 1) & mask) {
+            long current = slots.get(i);
+            if (current == value) {
+                return true;
+            }
+            if (current == EMPTY) {
+                return false;
+            }
+        }
+    }
+
+    /**
+     * @return 是否新增, 已存在时返回false
+     */
+    public synchronized boolean add(long value) {
+        if (value == EMPTY) {
+            if (containsZero) {
+                return false;
+            }
+            containsZero = true;
+            size++;
+            return true;
+        }
+        if (!insert(table, value)) {
+            return false;
+        }
+        size++;
+        if (size * 2 > table.length()) {
+            resize();
+        }
+        return true;
+    }
+
+    public synchronized void clear() {
+        table = new AtomicLongArray(table.length());
+        containsZero = false;
+        size = 0;
+    }
+
+    public int size() {
+        return size;
+    }
+
+    private static boolean insert(AtomicLongArray slots, long value) {
+        int mask = slots.length() - 1;
+        for (int i = slot(value, mask); ; i = (i + 1) & mask) {
+            long current = slots.get(i);
+            if (current == value) {
+                return false;
+            }
+            if (current == EMPTY) {
+                slots.set(i, value);
+                return true;
+            }
+        }
+    }
+
+    private void resize() {
+        AtomicLongArray old = table;
+        AtomicLongArray resized = new AtomicLongArray(old.length() * 2);
+        for (int i = 0; i < old.length(); i++) {
+            long value = old.get(i);
+            if (value != EMPTY) {
+                insert(resized, value);
+            }
+        }
+        table = resized;
+    }
+
+    private static int slot(long value, int mask) {
+        return (int) LongHashing.mix(value) & mask;
+    }
+}
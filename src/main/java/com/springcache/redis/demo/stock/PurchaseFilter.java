@@ -0,0 +1,96 @@
+package com.springcache.redis.demo.stock;
+
+import com.springcache.redis.demo.config.StockConfig;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.stereotype.Component;
+
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * 本地已购用户过滤
+ * 只记录已确认购买过的用户(扣减成功或已购检查命中), 命中时一定是重复购买, 直接拒绝, 不加锁也不访问redis;
+ * 未命中时仍由 IdempotencyStore 判断。
+ * 每个商品一个 LongHashSet, 达到 purchase-filter-max-users 后不再记录; 与redis记录同样在 purchased-ttl-seconds 后清空。
+ */
+@Component
+public class PurchaseFilter {
+
+    @Autowired
+    private StockConfig stockConfig;
+
+    //商品ID -> 已购用户
+    private final Map<Long, Users> filters = new ConcurrentHashMap<>();
+
+    private final LongAdder hits = new LongAdder();
+
+    /**
+     * 用户是否已知购买过该商品
+     *
+     * @param productId 商品ID
+     * @param userId    用户ID
+     */
+    public boolean contains(long productId, long userId) {
+        if (!stockConfig.isPurchaseFilterEnabled()) {
+            return false;
+        }
+        Users users = filters.get(productId);
+        if (users == null || users.isExpired(stockConfig.getPurchasedTtlSeconds())) {
+            return false;
+        }
+        if (users.set.contains(userId)) {
+            hits.increment();
+            return true;
+        }
+        return false;
+    }
+
+    /**
+     * 记录用户已购买该商品
+     *
+     * @param productId 商品ID
+     * @param userId    用户ID
+     */
+    public void add(long productId, long userId) {
+        if (!stockConfig.isPurchaseFilterEnabled()) {
+            return;
+        }
+        Users users = filters.compute(productId,
+                (id, current) -> current == null || current.isExpired(stockConfig.getPurchasedTtlSeconds()) ? new Users() : current);
+        if (users.set.size() < stockConfig.getPurchaseFilterMaxUsers()) {
+            users.set.add(userId);
+        }
+    }
+
+    /**
+     * 统计
+     *
+     * @return hits 直接拒绝的次数, users 各商品本地记录的用户数
+     */
+    public Map<String, Object> getStats() {
+        Map<Long, Integer> users = new TreeMap<>();
+        for (Map.Entry<Long, Users> entry : filters.entrySet()) {
+            users.put(entry.getKey(), entry.getValue().set.size());
+        }
+        Map<String, Object> stats = new LinkedHashMap<>();
+        stats.put("hits", hits.sum());
+        stats.put("users", users);
+        return stats;
+    }
+
+    /**
+     * 一个商品的已购用户
+     */
+    private static class Users {
+        private final LongHashSet set = new LongHashSet(1024);
+        private final long createdMillis = System.currentTimeMillis();
+
+        boolean isExpired(long ttlSeconds) {
+            return ttlSeconds > 0 && System.currentTimeMillis() - createdMillis > TimeUnit.SECONDS.toMillis(ttlSeconds);
+        }
+    }
+}
@@ -0,0 +1,73 @@
+package com.springcache.redis.demo.stock;
+
+import com.springcache.redis.demo.config.StockConfig;
+import com.springcache.redis.demo.metrics.RedisMetrics;
+import org.springframework.data.redis.connection.StringRedisConnection;
+import org.springframework.data.redis.core.RedisCallback;
+import org.springframework.data.redis.core.StringRedisTemplate;
+import org.springframework.data.redis.core.script.DefaultRedisScript;
+
+import java.util.Collections;
+import java.util.List;
+
+/**
+ * redis 已购用户记录, 与 RedisStock 的Lua扣减共用已购用户集合 stock:{商品ID}:users (分段时每个分段一个)
+ * 加锁扣减和Lua扣减使用同一份记录; 集合在最后一次写入 purchased-ttl-seconds 秒后过期。
+ */
+public class RedisIdempotencyStore implements IdempotencyStore {
+
+    /**
+     * KEYS[1] 已购用户集合, ARGV[1] 用户ID, ARGV[2] 过期秒数
+     */
+    private static final String MARK_SCRIPT =
+            "redis.call('sadd', KEYS[1], ARGV[1]) " +
+            "if tonumber(ARGV[2]) > 0 then redis.call('expire', KEYS[1], ARGV[2]) end " +
+            "return 1";
+
+    private static final DefaultRedisScript<Long> MARK = new DefaultRedisScript<>(MARK_SCRIPT, Long.class);
+
+    private final StringRedisTemplate redisTemplate;
+    private final StockConfig stockConfig;
+    private final RedisMetrics redisMetrics;
+
+    public RedisIdempotencyStore(StringRedisTemplate redisTemplate, StockConfig stockConfig, RedisMetrics redisMetrics) {
+        this.redisTemplate = redisTemplate;
+        this.stockConfig = stockConfig;
+        this.redisMetrics = redisMetrics;
+    }
+
+    /**
+     * 不分段时一次 SISMEMBER; 分段时以管道方式检查所有分段
+     */
+    @Override
+    public boolean isPurchased(long productId, long userId) {
+        int segments = stockConfig.getSegments(productId);
+        String member = String.valueOf(userId);
+        if (segments == 1) {
+            Boolean purchased = redisMetrics.record(RedisMetrics.LETTUCE, RedisMetrics.STOCK, "sismember",
+                    () -> redisTemplate.opsForSet().isMember(RedisStock.usersKey(productId, 0, 1), member));
+            return purchased != null && purchased;
+        }
+        List<Object> results = redisMetrics.record(RedisMetrics.LETTUCE, RedisMetrics.STOCK, "sismember",
+                () -> redisTemplate.executePipelined((RedisCallback<Object>) connection -> {
+                    StringRedisConnection stringConnection = (StringRedisConnection) connection;
+                    for (int segment = 0; segment < segments; segment++) {
+                        stringConnection.sIsMember(RedisStock.usersKey(productId, segment, segments), member);
+                    }
+                    return null;
+                }));
+        return results.contains(Boolean.TRUE);
+    }
+
+    /**
+     * 记录在用户开始尝试的分段, Lua扣减检查该分段时即可发现
+     */
+    @Override
+    public void markPurchased(long productId, long userId) {
+        int segments = stockConfig.getSegments(productId);
+        String key = RedisStock.usersKey(productId, RedisStock.startSegment(userId, segments), segments);
+        redisMetrics.record(RedisMetrics.LETTUCE, RedisMetrics.STOCK, "markPurchased",
+                () -> redisTemplate.execute(MARK, Collections.singletonList(key), String.valueOf(userId),
+                        String.valueOf(stockConfig.getPurchasedTtlSeconds())));
+    }
+}
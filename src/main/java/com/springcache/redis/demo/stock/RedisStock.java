@@ -0,0 +1,185 @@
+package com.springcache.redis.demo.stock;
+
+import com.springcache.redis.demo.config.StockConfig;
+import com.springcache.redis.demo.metrics.RedisMetrics;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.data.redis.core.StringRedisTemplate;
+import org.springframework.data.redis.core.script.DefaultRedisScript;
+import org.springframework.stereotype.Component;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+/**
+ * redis 库存
+ * 库存保存在redis计数器中, 通过一个Lua脚本原子地完成 检查已购用户 -> 检查库存 -> 扣减库存 -> 记录已购用户,
+ * 不需要分布式锁, 吞吐量取决于redis而不是锁的交接。
+ * <p>
+ * 热点商品的库存可以拆分为多个分段, 每个分段有独立的库存KEY和已购用户KEY, 集群模式下分布在不同槽位。
+ * 同一分段的两个KEY使用相同的哈希标签, 落在同一个槽位, 可以在同一个脚本中操作。
+ * 用户从按用户ID散列的分段开始, 按固定顺序依次尝试其余分段:
+ * 不同用户分散到不同分段, 同一用户的并发请求按相同顺序访问分段, 先检查已购用户再检查库存, 不会重复购买。
+ */
+@Slf4j
+@Component
+public class RedisStock {
+
+    //库存KEY前缀
+    private static final String STOCK_KEY = "stock:{";
+    //库存KEY后缀
+    private static final String STOCK_SUFFIX = "}";
+    //已购用户KEY后缀
+    private static final String USERS_SUFFIX = "}:users";
+
+    /**
+     * KEYS[1] 库存, KEYS[2] 已购用户集合
+     * ARGV[1] 用户ID, ARGV[2] 购买数量, ARGV[3] 已购用户集合的过期秒数
+     * 返回: 扣减后的剩余库存; -1 库存不足; -2 重复购买; -3 库存未初始化
+     */
+    private static final String DECREMENT_SCRIPT =
+            "if redis.call('sismember', KEYS[2], ARGV[1]) == 1 then return -2 end " +
+            "local stock = tonumber(redis.call('get', KEYS[1])) " +
+            "if stock == nil then return -3 end " +
+            "local quantity = tonumber(ARGV[2]) " +
+            "if stock < quantity then return -1 end " +
+            "redis.call('sadd', KEYS[2], ARGV[1]) " +
+            "if tonumber(ARGV[3]) > 0 then redis.call('expire', KEYS[2], ARGV[3]) end " +
+            "return redis.call('decrby', KEYS[1], quantity)";
+
+    private static final DefaultRedisScript<Long> DECREMENT = new DefaultRedisScript<>(DECREMENT_SCRIPT, Long.class);
+
+    @Autowired
+    private StringRedisTemplate redisTemplate;
+
+    @Autowired
+    private StockConfig stockConfig;
+
+    @Autowired
+    private RedisMetrics redisMetrics;
+
+    /**
+     * 初始化库存, 按配置的分段数平均拆分, 已存在的分段不覆盖
+     *
+     * @param productId 商品ID
+     * @param stock     库存
+     * @return 是否有分段初始化成功
+     */
+    public boolean init(long productId, int stock) {
+        int segments = stockConfig.getSegments(productId);
+        boolean initialized = false;
+        for (int segment = 0; segment < segments; segment++) {
+            int segmentStock = stock / segments + (segment < stock % segments ? 1 : 0);
+            String key = stockKey(productId, segment, segments);
+            Boolean success = redisMetrics.record(RedisMetrics.LETTUCE, RedisMetrics.STOCK, "setnx",
+                    () -> redisTemplate.opsForValue().setIfAbsent(key, String.valueOf(segmentStock)));
+            initialized |= success != null && success;
+        }
+        return initialized;
+    }
+
+    /**
+     * 补货, 覆盖各分段的库存, 已购用户保留
+     *
+     * @param productId 商品ID
+     * @param stock     新库存
+     */
+    public void reset(long productId, int stock) {
+        int segments = stockConfig.getSegments(productId);
+        for (int segment = 0; segment < segments; segment++) {
+            int segmentStock = stock / segments + (segment < stock % segments ? 1 : 0);
+            String key = stockKey(productId, segment, segments);
+            redisMetrics.record(RedisMetrics.LETTUCE, RedisMetrics.STOCK, "set", () -> {
+                redisTemplate.opsForValue().set(key, String.valueOf(segmentStock));
+                return null;
+            });
+        }
+    }
+
+    /**
+     * 原子扣减库存, 当前分段库存不足时继续尝试其他分段
+     * 单次购买数量不能跨分段凑齐, 分段库存小于购买数量时视为不足
+     *
+     * @param productId 商品ID
+     * @param userId    用户ID
+     * @param quantity  购买数量
+     * @return 脚本返回码, 通过 StockResult.of 转换, 非负数为扣减分段的剩余库存
+     */
+    public long decrement(long productId, long userId, int quantity) {
+        int segments = stockConfig.getSegments(productId);
+        int start = startSegment(userId, segments);
+        long result = -1;
+        for (int i = 0; i < segments; i++) {
+            int segment = (start + i) % segments;
+            List<String> keys = Arrays.asList(stockKey(productId, segment, segments), usersKey(productId, segment, segments));
+            Long code = redisMetrics.record(RedisMetrics.LETTUCE, RedisMetrics.STOCK, "decrement",
+                    () -> redisTemplate.execute(DECREMENT, keys, String.valueOf(userId), String.valueOf(quantity),
+                            String.valueOf(stockConfig.getPurchasedTtlSeconds())));
+            long value = code != null ? code : -3;
+            if (value >= 0 || value == -2) {
+                return value;
+            }
+            // 有分段未初始化时返回-3, 由调用方初始化后重试
+            if (value == -3) {
+                result = -3;
+            }
+        }
+        return result;
+    }
+
+    /**
+     * 查询剩余库存, 各分段之和
+     *
+     * @param productId 商品ID
+     * @return 未初始化返回null
+     */
+    public Integer getStock(long productId) {
+        int segments = stockConfig.getSegments(productId);
+        List<String> keys = new ArrayList<>(segments);
+        for (int segment = 0; segment < segments; segment++) {
+            keys.add(stockKey(productId, segment, segments));
+        }
+        List<String> values = redisMetrics.record(RedisMetrics.LETTUCE, RedisMetrics.STOCK, "mget",
+                () -> redisTemplate.opsForValue().multiGet(keys));
+        if (values == null) {
+            return null;
+        }
+        Integer total = null;
+        for (String value : values) {
+            if (value != null) {
+                total = (total == null ? 0 : total) + Integer.parseInt(value);
+            }
+        }
+        return total;
+    }
+
+    /**
+     * 用户开始尝试的分段
+     */
+    static int startSegment(long userId, int segments) {
+        if (segments == 1) {
+            return 0;
+        }
+        long hash = userId * 0x9E3779B97F4A7C15L;
+        return (int) Math.floorMod(hash ^ (hash >>> 32), (long) segments);
+    }
+
+    /**
+     * 库存KEY, 不分段时为 stock:{productId}, 分段时为 stock:{productId:segment}
+     */
+    private static String stockKey(long productId, int segment, int segments) {
+        return STOCK_KEY + tag(productId, segment, segments) + STOCK_SUFFIX;
+    }
+
+    /**
+     * 已购用户KEY, 与 RedisIdempotencyStore 共用
+     */
+    static String usersKey(long productId, int segment, int segments) {
+        return STOCK_KEY + tag(productId, segment, segments) + USERS_SUFFIX;
+    }
+
+    private static String tag(long productId, int segment, int segments) {
+        return segments == 1 ? String.valueOf(productId) : productId + ":" + segment;
+    }
+}
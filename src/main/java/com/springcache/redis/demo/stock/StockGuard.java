@@ -0,0 +1,265 @@
+package com.springcache.redis.demo.stock;
+
+import com.springcache.redis.demo.config.StockConfig;
+import lombok.extern.slf4j.Slf4j;
+import org.redisson.api.RTopic;
+import org.redisson.api.RedissonClient;
+import org.redisson.client.codec.StringCodec;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.stereotype.Component;
+
+import javax.annotation.PostConstruct;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.UUID;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * 秒杀准入
+ * 扣减库存前先检查本地的售罄标记和令牌桶, 一定不能成功的请求不查询用户、不加锁、不访问redis, 直接拒绝。
+ * 售罄标记只在扣减时确认库存不足后设置, 通过 redis 发布/订阅同步到其他节点, 补货(restock)时清除;
+ * 令牌桶容量按已知的剩余库存调整, 库存越少放行的并发请求越少。
+ * 尚未得知库存的商品不做限制。
+ * <p>
+ * 每次补货使 redis 中的补货代数加一, 售罄消息带上扣减开始时的代数:
+ * 补货前开始、补货后才完成的扣减发出的售罄标记属于旧的代数, 本地和其他节点都会忽略, 不会把刚补货的商品重新标记为售罄。
+ */
+@Slf4j
+@Component
+public class StockGuard {
+
+    //售罄/补货通知的频道
+    private static final String GUARD_TOPIC = "stock::guard";
+    //补货代数KEY前缀
+    private static final String GENERATION_KEY = "stock::guard:generation:";
+    //消息分隔符, 格式: 节点ID|SOLD_OUT|商品ID|代数 或 节点ID|RESTOCK|商品ID|库存|代数
+    private static final String SEPARATOR = "|";
+    private static final String SOLD_OUT = "SOLD_OUT";
+    private static final String RESTOCK = "RESTOCK";
+    //当前节点标识, 忽略自己发出的消息
+    private static final String NODE_ID = UUID.randomUUID().toString();
+
+    @Autowired
+    private RedissonClient redissonClient;
+
+    @Autowired
+    private StockConfig stockConfig;
+
+    //商品ID -> 准入状态
+    private final Map<Long, Guard> guards = new ConcurrentHashMap<>();
+
+    private RTopic topic;
+
+    @PostConstruct
+    public void init() {
+        topic = redissonClient.getTopic(GUARD_TOPIC, StringCodec.INSTANCE);
+        topic.addListener(String.class, (channel, message) -> onMessage(message));
+    }
+
+    /**
+     * 准入检查
+     *
+     * @param productId 商品ID
+     * @return 拒绝的结果: SOLD_OUT 已售罄, REJECTED 超过准入速率; 放行时返回null
+     */
+    public StockResult admit(long productId) {
+        if (!stockConfig.isGuardEnabled()) {
+            return null;
+        }
+        Guard guard = guards.get(productId);
+        if (guard == null) {
+            return null;
+        }
+        if (guard.soldOut) {
+            guard.soldOutRejected.increment();
+            return StockResult.SOLD_OUT;
+        }
+        if (!guard.bucket.tryAcquire()) {
+            guard.throttled.increment();
+            return StockResult.REJECTED;
+        }
+        guard.admitted.increment();
+        return null;
+    }
+
+    /**
+     * 当前的补货代数, 需要在读取库存之前获取, 随扣减结果传给 updateStock / markSoldOut
+     *
+     * @param productId 商品ID
+     * @return 补货代数
+     */
+    public long generation(long productId) {
+        Guard guard = guards.get(productId);
+        return guard != null ? guard.generation : loadGeneration(productId);
+    }
+
+    /**
+     * 扣减后更新剩余库存, 不大于0时标记售罄, 否则清除售罄标记并按剩余库存调整令牌桶容量
+     *
+     * @param productId  商品ID
+     * @param remaining  剩余库存
+     * @param generation 扣减开始时的补货代数
+     */
+    public void updateStock(long productId, long remaining, long generation) {
+        if (remaining <= 0) {
+            markSoldOut(productId, generation);
+            return;
+        }
+        Guard guard = guard(productId);
+        synchronized (guard) {
+            if (generation < guard.generation) {
+                return;
+            }
+            guard.soldOut = false;
+            guard.bucket.resize(capacity(remaining));
+        }
+    }
+
+    /**
+     * 标记售罄并通知其他节点
+     *
+     * @param productId  商品ID
+     * @param generation 扣减开始时的补货代数, 早于当前代数时忽略
+     */
+    public void markSoldOut(long productId, long generation) {
+        if (applySoldOut(productId, generation)) {
+            log.info("商品已售罄, 后续请求直接拒绝->" + productId);
+            publish(SOLD_OUT + SEPARATOR + productId + SEPARATOR + generation);
+        }
+    }
+
+    /**
+     * 补货后清除售罄标记、按新库存填满令牌桶, 并通知其他节点
+     * 需要在更新库存之后调用, 之后开始的扣减才会拿到新的补货代数
+     *
+     * @param productId 商品ID
+     * @param stock     新库存
+     */
+    public void restock(long productId, long stock) {
+        long generation = redissonClient.getAtomicLong(GENERATION_KEY + productId).incrementAndGet();
+        applyRestock(productId, stock, generation);
+        publish(RESTOCK + SEPARATOR + productId + SEPARATOR + stock + SEPARATOR + generation);
+    }
+
+    /**
+     * 准入统计
+     *
+     * @return 商品ID -> soldOut 是否售罄, generation 补货代数, capacity 令牌桶容量, available 可用令牌, admitted 放行次数,
+     * soldOutRejected 因售罄拒绝次数, throttled 因限流拒绝次数
+     */
+    public Map<Long, Map<String, Object>> getStats() {
+        Map<Long, Map<String, Object>> stats = new TreeMap<>();
+        for (Map.Entry<Long, Guard> entry : guards.entrySet()) {
+            Guard guard = entry.getValue();
+            Map<String, Object> stat = new LinkedHashMap<>();
+            stat.put("soldOut", guard.soldOut);
+            stat.put("generation", guard.generation);
+            stat.put("capacity", guard.bucket.getCapacity());
+            stat.put("available", guard.bucket.available());
+            stat.put("admitted", guard.admitted.sum());
+            stat.put("soldOutRejected", guard.soldOutRejected.sum());
+            stat.put("throttled", guard.throttled.sum());
+            stats.put(entry.getKey(), stat);
+        }
+        return stats;
+    }
+
+    /**
+     * @return 是否由未售罄变为售罄
+     */
+    private boolean applySoldOut(long productId, long generation) {
+        Guard guard = guard(productId);
+        synchronized (guard) {
+            if (guard.soldOut || generation < guard.generation) {
+                return false;
+            }
+            guard.soldOut = true;
+            return true;
+        }
+    }
+
+    private void applyRestock(long productId, long stock, long generation) {
+        Guard guard = guard(productId);
+        synchronized (guard) {
+            // 消息可能乱序到达, 只接受更新的代数
+            if (generation < guard.generation) {
+                return;
+            }
+            guard.generation = generation;
+            guard.bucket.reset(capacity(stock));
+            guard.soldOut = stock <= 0;
+        }
+        log.info("商品补货, 清除售罄标记->" + productId + ", 库存 " + stock + ", 代数 " + generation);
+    }
+
+    private Guard guard(long productId) {
+        Guard guard = guards.get(productId);
+        if (guard != null) {
+            return guard;
+        }
+        // 新建时从redis读取当前代数, 节点重启后不会把其他节点的售罄消息当作更新的代数
+        long generation = loadGeneration(productId);
+        return guards.computeIfAbsent(productId, id -> new Guard(capacity(0), stockConfig.getAdmissionRefillPerSecond(), generation));
+    }
+
+    private long loadGeneration(long productId) {
+        try {
+            return redissonClient.getAtomicLong(GENERATION_KEY + productId).get();
+        } catch (Exception ex) {
+            log.error("读取补货代数异常!->" + ex.getMessage());
+            return 0;
+        }
+    }
+
+    private long capacity(long stock) {
+        return Math.max(stockConfig.getAdmissionMinTokens(), stock * stockConfig.getAdmissionMultiplier());
+    }
+
+    private void publish(String message) {
+        try {
+            topic.publish(NODE_ID + SEPARATOR + message);
+        } catch (Exception ex) {
+            log.error("发布售罄/补货消息异常!->" + ex.getMessage());
+        }
+    }
+
+    /**
+     * 处理其他节点发出的售罄/补货消息
+     */
+    private void onMessage(String message) {
+        String[] parts = message.split("\\" + SEPARATOR);
+        if (parts.length < 3 || NODE_ID.equals(parts[0])) {
+            return;
+        }
+        try {
+            long productId = Long.parseLong(parts[2]);
+            if (SOLD_OUT.equals(parts[1]) && parts.length == 4) {
+                applySoldOut(productId, Long.parseLong(parts[3]));
+            } else if (RESTOCK.equals(parts[1]) && parts.length == 5) {
+                applyRestock(productId, Long.parseLong(parts[3]), Long.parseLong(parts[4]));
+            }
+        } catch (NumberFormatException ex) {
+            log.warn("无效的售罄/补货消息->" + message);
+        }
+    }
+
+    /**
+     * 一个商品的准入状态
+     */
+    private static class Guard {
+        private final TokenBucket bucket;
+        private volatile boolean soldOut;
+        //最近一次补货的代数, 只在持有 Guard 锁时修改
+        private volatile long generation;
+        private final LongAdder admitted = new LongAdder();
+        private final LongAdder soldOutRejected = new LongAdder();
+        private final LongAdder throttled = new LongAdder();
+
+        Guard(long capacity, long refillPerSecond, long generation) {
+            this.bucket = new TokenBucket(capacity, refillPerSecond);
+            this.generation = generation;
+        }
+    }
+}
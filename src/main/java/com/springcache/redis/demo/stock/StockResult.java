@@ -0,0 +1,54 @@
+package com.springcache.redis.demo.stock;
+
+/**
+ * 扣减库存结果
+ */
+public enum StockResult {
+    /**
+     * 扣减成功
+     */
+    SUCCESS,
+    /**
+     * 库存不足
+     */
+    SOLD_OUT,
+    /**
+     * 用户已购买过该商品
+     */
+    DUPLICATE,
+    /**
+     * 库存未初始化
+     */
+    NOT_INITIALIZED,
+    /**
+     * 超过准入速率, 未访问redis直接拒绝
+     */
+    REJECTED,
+    /**
+     * 获取分布式锁失败
+     */
+    LOCK_FAILED,
+    /**
+     * 处理异常
+     */
+    ERROR;
+
+    /**
+     * 脚本返回码转换为结果, 非负数为扣减后的剩余库存
+     *
+     * @param code 脚本返回码
+     * @return 结果
+     */
+    public static StockResult of(long code) {
+        if (code >= 0) {
+            return SUCCESS;
+        }
+        if (code == -1) {
+            return SOLD_OUT;
+        }
+        if (code == -2) {
+            return DUPLICATE;
+        }
+        return NOT_INITIALIZED;
+    }
+}
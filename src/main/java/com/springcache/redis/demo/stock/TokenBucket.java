@@ -0,0 +1,102 @@
+package com.springcache.redis.demo.stock;
+
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.LongSupplier;
+
+/**
+ * 无锁令牌桶
+ * 令牌按固定速率补充, 最多 capacity 个; 补充在获取令牌时按经过的时间计算, 不需要后台线程。
+ * 获取令牌只有几次 CAS, 不访问redis。
+ */
+public class TokenBucket {
+
+    //补充一个令牌的纳秒数, 0 表示不补充
+    private final long nanosPerToken;
+    private final LongSupplier clock;
+    private final AtomicLong tokens;
+    private final AtomicLong lastRefillNanos;
+    private volatile long capacity;
+
+    /**
+     * @param capacity        桶容量, 初始为满
+     * @param refillPerSecond 每秒补充的令牌数, 不大于0时不补充
+     */
+    public TokenBucket(long capacity, long refillPerSecond) {
+        this(capacity, refillPerSecond, System::nanoTime);
+    }
+
+    TokenBucket(long capacity, long refillPerSecond, LongSupplier clock) {
+        this.nanosPerToken = refillPerSecond > 0 ? Math.max(1, TimeUnit.SECONDS.toNanos(1) / refillPerSecond) : 0;
+        this.clock = clock;
+        this.capacity = capacity;
+        this.tokens = new AtomicLong(capacity);
+        this.lastRefillNanos = new AtomicLong(clock.getAsLong());
+    }
+
+    /**
+     * 获取一个令牌
+     *
+     * @return 是否获取成功
+     */
+    public boolean tryAcquire() {
+        refill();
+        while (true) {
+            long current = tokens.get();
+            if (current <= 0) {
+                return false;
+            }
+            if (tokens.compareAndSet(current, current - 1)) {
+                return true;
+            }
+        }
+    }
+
+    /**
+     * 调整容量, 超出新容量的令牌丢弃
+     *
+     * @param capacity 新容量
+     */
+    public void resize(long capacity) {
+        this.capacity = capacity;
+        tokens.accumulateAndGet(capacity, Math::min);
+    }
+
+    /**
+     * 调整容量并填满
+     *
+     * @param capacity 新容量
+     */
+    public void reset(long capacity) {
+        this.capacity = capacity;
+        lastRefillNanos.set(clock.getAsLong());
+        tokens.set(capacity);
+    }
+
+    /**
+     * 当前可用的令牌数
+     */
+    public long available() {
+        refill();
+        return tokens.get();
+    }
+
+    public long getCapacity() {
+        return capacity;
+    }
+
+    /**
+     * 按经过的时间补充令牌, 只有一个线程能推进补充时间
+     */
+    private void refill() {
+        if (nanosPerToken == 0) {
+            return;
+        }
+        long last = lastRefillNanos.get();
+        long add = (clock.getAsLong() - last) / nanosPerToken;
+        if (add > 0 && lastRefillNanos.compareAndSet(last, last + add * nanosPerToken)) {
+            long limit = capacity;
+            tokens.accumulateAndGet(add, (current, delta) -> Math.min(limit, current + delta));
+        }
+    }
+}
@@ -0,0 +1,43 @@
+package com.springcache.redis.demo.store;
+
+import java.util.function.LongConsumer;
+
+/**
+ * long 主键的本地实体存储, 线程安全, 主键不装箱
+ * 用作服务的本地/压测存储, 由 LongKeyStoreFactory 按 store.properties 选择堆内或堆外实现。
+ */
+public interface LongKeyStore<V> {
+    /**
+     * @param key 主键
+     * @return 值, 不存在时返回null
+     */
+    V get(long key);
+
+    /**
+     * 写入, 已存在时覆盖
+     *
+     * @param key   主键
+     * @param value 值, 不能为null
+     */
+    void put(long key, V value);
+
+    /**
+     * 删除
+     *
+     * @param key 主键
+     * @return 是否存在
+     */
+    boolean remove(long key);
+
+    /**
+     * 元素数量
+     */
+    int size();
+
+    /**
+     * 遍历所有主键, 遍历期间的写入可能不可见
+     *
+     * @param action 处理每个主键
+     */
+    void forEachKey(LongConsumer action);
+}
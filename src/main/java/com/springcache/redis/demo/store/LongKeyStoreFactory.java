@@ -0,0 +1,49 @@
+package com.springcache.redis.demo.store;
+
+import com.springcache.redis.demo.cache.CacheCodec;
+import com.springcache.redis.demo.config.StoreConfig;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.stereotype.Component;
+
+import java.util.List;
+
+/**
+ * 按 store.properties 创建本地实体存储
+ */
+@Slf4j
+@Component
+public class LongKeyStoreFactory {
+
+    @Autowired
+    private StoreConfig storeConfig;
+
+    @Autowired
+    private List<CacheCodec> codecList;
+
+    /**
+     * 创建存储
+     *
+     * @param name 存储名称, 用于日志
+     * @param type 值的类型, 堆外存储按此类型解码
+     * @return 堆内或堆外存储
+     */
+    public <V> LongKeyStore<V> create(String name, Class<V> type) {
+        int stripes = storeConfig.getStripes();
+        int expectedSize = storeConfig.getExpectedSize();
+        if (!storeConfig.isOffHeap()) {
+            return new StripedLongKeyStore<>(stripes, expectedSize);
+        }
+        log.info("本地存储使用堆外内存->" + name + ", 编解码 " + storeConfig.getCodec());
+        return new OffHeapLongKeyStore<>(stripes, expectedSize, codec(storeConfig.getCodec()), type);
+    }
+
+    private CacheCodec codec(String name) {
+        for (CacheCodec codec : codecList) {
+            if (codec.name().equals(name)) {
+                return codec;
+            }
+        }
+        throw new IllegalArgumentException("未找到编解码->" + name);
+    }
+}
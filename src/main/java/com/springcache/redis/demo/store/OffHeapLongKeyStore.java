@@ -0,0 +1,344 @@
+package com.springcache.redis.demo.store;
+
+import com.springcache.redis.demo.cache.CacheCodec;
+import com.springcache.redis.demo.utils.LongHashing;
+
+import java.nio.ByteBuffer;
+import java.util.function.LongConsumer;
+import java.util.concurrent.locks.StampedLock;
+
+/**
+ * 堆外分段存储
+ * 分段和散列方式与 StripedLongKeyStore 相同, 但值由 CacheCodec 编码后存放在每个分段自己的直接内存区(DirectByteBuffer),
+ * 记录格式为 [int 长度][字节], 表中只保存 记录偏移+1 (0 表示空槽位)。
+ * 堆上只有 long[] 和 int[] 两个数组, 千万级实体也不会增加GC扫描的对象数量, 代价是每次读取都要解码出新对象。
+ * 覆盖和删除留下的旧记录计为垃圾, 内存区写满时垃圾过半则整理, 否则扩容一倍; 单个分段的内存区不超过2GB。
+ */
+public class OffHeapLongKeyStore<V> implements LongKeyStore<V> {
+
+    //记录头: 值的字节长度
+    private static final int HEADER_BYTES = Integer.BYTES;
+    //单个分段内存区的上限
+    private static final int MAX_ARENA_BYTES = Integer.MAX_VALUE - 8;
+    //按每个值约64字节估算初始内存区
+    private static final int ESTIMATED_VALUE_BYTES = 64;
+
+    private final Segment[] segments;
+    private final int segmentMask;
+    private final CacheCodec codec;
+    private final Class<V> type;
+
+    /**
+     * @param stripes      分段数, 向上取2的幂
+     * @param expectedSize 预计元素数量, 用于确定初始容量
+     * @param codec        值的编解码
+     * @param type         值的类型
+     */
+    public OffHeapLongKeyStore(int stripes, int expectedSize, CacheCodec codec, Class<V> type) {
+        int count = LongHashing.powerOfTwo(Math.max(1, stripes));
+        int perSegment = expectedSize / count + 1;
+        segments = new Segment[count];
+        for (int i = 0; i < count; i++) {
+            segments[i] = new Segment(LongHashing.tableSize(perSegment),
+                    (int) Math.min(MAX_ARENA_BYTES, Math.max(4096L, (long) perSegment * ESTIMATED_VALUE_BYTES)));
+        }
+        segmentMask = count - 1;
+        this.codec = codec;
+        this.type = type;
+    }
+
+    @Override
+    public V get(long key) {
+        long hash = LongHashing.mix(key);
+        byte[] bytes = segment(hash).get(key, (int) hash);
+        return bytes != null ? codec.decode(bytes, type) : null;
+    }
+
+    @Override
+    public void put(long key, V value) {
+        if (value == null) {
+            throw new IllegalArgumentException("值不能为null->" + key);
+        }
+        long hash = LongHashing.mix(key);
+        segment(hash).put(key, (int) hash, codec.encode(value));
+    }
+
+    @Override
+    public boolean remove(long key) {
+        long hash = LongHashing.mix(key);
+        return segment(hash).remove(key, (int) hash);
+    }
+
+    @Override
+    public int size() {
+        int size = 0;
+        for (Segment segment : segments) {
+            size += segment.size;
+        }
+        return size;
+    }
+
+    @Override
+    public void forEachKey(LongConsumer action) {
+        for (Segment segment : segments) {
+            segment.forEachKey(action);
+        }
+    }
+
+    /**
+     * 已分配的直接内存字节数
+     */
+    public long getOffHeapBytes() {
+        long bytes = 0;
+        for (Segment segment : segments) {
+            bytes += segment.arena.capacity();
+        }
+        return bytes;
+    }
+
+    /**
+     * 等待整理的旧记录字节数
+     */
+    public long getGarbageBytes() {
+        long bytes = 0;
+        for (Segment segment : segments) {
+            bytes += segment.garbage;
+        }
+        return bytes;
+    }
+
+    private Segment segment(long hash) {
+        return segments[(int) (hash >>> 32) & segmentMask];
+    }
+
+    /**
+     * 一个分段, 表和内存区只在写锁内修改; 扩容和整理时替换为新的对象, 乐观读持有的旧对象仍然可读
+     */
+    private static final class Segment {
+        private final StampedLock lock = new StampedLock();
+        private volatile Table table;
+        private volatile ByteBuffer arena;
+        //内存区下一条记录的偏移
+        private int position;
+        private volatile long garbage;
+        private volatile int size;
+
+        Segment(int capacity, int arenaBytes) {
+            table = new Table(capacity);
+            arena = ByteBuffer.allocateDirect(arenaBytes);
+        }
+
+        byte[] get(long key, int hash) {
+            long stamp = lock.tryOptimisticRead();
+            if (stamp != 0) {
+                Table currentTable = table;
+                ByteBuffer currentArena = arena;
+                int offset = find(currentTable, key, hash);
+                if (offset < 0) {
+                    if (lock.validate(stamp)) {
+                        return null;
+                    }
+                } else if (offset + HEADER_BYTES <= currentArena.capacity()) {
+                    int length = currentArena.getInt(offset);
+                    // 先确认偏移和长度一致, 再按长度分配和复制
+                    if (lock.validate(stamp)) {
+                        byte[] bytes = read(currentArena, offset, length);
+                        if (lock.validate(stamp)) {
+                            return bytes;
+                        }
+                    }
+                }
+            }
+            stamp = lock.readLock();
+            try {
+                int offset = find(table, key, hash);
+                return offset < 0 ? null : read(arena, offset, arena.getInt(offset));
+            } finally {
+                lock.unlockRead(stamp);
+            }
+        }
+
+        void put(long key, int hash, byte[] bytes) {
+            long stamp = lock.writeLock();
+            try {
+                // 先写入记录, 整理内存区会改写表中的偏移
+                int offset = append(bytes);
+                Table current = table;
+                int mask = current.keys.length - 1;
+                int i = hash & mask;
+                while (current.refs[i] != 0) {
+                    if (current.keys[i] == key) {
+                        garbage += recordBytes(current.refs[i] - 1);
+                        current.refs[i] = offset + 1;
+                        return;
+                    }
+                    i = (i + 1) & mask;
+                }
+                current.keys[i] = key;
+                current.refs[i] = offset + 1;
+                size++;
+                if (size * 2 > current.keys.length) {
+                    table = current.resize();
+                }
+            } finally {
+                lock.unlockWrite(stamp);
+            }
+        }
+
+        boolean remove(long key, int hash) {
+            long stamp = lock.writeLock();
+            try {
+                Table current = table;
+                int mask = current.keys.length - 1;
+                int hole = hash & mask;
+                while (current.refs[hole] != 0 && current.keys[hole] != key) {
+                    hole = (hole + 1) & mask;
+                }
+                if (current.refs[hole] == 0) {
+                    return false;
+                }
+                garbage += recordBytes(current.refs[hole] - 1);
+                // 向前移动后续元素填补空位
+                for (int i = (hole + 1) & mask; current.refs[i] != 0; i = (i + 1) & mask) {
+                    int home = (int) LongHashing.mix(current.keys[i]) & mask;
+                    if (LongHashing.canShift(hole, i, home)) {
+                        current.keys[hole] = current.keys[i];
+                        current.refs[hole] = current.refs[i];
+                        hole = i;
+                    }
+                }
+                current.keys[hole] = 0;
+                current.refs[hole] = 0;
+                size--;
+                return true;
+            } finally {
+                lock.unlockWrite(stamp);
+            }
+        }
+
+        void forEachKey(LongConsumer action) {
+            long stamp = lock.readLock();
+            try {
+                Table current = table;
+                for (int i = 0; i < current.keys.length; i++) {
+                    if (current.refs[i] != 0) {
+                        action.accept(current.keys[i]);
+                    }
+                }
+            } finally {
+                lock.unlockRead(stamp);
+            }
+        }
+
+        /**
+         * 在内存区末尾写入一条记录, 空间不足时整理或扩容
+         *
+         * @return 记录偏移
+         */
+        private int append(byte[] bytes) {
+            int need = HEADER_BYTES + bytes.length;
+            if ((long) position + need > arena.capacity()) {
+                reserve(need);
+            }
+            int offset = position;
+            ByteBuffer view = arena.duplicate();
+            view.position(offset);
+            view.putInt(bytes.length);
+            view.put(bytes);
+            position = offset + need;
+            return offset;
+        }
+
+        /**
+         * 垃圾过半时按原大小整理, 否则扩容一倍, 都不够时按实际需要分配
+         */
+        private void reserve(int need) {
+            long live = position - garbage;
+            long capacity = arena.capacity();
+            if (garbage * 2 < position) {
+                capacity *= 2;
+            }
+            capacity = Math.max(capacity, live + need);
+            if (capacity > MAX_ARENA_BYTES) {
+                if (live + need > MAX_ARENA_BYTES) {
+                    throw new IllegalStateException("分段堆外内存已满->" + (live + need) + " 字节");
+                }
+                capacity = MAX_ARENA_BYTES;
+            }
+            ByteBuffer compacted = ByteBuffer.allocateDirect((int) capacity);
+            Table current = table;
+            for (int i = 0; i < current.refs.length; i++) {
+                if (current.refs[i] != 0) {
+                    int offset = current.refs[i] - 1;
+                    ByteBuffer record = arena.duplicate();
+                    record.position(offset).limit(offset + recordBytes(offset));
+                    current.refs[i] = compacted.position() + 1;
+                    compacted.put(record);
+                }
+            }
+            position = compacted.position();
+            garbage = 0;
+            arena = compacted;
+        }
+
+        private int recordBytes(int offset) {
+            return HEADER_BYTES + arena.getInt(offset);
+        }
+
+        /**
+         * @return 记录偏移, 不存在时返回-1
+         */
+        private static int find(Table table, long key, int hash) {
+            int mask = table.keys.length - 1;
+            int i = hash & mask;
+            for (int probes = 0; probes <= mask; probes++) {
+                int ref = table.refs[i];
+                if (ref == 0) {
+                    return -1;
+                }
+                if (table.keys[i] == key) {
+                    return ref - 1;
+                }
+                i = (i + 1) & mask;
+            }
+            return -1;
+        }
+
+        private static byte[] read(ByteBuffer arena, int offset, int length) {
+            byte[] bytes = new byte[length];
+            ByteBuffer view = arena.duplicate();
+            view.position(offset + HEADER_BYTES);
+            view.get(bytes);
+            return bytes;
+        }
+    }
+
+    /**
+     * 主键和记录引用的数组, 扩容时整体替换
+     */
+    private static final class Table {
+        private final long[] keys;
+        private final int[] refs;
+
+        Table(int capacity) {
+            keys = new long[capacity];
+            refs = new int[capacity];
+        }
+
+        Table resize() {
+            Table resized = new Table(keys.length * 2);
+            int mask = resized.keys.length - 1;
+            for (int i = 0; i < keys.length; i++) {
+                if (refs[i] != 0) {
+                    int j = (int) LongHashing.mix(keys[i]) & mask;
+                    while (resized.refs[j] != 0) {
+                        j = (j + 1) & mask;
+                    }
+                    resized.keys[j] = keys[i];
+                    resized.refs[j] = refs[i];
+                }
+            }
+            return resized;
+        }
+    }
+}
@@ -0,0 +1,219 @@
+package com.springcache.redis.demo.store;
+
+import com.springcache.redis.demo.utils.LongHashing;
+
+import java.util.function.LongConsumer;
+import java.util.concurrent.locks.StampedLock;
+
+/**
+ * 堆内分段存储
+ * 按主键散列到 stripes 个分段, 每个分段一个开放寻址表(long[] 主键 + Object[] 值, 线性探测, 装载因子不超过1/2)
+ * 和一把 StampedLock: 读取先乐观读, 期间有写入才退回读锁; 写入只锁一个分段。
+ * 删除时向前移动后续元素, 不留删除标记, 表不会因反复增删而变慢。
+ */
+public class StripedLongKeyStore<V> implements LongKeyStore<V> {
+
+    private final Segment<V>[] segments;
+    private final int segmentMask;
+
+    /**
+     * @param stripes      分段数, 向上取2的幂
+     * @param expectedSize 预计元素数量, 用于确定初始容量
+     */
+    @SuppressWarnings("unchecked")
+    public StripedLongKeyStore(int stripes, int expectedSize) {
+        int count = LongHashing.powerOfTwo(Math.max(1, stripes));
+        segments = new Segment[count];
+        for (int i = 0; i < count; i++) {
+            segments[i] = new Segment<>(LongHashing.tableSize(expectedSize / count + 1));
+        }
+        segmentMask = count - 1;
+    }
+
+    @Override
+    public V get(long key) {
+        long hash = LongHashing.mix(key);
+        return segment(hash).get(key, (int) hash);
+    }
+
+    @Override
+    public void put(long key, V value) {
+        if (value == null) {
+            throw new IllegalArgumentException("值不能为null->" + key);
+        }
+        long hash = LongHashing.mix(key);
+        segment(hash).put(key, (int) hash, value);
+    }
+
+    @Override
+    public boolean remove(long key) {
+        long hash = LongHashing.mix(key);
+        return segment(hash).remove(key, (int) hash);
+    }
+
+    @Override
+    public int size() {
+        int size = 0;
+        for (Segment<V> segment : segments) {
+            size += segment.size;
+        }
+        return size;
+    }
+
+    @Override
+    public void forEachKey(LongConsumer action) {
+        for (Segment<V> segment : segments) {
+            segment.forEachKey(action);
+        }
+    }
+
+    private Segment<V> segment(long hash) {
+        return segments[(int) (hash >>> 32) & segmentMask];
+    }
+
+    /**
+     * 一个分段, 值为null的槽位为空
+     */
+    private static final class Segment<V> {
+        private final StampedLock lock = new StampedLock();
+        private volatile Table table;
+        private volatile int size;
+
+        Segment(int capacity) {
+            table = new Table(capacity);
+        }
+
+        V get(long key, int hash) {
+            long stamp = lock.tryOptimisticRead();
+            if (stamp != 0) {
+                V value = find(table, key, hash);
+                if (lock.validate(stamp)) {
+                    return value;
+                }
+            }
+            stamp = lock.readLock();
+            try {
+                return find(table, key, hash);
+            } finally {
+                lock.unlockRead(stamp);
+            }
+        }
+
+        void put(long key, int hash, V value) {
+            long stamp = lock.writeLock();
+            try {
+                Table current = table;
+                int mask = current.keys.length - 1;
+                int i = hash & mask;
+                while (current.values[i] != null) {
+                    if (current.keys[i] == key) {
+                        current.values[i] = value;
+                        return;
+                    }
+                    i = (i + 1) & mask;
+                }
+                current.keys[i] = key;
+                current.values[i] = value;
+                size++;
+                if (size * 2 > current.keys.length) {
+                    table = current.resize();
+                }
+            } finally {
+                lock.unlockWrite(stamp);
+            }
+        }
+
+        boolean remove(long key, int hash) {
+            long stamp = lock.writeLock();
+            try {
+                Table current = table;
+                int mask = current.keys.length - 1;
+                int hole = hash & mask;
+                while (current.values[hole] != null && current.keys[hole] != key) {
+                    hole = (hole + 1) & mask;
+                }
+                if (current.values[hole] == null) {
+                    return false;
+                }
+                // 向前移动后续元素填补空位
+                for (int i = (hole + 1) & mask; current.values[i] != null; i = (i + 1) & mask) {
+                    int home = (int) LongHashing.mix(current.keys[i]) & mask;
+                    if (LongHashing.canShift(hole, i, home)) {
+                        current.keys[hole] = current.keys[i];
+                        current.values[hole] = current.values[i];
+                        hole = i;
+                    }
+                }
+                current.keys[hole] = 0;
+                current.values[hole] = null;
+                size--;
+                return true;
+            } finally {
+                lock.unlockWrite(stamp);
+            }
+        }
+
+        void forEachKey(LongConsumer action) {
+            long stamp = lock.readLock();
+            try {
+                Table current = table;
+                for (int i = 0; i < current.keys.length; i++) {
+                    if (current.values[i] != null) {
+                        action.accept(current.keys[i]);
+                    }
+                }
+            } finally {
+                lock.unlockRead(stamp);
+            }
+        }
+
+        /**
+         * 乐观读时表可能正在被修改, 最多探测整张表, 结果由调用方校验
+         */
+        @SuppressWarnings("unchecked")
+        private static <V> V find(Table table, long key, int hash) {
+            int mask = table.keys.length - 1;
+            int i = hash & mask;
+            for (int probes = 0; probes <= mask; probes++) {
+                Object value = table.values[i];
+                if (value == null) {
+                    return null;
+                }
+                if (table.keys[i] == key) {
+                    return (V) value;
+                }
+                i = (i + 1) & mask;
+            }
+            return null;
+        }
+    }
+
+    /**
+     * 主键和值的数组, 扩容时整体替换
+     */
+    private static final class Table {
+        private final long[] keys;
+        private final Object[] values;
+
+        Table(int capacity) {
+            keys = new long[capacity];
+            values = new Object[capacity];
+        }
+
+        Table resize() {
+            Table resized = new Table(keys.length * 2);
+            int mask = resized.keys.length - 1;
+            for (int i = 0; i < keys.length; i++) {
+                if (values[i] != null) {
+                    int j = (int) LongHashing.mix(keys[i]) & mask;
+                    while (resized.values[j] != null) {
+                        j = (j + 1) & mask;
+                    }
+                    resized.keys[j] = keys[i];
+                    resized.values[j] = values[i];
+                }
+            }
+            return resized;
+        }
+    }
+}
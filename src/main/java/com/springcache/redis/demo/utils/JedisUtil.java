@@ -1,42 +1,164 @@
 package com.springcache.redis.demo.utils;
 
-import com.springcache.redis.demo.config.JedisConfig;
-import org.springframework.beans.factory.annotation.Autowired;
-import org.springframework.boot.context.properties.EnableConfigurationProperties;
-import org.springframework.stereotype.Component;
 import redis.clients.jedis.Jedis;
-import redis.clients.jedis.JedisPool;
-import redis.clients.jedis.JedisPoolConfig;
+import redis.clients.jedis.JedisSlotBasedConnectionHandler;
+import redis.clients.jedis.exceptions.JedisMovedDataException;
+import redis.clients.jedis.util.JedisClusterCRC16;
+import redis.clients.jedis.util.Pool;
 
-@Component
-@EnableConfigurationProperties(JedisConfig.class)
-public class JedisUtil {
-    @Autowired
-    private JedisConfig jedisConfig;
+import java.io.Closeable;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.function.Function;
+import java.util.function.ToLongFunction;
 
-    private JedisPool jedisPool = null;
+/**
+ * 从共享连接池借用 Jedis 实例
+ * Jedis 非线程安全, 每次使用时借用, 用完 close() 归还:
+ * <pre>
+ * try (Jedis jedis = jedisUtil.getJedis()) {
+ *     jedis.get(key);
+ * }
+ * </pre>
+ * 单机、主从、哨兵模式使用主节点的连接池; 集群模式每个节点一个连接池, 按KEY的槽位选择节点。
+ * 由 JedisAutoConfig 按 topology.properties 创建。
+ */
+public class JedisUtil implements Closeable {
+
+    //单机、主从、哨兵模式
+    private final Pool<Jedis> pool;
+
+    //集群模式
+    private final JedisSlotBasedConnectionHandler clusterHandler;
+
+    public JedisUtil(Pool<Jedis> pool) {
+        this.pool = pool;
+        this.clusterHandler = null;
+    }
+
+    public JedisUtil(JedisSlotBasedConnectionHandler clusterHandler) {
+        this.pool = null;
+        this.clusterHandler = clusterHandler;
+    }
 
     /**
-     * 获取 Jedis 实例
+     * 获取 Jedis 实例, 调用方负责 close() 归还连接池
+     * 集群模式下返回任意节点的连接, 只用于订阅等与KEY无关的操作
      *
      * @return
      */
     public Jedis getJedis() {
-        try {
-            JedisPoolConfig config = new JedisPoolConfig();
-            config.setMaxTotal(jedisConfig.getMaxTotal());
-            config.setMaxIdle(jedisConfig.getMaxIdle());
-            config.setMaxWaitMillis(jedisConfig.getMaxWait());
-            config.setTestOnBorrow(jedisConfig.getTestOnBorrow());
-            config.setTestOnReturn(jedisConfig.getTestOnReturn());
-            jedisPool = new JedisPool(config, jedisConfig.getHost(), jedisConfig.getPort(),
-                    jedisConfig.getTimeOut(), jedisConfig.getPassword());
-        } catch (Exception e) {
-            e.printStackTrace();
+        return pool != null ? pool.getResource() : clusterHandler.getConnection();
+    }
+
+    /**
+     * 获取 KEY 所在节点的 Jedis 实例, 调用方负责 close() 归还连接池
+     *
+     * @param key
+     * @return
+     */
+    public Jedis getJedis(String key) {
+        return pool != null ? pool.getResource() : clusterHandler.getConnectionFromSlot(JedisClusterCRC16.getSlot(key));
+    }
+
+    /**
+     * 借用一个 Jedis 实例执行操作, 结束后自动归还
+     *
+     * @param action 操作
+     * @return 操作结果
+     */
+    public <T> T execute(Function<Jedis, T> action) {
+        try (Jedis jedis = getJedis()) {
+            return action.apply(jedis);
+        }
+    }
+
+    /**
+     * 借用 KEY 所在节点的 Jedis 实例执行操作, 结束后自动归还
+     * 集群槽位迁移后收到 MOVED 时刷新槽位信息并重试一次
+     *
+     * @param key    操作的KEY
+     * @param action 操作
+     * @return 操作结果
+     */
+    public <T> T execute(String key, Function<Jedis, T> action) {
+        try (Jedis jedis = getJedis(key)) {
+            return action.apply(jedis);
+        } catch (JedisMovedDataException e) {
+            if (clusterHandler == null) {
+                throw e;
+            }
+            clusterHandler.renewSlotCache();
+            try (Jedis jedis = getJedis(key)) {
+                return action.apply(jedis);
+            }
         }
-        if (jedisPool != null) {
-            return jedisPool.getResource();
+    }
+
+    public int getNumActive() {
+        return (int) sum(Pool::getNumActive);
+    }
+
+    public int getNumIdle() {
+        return (int) sum(Pool::getNumIdle);
+    }
+
+    public int getNumWaiters() {
+        return (int) sum(Pool::getNumWaiters);
+    }
+
+    public long getMeanBorrowWaitMillis() {
+        Collection<? extends Pool<Jedis>> pools = pools();
+        return pools.isEmpty() ? 0 : sum(Pool::getMeanBorrowWaitTimeMillis) / pools.size();
+    }
+
+    public long getMaxBorrowWaitMillis() {
+        long max = 0;
+        for (Pool<Jedis> p : pools()) {
+            max = Math.max(max, p.getMaxBorrowWaitTimeMillis());
+        }
+        return max;
+    }
+
+    /**
+     * 连接池状态, 集群模式为所有节点的合计
+     *
+     * @return active 借出的连接数, idle 空闲连接数, waiters 等待借用的线程数,
+     * meanBorrowWaitMillis / maxBorrowWaitMillis 借用连接的平均/最长等待毫秒
+     */
+    public Map<String, Number> getPoolStats() {
+        Map<String, Number> stats = new LinkedHashMap<>();
+        stats.put("active", getNumActive());
+        stats.put("idle", getNumIdle());
+        stats.put("waiters", getNumWaiters());
+        stats.put("meanBorrowWaitMillis", getMeanBorrowWaitMillis());
+        stats.put("maxBorrowWaitMillis", getMaxBorrowWaitMillis());
+        return stats;
+    }
+
+    @Override
+    public void close() {
+        if (pool != null) {
+            pool.close();
+        } else {
+            clusterHandler.close();
+        }
+    }
+
+    private long sum(ToLongFunction<Pool<Jedis>> metric) {
+        long total = 0;
+        for (Pool<Jedis> p : pools()) {
+            total += metric.applyAsLong(p);
+        }
+        return total;
+    }
+
+    private Collection<? extends Pool<Jedis>> pools() {
+        if (pool != null) {
+            return Collections.singletonList(pool);
         }
-        return null;
+        return clusterHandler.getNodes().values();
     }
 }
@@ -0,0 +1,46 @@
+package com.springcache.redis.demo.utils;
+
+/**
+ * long 主键的散列及开放寻址表的公共计算
+ * LongKeyStore 用高32位选择分段、低32位选择槽位; LongHashSet 及字符串哈希的最后一步也使用同一个 mix
+ */
+public final class LongHashing {
+
+    private LongHashing() {
+    }
+
+    /**
+     * murmur3 fmix64, 连续的ID也能均匀分布
+     */
+    public static long mix(long key) {
+        long h = key;
+        h ^= h >>> 33;
+        h *= 0xff51afd7ed558ccdL;
+        h ^= h >>> 33;
+        h *= 0xc4ceb9fe1a85ec53L;
+        h ^= h >>> 33;
+        return h;
+    }
+
+    /**
+     * 不小于 value 的2的幂
+     */
+    public static int powerOfTwo(int value) {
+        return value <= 1 ? 1 : Integer.highestOneBit(value - 1) << 1;
+    }
+
+    /**
+     * 容纳 expectedSize 个元素且装载因子不超过1/2的表长度
+     */
+    public static int tableSize(int expectedSize) {
+        return Math.max(16, powerOfTwo(expectedSize * 2));
+    }
+
+    /**
+     * 线性探测删除时, 位于 slot 的元素(初始槽位 home)能否移动到空出的槽位 hole
+     * home 不在 (hole, slot] 区间内(循环)时可以移动
+     */
+    public static boolean canShift(int hole, int slot, int home) {
+        return hole <= slot ? home <= hole || home > slot : home <= hole && home > slot;
+    }
+}
@@ -0,0 +1,162 @@
+package com.springcache.redis.demo.warmup;
+
+import com.alibaba.fastjson.JSON;
+import com.springcache.redis.demo.config.WarmupConfig;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.ApplicationArguments;
+import org.springframework.boot.ApplicationRunner;
+import org.springframework.scheduling.concurrent.CustomizableThreadFactory;
+import org.springframework.stereotype.Component;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * 缓存预热
+ * 启动时(ApplicationRunner, 完成后应用才就绪)按 warmup.properties 把固定ID和上次运行记录的热点ID分批加载到缓存,
+ * 所有缓存的批次共用 parallelism 个线程, 每完成一批打印进度, 结束后打印每个缓存的预热报告。
+ * 各缓存在初始化时通过 register 注册批量加载方式。
+ */
+@Slf4j
+@Component
+public class CacheWarmup implements ApplicationRunner {
+
+    @Autowired
+    private WarmupConfig warmupConfig;
+
+    @Autowired
+    private HotKeyRecorder hotKeyRecorder;
+
+    //缓存名称 -> 批量加载方式
+    private final Map<String, WarmupLoader> loaders = new ConcurrentHashMap<>();
+
+    private final AtomicBoolean running = new AtomicBoolean(false);
+
+    private volatile List<WarmupReport> lastReports = Collections.emptyList();
+
+    /**
+     * 注册缓存的批量加载方式
+     *
+     * @param cacheName 缓存名称
+     * @param loader    批量加载并写入缓存
+     */
+    public void register(String cacheName, WarmupLoader loader) {
+        loaders.put(cacheName, loader);
+    }
+
+    @Override
+    public void run(ApplicationArguments args) {
+        if (warmupConfig.isEnabled()) {
+            warmup();
+        }
+    }
+
+    /**
+     * 预热所有已配置且已注册的缓存, 阻塞到完成或超时
+     *
+     * @return 各缓存的预热报告, 上一次预热尚未结束时返回空
+     */
+    public List<WarmupReport> warmup() {
+        if (!running.compareAndSet(false, true)) {
+            log.warn("上一次预热尚未结束, 忽略本次预热");
+            return Collections.emptyList();
+        }
+        ExecutorService executor = Executors.newFixedThreadPool(Math.max(1, warmupConfig.getParallelism()),
+                new CustomizableThreadFactory("cache-warmup-"));
+        try {
+            long start = System.nanoTime();
+            List<WarmupReport> reports = new ArrayList<>();
+            for (Map.Entry<String, WarmupConfig.WarmupSpec> entry : warmupConfig.getCaches().entrySet()) {
+                WarmupLoader loader = loaders.get(entry.getKey());
+                if (loader == null) {
+                    log.warn("缓存未注册预热加载方式->" + entry.getKey());
+                    continue;
+                }
+                reports.add(submit(executor, entry.getKey(), entry.getValue(), loader, start));
+            }
+            executor.shutdown();
+            if (!executor.awaitTermination(warmupConfig.getTimeoutSeconds(), TimeUnit.SECONDS)) {
+                log.warn("缓存预热超时, 放弃剩余批次->" + warmupConfig.getTimeoutSeconds() + "s");
+                executor.shutdownNow();
+            }
+            for (WarmupReport report : reports) {
+                synchronized (report) {
+                    report.setCompleted(report.getCompletedBatches() == report.getBatches());
+                    if (!report.isCompleted()) {
+                        report.setDurationMillis(TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - start));
+                    }
+                }
+                log.info("缓存预热报告->" + JSON.toJSONString(report));
+            }
+            lastReports = reports;
+            return reports;
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            executor.shutdownNow();
+            return Collections.emptyList();
+        } finally {
+            running.set(false);
+        }
+    }
+
+    /**
+     * 最近一次预热的报告
+     */
+    public List<WarmupReport> getLastReports() {
+        return lastReports;
+    }
+
+    /**
+     * 合并固定ID和热点ID, 分批提交
+     */
+    private WarmupReport submit(ExecutorService executor, String cacheName, WarmupConfig.WarmupSpec spec,
+                                WarmupLoader loader, long start) {
+        Set<String> ids = new LinkedHashSet<>(spec.getIds());
+        try {
+            ids.addAll(hotKeyRecorder.top(cacheName, spec.getTopN()));
+        } catch (Exception ex) {
+            log.error("读取热点ID异常, 只预热固定ID->" + cacheName + ", " + ex.getMessage());
+        }
+        List<String> keys = new ArrayList<>(ids);
+        int batchSize = Math.max(1, warmupConfig.getBatchSize());
+        WarmupReport report = new WarmupReport();
+        report.setCacheName(cacheName);
+        report.setKeys(keys.size());
+        report.setBatches((keys.size() + batchSize - 1) / batchSize);
+        AtomicInteger loaded = new AtomicInteger();
+        for (int i = 0; i < keys.size(); i += batchSize) {
+            List<String> batch = keys.subList(i, Math.min(i + batchSize, keys.size()));
+            executor.execute(() -> {
+                boolean success = false;
+                try {
+                    loaded.addAndGet(loader.load(batch));
+                    success = true;
+                } catch (Exception ex) {
+                    log.error("缓存预热批次异常->" + cacheName + ", " + ex.getMessage());
+                }
+                synchronized (report) {
+                    report.setCompletedBatches(report.getCompletedBatches() + 1);
+                    if (!success) {
+                        report.setFailedBatches(report.getFailedBatches() + 1);
+                    }
+                    report.setLoaded(loaded.get());
+                    report.setDurationMillis(TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - start));
+                    log.info("缓存预热进度->" + cacheName + " " + report.getCompletedBatches() + "/" + report.getBatches()
+                            + " 批, 已写入 " + report.getLoaded() + "/" + report.getKeys());
+                }
+            });
+        }
+        return report;
+    }
+}
@@ -0,0 +1,124 @@
+package com.springcache.redis.demo.warmup;
+
+import com.springcache.redis.demo.config.WarmupConfig;
+import com.springcache.redis.demo.metrics.RedisMetrics;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.data.redis.core.RedisCallback;
+import org.springframework.data.redis.core.StringRedisTemplate;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+
+import javax.annotation.PreDestroy;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * 记录访问次数最多的ID, 供下次启动时预热
+ * 访问时只在本地计数; 定时把计数累加到redis的有序集合并清零, 多个节点的计数合并在一起。
+ * 有序集合只保留分数最高的 record-max-keys 个ID, 一天没有写入后过期。
+ */
+@Slf4j
+@Component
+public class HotKeyRecorder {
+
+    private static final String HOT_KEY = "warmup::hot::";
+
+    private static final long HOT_KEY_TTL_SECONDS = TimeUnit.DAYS.toSeconds(1);
+
+    @Autowired
+    private StringRedisTemplate redisTemplate;
+
+    @Autowired
+    private WarmupConfig warmupConfig;
+
+    @Autowired
+    private RedisMetrics redisMetrics;
+
+    //缓存名称 -> (ID -> 本周期的访问次数)
+    private final Map<String, Map<String, LongAdder>> counters = new ConcurrentHashMap<>();
+
+    /**
+     * 记录一次访问
+     *
+     * @param cacheName 缓存名称
+     * @param id        数据ID
+     */
+    public void record(String cacheName, String id) {
+        if (!warmupConfig.isRecordEnabled()) {
+            return;
+        }
+        Map<String, LongAdder> ids = counters.computeIfAbsent(cacheName, k -> new ConcurrentHashMap<>());
+        LongAdder counter = ids.get(id);
+        if (counter == null) {
+            // 本周期记录的ID达到上限后只统计已记录的ID
+            if (ids.size() >= warmupConfig.getRecordMaxKeys()) {
+                return;
+            }
+            counter = ids.computeIfAbsent(id, k -> new LongAdder());
+        }
+        counter.increment();
+    }
+
+    /**
+     * 上次运行记录的访问次数最多的ID
+     *
+     * @param cacheName 缓存名称
+     * @param n         数量
+     * @return 按访问次数从高到低
+     */
+    public List<String> top(String cacheName, int n) {
+        if (n <= 0) {
+            return Collections.emptyList();
+        }
+        Set<String> ids = redisMetrics.record(RedisMetrics.LETTUCE, RedisMetrics.WARMUP, "zrevrange",
+                () -> redisTemplate.opsForZSet().reverseRange(HOT_KEY + cacheName, 0, n - 1));
+        return ids != null ? new ArrayList<>(ids) : Collections.emptyList();
+    }
+
+    /**
+     * 本周期的访问次数累加到redis
+     */
+    @Scheduled(fixedDelayString = "PT${warmup.record-interval-seconds:60}S",
+            initialDelayString = "PT${warmup.record-interval-seconds:60}S")
+    public void flush() {
+        for (String cacheName : counters.keySet()) {
+            Map<String, LongAdder> ids = counters.remove(cacheName);
+            if (ids == null || ids.isEmpty()) {
+                continue;
+            }
+            try {
+                flush(cacheName, ids);
+            } catch (Exception ex) {
+                log.error("热点ID写入redis异常->" + cacheName + ", " + ex.getMessage());
+            }
+        }
+    }
+
+    @PreDestroy
+    public void destroy() {
+        flush();
+    }
+
+    private void flush(String cacheName, Map<String, LongAdder> ids) {
+        byte[] rawKey = (HOT_KEY + cacheName).getBytes(StandardCharsets.UTF_8);
+        long maxKeys = warmupConfig.getRecordMaxKeys();
+        redisMetrics.record(RedisMetrics.LETTUCE, RedisMetrics.WARMUP, "zincrby",
+                () -> redisTemplate.executePipelined((RedisCallback<Object>) connection -> {
+                    for (Map.Entry<String, LongAdder> entry : ids.entrySet()) {
+                        connection.zIncrBy(rawKey, entry.getValue().sum(), entry.getKey().getBytes(StandardCharsets.UTF_8));
+                    }
+                    // 只保留分数最高的 maxKeys 个
+                    connection.zRemRange(rawKey, 0, -maxKeys - 1);
+                    connection.expire(rawKey, HOT_KEY_TTL_SECONDS);
+                    return null;
+                }, null));
+    }
+}
@@ -0,0 +1,16 @@
+package com.springcache.redis.demo.warmup;
+
+import java.util.List;
+
+/**
+ * 抽像预热一批数据的行为: 从数据源批量加载并写入缓存
+ */
+public interface WarmupLoader {
+    /**
+     * 加载并写入缓存
+     *
+     * @param ids 一批ID
+     * @return 写入缓存的条数, 不存在的ID不计入
+     */
+    int load(List<String> ids);
+}
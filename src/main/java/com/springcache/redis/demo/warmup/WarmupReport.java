@@ -0,0 +1,42 @@
+package com.springcache.redis.demo.warmup;
+
+import lombok.Data;
+
+/**
+ * 一个缓存的预热报告
+ */
+@Data
+public class WarmupReport {
+    /**
+     * 缓存名称
+     */
+    private String cacheName;
+    /**
+     * 预热的ID数量(固定ID + 上次记录的热点ID, 去重后)
+     */
+    private int keys;
+    /**
+     * 批次数
+     */
+    private int batches;
+    /**
+     * 已完成的批次数
+     */
+    private int completedBatches;
+    /**
+     * 失败的批次数
+     */
+    private int failedBatches;
+    /**
+     * 写入缓存的条数
+     */
+    private int loaded;
+    /**
+     * 耗时(毫秒), 从预热开始到该缓存最后一批完成
+     */
+    private long durationMillis;
+    /**
+     * 是否在超时前完成
+     */
+    private boolean completed;
+}
@@ -0,0 +1,16 @@
+package com.springcache.redis.demo.writebehind;
+
+import java.util.Map;
+
+/**
+ * 延迟写入的批量写入方式
+ */
+@FunctionalInterface
+public interface BatchWriter<V> {
+    /**
+     * 批量写入存储, 抛出异常时整批重试, 因此需要幂等
+     *
+     * @param batch KEY -> 最新的值, 值为 null 表示删除
+     */
+    void write(Map<String, V> batch);
+}
@@ -0,0 +1,109 @@
+package com.springcache.redis.demo.writebehind;
+
+import com.springcache.redis.demo.config.WriteBehindConfig;
+import com.springcache.redis.demo.lock.DistributedLock;
+import com.springcache.redis.demo.metrics.RedisMetrics;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.data.redis.core.StringRedisTemplate;
+import org.springframework.scheduling.concurrent.CustomizableThreadFactory;
+import org.springframework.stereotype.Component;
+
+import javax.annotation.PostConstruct;
+import javax.annotation.PreDestroy;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * 延迟写入
+ * 各存储在初始化时通过 register 注册批量写入方式, 得到的队列用于提交更新和读取;
+ * 后台线程按 flush-interval-millis 依次写入所有队列, 存储的写入次数只取决于批次而不是更新次数。
+ * 停止时先写完所有待写入的更新。
+ */
+@Slf4j
+@Component
+public class WriteBehindManager {
+
+    @Autowired
+    private StringRedisTemplate redisTemplate;
+
+    @Autowired
+    private DistributedLock distributedLock;
+
+    @Autowired
+    private RedisMetrics redisMetrics;
+
+    @Autowired
+    private WriteBehindConfig writeBehindConfig;
+
+    //名称 -> 队列
+    private final Map<String, WriteBehindQueue<?>> queues = new ConcurrentHashMap<>();
+
+    private ScheduledExecutorService scheduler;
+
+    @PostConstruct
+    public void init() {
+        if (!writeBehindConfig.isEnabled()) {
+            return;
+        }
+        long interval = writeBehindConfig.getFlushIntervalMillis();
+        scheduler = Executors.newSingleThreadScheduledExecutor(new CustomizableThreadFactory("write-behind-"));
+        scheduler.scheduleWithFixedDelay(this::flushAll, interval, interval, TimeUnit.MILLISECONDS);
+    }
+
+    @PreDestroy
+    public void destroy() throws InterruptedException {
+        if (scheduler == null) {
+            return;
+        }
+        scheduler.shutdown();
+        scheduler.awaitTermination(10, TimeUnit.SECONDS);
+        flushAll();
+    }
+
+    /**
+     * 注册存储的批量写入方式
+     *
+     * @param name   存储名称, 各节点相同
+     * @param type   值的类型
+     * @param writer 批量写入存储
+     * @return 提交更新的队列
+     */
+    public <V> WriteBehindQueue<V> register(String name, Class<V> type, BatchWriter<V> writer) {
+        WriteBehindQueue<V> queue = new WriteBehindQueue<>(name, type, writer, redisTemplate, distributedLock,
+                redisMetrics, writeBehindConfig);
+        queues.put(name, queue);
+        return queue;
+    }
+
+    /**
+     * 写入所有队列的待写入更新
+     */
+    public void flushAll() {
+        for (WriteBehindQueue<?> queue : queues.values()) {
+            try {
+                int count = queue.flush();
+                if (count > 0) {
+                    log.info("延迟写入->" + queue.getName() + " " + count + " 条");
+                }
+            } catch (Exception ex) {
+                log.error("延迟写入异常->" + queue.getName() + ", " + ex.getMessage());
+            }
+        }
+    }
+
+    /**
+     * 各队列的统计
+     */
+    public Map<String, Map<String, Number>> getStats() {
+        Map<String, Map<String, Number>> stats = new LinkedHashMap<>();
+        for (WriteBehindQueue<?> queue : queues.values()) {
+            stats.put(queue.getName(), queue.getStats());
+        }
+        return stats;
+    }
+}
@@ -0,0 +1,270 @@
+package com.springcache.redis.demo.writebehind;
+
+import com.alibaba.fastjson.JSON;
+import com.springcache.redis.demo.config.WriteBehindConfig;
+import com.springcache.redis.demo.lock.DistributedLock;
+import com.springcache.redis.demo.metrics.RedisMetrics;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.data.redis.core.Cursor;
+import org.springframework.data.redis.core.HashOperations;
+import org.springframework.data.redis.core.ScanOptions;
+import org.springframework.data.redis.core.StringRedisTemplate;
+import org.springframework.data.redis.core.script.DefaultRedisScript;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.Supplier;
+
+/**
+ * 一个存储的延迟写入队列
+ * 更新以 JSON 写入 redis 哈希 writeBehind::名称::pending (KEY -> 最新的值), 同一KEY的多次更新自然合并为最后一次;
+ * 后台任务每次 HSCAN 取一批写入存储, 成功后只删除值未再变化的KEY, 期间又有更新的KEY留到下一批。
+ * 未写入存储的更新保存在redis中, 节点重启后由任一节点继续写入; 写入与删除之间节点宕机时会重复写入, 写入方式需要幂等。
+ * 读取存储前先查询待写入的值, 避免读到旧数据。
+ */
+@Slf4j
+public class WriteBehindQueue<V> {
+
+    //删除标记, 与 JSON.toJSONString(null) 相同
+    private static final String TOMBSTONE = "null";
+
+    /**
+     * KEYS[1] 待写入哈希, ARGV 依次为 KEY, 已写入的值
+     * 值未变化的KEY才删除, 返回删除的数量
+     */
+    private static final String ACK_SCRIPT =
+            "local n = 0 " +
+            "for i = 1, #ARGV, 2 do " +
+            "if redis.call('hget', KEYS[1], ARGV[i]) == ARGV[i + 1] then " +
+            "n = n + redis.call('hdel', KEYS[1], ARGV[i]) end " +
+            "end " +
+            "return n";
+
+    private static final DefaultRedisScript<Long> ACK = new DefaultRedisScript<>(ACK_SCRIPT, Long.class);
+
+    private final String name;
+    private final Class<V> type;
+    private final BatchWriter<V> writer;
+    private final StringRedisTemplate redisTemplate;
+    private final DistributedLock distributedLock;
+    private final RedisMetrics redisMetrics;
+    private final WriteBehindConfig config;
+    private final String pendingKey;
+    private final String lockKey;
+
+    //统计
+    private final LongAdder submitted = new LongAdder();
+    private final LongAdder flushed = new LongAdder();
+    private final LongAdder batches = new LongAdder();
+    private final LongAdder retries = new LongAdder();
+    private final LongAdder failures = new LongAdder();
+
+    WriteBehindQueue(String name, Class<V> type, BatchWriter<V> writer, StringRedisTemplate redisTemplate,
+                     DistributedLock distributedLock, RedisMetrics redisMetrics, WriteBehindConfig config) {
+        this.name = name;
+        this.type = type;
+        this.writer = writer;
+        this.redisTemplate = redisTemplate;
+        this.distributedLock = distributedLock;
+        this.redisMetrics = redisMetrics;
+        this.config = config;
+        this.pendingKey = "writeBehind::" + name + "::pending";
+        this.lockKey = "writeBehind::" + name + "::flush";
+    }
+
+    /**
+     * 提交更新, 未开启延迟写入时直接写入存储
+     *
+     * @param key   存储的KEY
+     * @param value 最新的值, null 表示删除
+     */
+    public void submit(String key, V value) {
+        submitted.increment();
+        if (!config.isEnabled()) {
+            writer.write(Collections.singletonMap(key, value));
+            flushed.increment();
+            return;
+        }
+        String json = JSON.toJSONString(value);
+        redisMetrics.record(RedisMetrics.LETTUCE, RedisMetrics.WRITE_BEHIND, "hset", () -> {
+            hashOps().put(pendingKey, key, json);
+            return null;
+        });
+    }
+
+    /**
+     * 读取, 有待写入的值时返回该值, 否则从存储读取
+     *
+     * @param key   存储的KEY
+     * @param store 从存储读取
+     * @return 待写入的值或存储中的值, 已删除时返回 null
+     */
+    public V read(String key, Supplier<V> store) {
+        if (!config.isEnabled()) {
+            return store.get();
+        }
+        String json = redisMetrics.record(RedisMetrics.LETTUCE, RedisMetrics.WRITE_BEHIND, "hget",
+                () -> hashOps().get(pendingKey, key));
+        return json != null ? JSON.parseObject(json, type) : store.get();
+    }
+
+    /**
+     * 批量查询待写入的值
+     *
+     * @param keys 存储的KEY
+     * @return 只包含有待写入值的KEY, 值为 null 表示已删除
+     */
+    public Map<String, V> pending(Collection<String> keys) {
+        if (!config.isEnabled() || keys.isEmpty()) {
+            return Collections.emptyMap();
+        }
+        List<String> fields = new ArrayList<>(keys);
+        List<String> values = redisMetrics.record(RedisMetrics.LETTUCE, RedisMetrics.WRITE_BEHIND, "hmget",
+                () -> hashOps().multiGet(pendingKey, fields));
+        Map<String, V> result = new HashMap<>();
+        for (int i = 0; i < fields.size(); i++) {
+            String json = values != null ? values.get(i) : null;
+            if (json != null) {
+                result.put(fields.get(i), JSON.parseObject(json, type));
+            }
+        }
+        return result;
+    }
+
+    /**
+     * 所有待写入的KEY, 包括已删除的
+     */
+    public Set<String> pendingKeys() {
+        if (!config.isEnabled()) {
+            return Collections.emptySet();
+        }
+        return redisMetrics.record(RedisMetrics.LETTUCE, RedisMetrics.WRITE_BEHIND, "hkeys",
+                () -> hashOps().keys(pendingKey));
+    }
+
+    /**
+     * 分批写入所有待写入的更新, 直到某一批不足 batchSize 或写入失败
+     * 同一时间只有一个节点写入, 其他节点跳过
+     *
+     * @return 写入存储的KEY数量
+     */
+    public int flush() {
+        if (!config.isEnabled() || !distributedLock.tryLock(lockKey, 0, 30000)) {
+            return 0;
+        }
+        try {
+            int total = 0;
+            int batchSize = Math.max(1, config.getBatchSize());
+            while (true) {
+                Map<String, String> batch = scan(batchSize);
+                if (batch.isEmpty() || !write(batch)) {
+                    return total;
+                }
+                total += batch.size();
+                if (batch.size() < batchSize) {
+                    return total;
+                }
+            }
+        } finally {
+            distributedLock.unlock(lockKey);
+        }
+    }
+
+    /**
+     * 统计
+     *
+     * @return submitted 提交次数, flushed 写入存储的KEY数量, batches 写入批次, retries 重试次数,
+     * failures 重试后仍失败的批次, pending 待写入的KEY数量
+     */
+    public Map<String, Number> getStats() {
+        Map<String, Number> stats = new LinkedHashMap<>();
+        stats.put("submitted", submitted.sum());
+        stats.put("flushed", flushed.sum());
+        stats.put("batches", batches.sum());
+        stats.put("retries", retries.sum());
+        stats.put("failures", failures.sum());
+        Long pending = config.isEnabled() ? redisMetrics.record(RedisMetrics.LETTUCE, RedisMetrics.WRITE_BEHIND,
+                "hlen", () -> hashOps().size(pendingKey)) : Long.valueOf(0);
+        stats.put("pending", pending != null ? pending : 0);
+        return stats;
+    }
+
+    public String getName() {
+        return name;
+    }
+
+    /**
+     * 取最多 batchSize 个待写入的值
+     */
+    private Map<String, String> scan(int batchSize) {
+        return redisMetrics.record(RedisMetrics.LETTUCE, RedisMetrics.WRITE_BEHIND, "hscan", () -> {
+            Map<String, String> batch = new LinkedHashMap<>();
+            try (Cursor<Map.Entry<String, String>> cursor = hashOps().scan(pendingKey,
+                    ScanOptions.scanOptions().count(batchSize).build())) {
+                while (cursor.hasNext() && batch.size() < batchSize) {
+                    Map.Entry<String, String> entry = cursor.next();
+                    batch.put(entry.getKey(), entry.getValue());
+                }
+            } catch (IOException e) {
+                log.warn("关闭HSCAN游标异常->" + e.getMessage());
+            }
+            return batch;
+        });
+    }
+
+    /**
+     * 写入一批, 失败后按指数退避重试; 成功后删除值未变化的KEY
+     *
+     * @return 是否写入成功
+     */
+    private boolean write(Map<String, String> batch) {
+        Map<String, V> values = new LinkedHashMap<>();
+        for (Map.Entry<String, String> entry : batch.entrySet()) {
+            values.put(entry.getKey(), TOMBSTONE.equals(entry.getValue()) ? null : JSON.parseObject(entry.getValue(), type));
+        }
+        long backoff = config.getRetryBackoffMillis();
+        for (int attempt = 0; ; attempt++) {
+            try {
+                writer.write(values);
+                break;
+            } catch (Exception ex) {
+                if (attempt >= config.getMaxRetries()) {
+                    failures.increment();
+                    log.error("延迟写入失败, 保留到下一次写入->" + name + ", " + batch.size() + " 条, " + ex.getMessage());
+                    return false;
+                }
+                retries.increment();
+                log.warn("延迟写入失败, " + backoff + "ms 后重试->" + name + ", " + ex.getMessage());
+                try {
+                    Thread.sleep(backoff);
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                    return false;
+                }
+                backoff *= 2;
+            }
+        }
+        batches.increment();
+        flushed.add(batch.size());
+        List<String> args = new ArrayList<>(batch.size() * 2);
+        for (Map.Entry<String, String> entry : batch.entrySet()) {
+            args.add(entry.getKey());
+            args.add(entry.getValue());
+        }
+        redisMetrics.record(RedisMetrics.LETTUCE, RedisMetrics.WRITE_BEHIND, "ack",
+                () -> redisTemplate.execute(ACK, Collections.singletonList(pendingKey), args.toArray()));
+        return true;
+    }
+
+    private HashOperations<String, String, String> hashOps() {
+        return redisTemplate.opsForHash();
+    }
+}
@@ -0,0 +1,96 @@
+package com.springcache.redis.demo.cache;
+
+import com.springcache.redis.demo.config.CacheConfig;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class HotKeyDetectorTest {
+
+    private HotKeyDetector detector;
+
+    private CacheConfig cacheConfig;
+
+    @BeforeEach
+    void setUp() {
+        cacheConfig = new CacheConfig();
+        cacheConfig.setHotKeySamplePercent(100);
+        cacheConfig.setHotKeyThreshold(1000);
+        cacheConfig.setHotKeyTopK(2);
+        cacheConfig.setHotKeyWindows(3);
+        // 由测试手动刷新和滚动窗口
+        cacheConfig.setHotKeyWindowSeconds(3600);
+        detector = new HotKeyDetector();
+        ReflectionTestUtils.setField(detector, "cacheConfig", cacheConfig);
+        detector.init();
+    }
+
+    @AfterEach
+    void tearDown() {
+        detector.destroy();
+    }
+
+    @Test
+    void sketchNeverUnderestimates() {
+        CountMinSketch sketch = new CountMinSketch(4, 1024);
+        for (int i = 0; i < 100000; i++) {
+            sketch.add("key:" + (i % 10000));
+        }
+        for (int i = 0; i < 10000; i++) {
+            long estimate = sketch.estimate("key:" + i);
+            // 实际10次, 误差约为 总次数 / width
+            assertTrue(estimate >= 10 && estimate < 10 + 300, "estimate=" + estimate);
+        }
+        sketch.clear();
+        assertEquals(0, sketch.estimate("key:1"));
+    }
+
+    @Test
+    void detectsTopKeysAmongBackgroundTraffic() {
+        for (int i = 0; i < 50000; i++) {
+            detector.record("productInfoCache", "product:" + (i % 5000));
+        }
+        for (int i = 0; i < 3000; i++) {
+            detector.record("productInfoCache", "product:1");
+            if (i % 2 == 0) {
+                detector.record("userCache", "user:10001");
+            }
+            if (i % 3 == 0) {
+                detector.record("userCache", "user:10002");
+            }
+        }
+        ReflectionTestUtils.invokeMethod(detector, "refresh");
+
+        List<HotKey> hotKeys = detector.getHotKeys();
+        assertEquals(2, hotKeys.size());
+        assertEquals("product:1", hotKeys.get(0).getKey());
+        assertEquals("user:10001", hotKeys.get(1).getKey());
+        assertTrue(detector.isHot("productInfoCache", "product:1"));
+        assertFalse(detector.isHot("userCache", "user:10002"));
+        assertFalse(detector.isHot("productInfoCache", "product:2"));
+    }
+
+    @Test
+    void hotKeyExpiresWhenWindowSlidesPast() {
+        for (int i = 0; i < 2000; i++) {
+            detector.record("productInfoCache", "product:1");
+        }
+        ReflectionTestUtils.invokeMethod(detector, "refresh");
+        assertTrue(detector.isHot("productInfoCache", "product:1"));
+
+        // 窗口内3个时间片全部滚动后计数清零
+        for (int i = 0; i < 3; i++) {
+            ReflectionTestUtils.invokeMethod(detector, "rotate");
+        }
+        ReflectionTestUtils.invokeMethod(detector, "refresh");
+        assertFalse(detector.isHot("productInfoCache", "product:1"));
+        assertTrue(detector.getHotKeys().isEmpty());
+    }
+}
@@ -0,0 +1,80 @@
+package com.springcache.redis.demo.cache;
+
+import com.springcache.redis.demo.config.SpringCacheConfig;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.mockito.InOrder;
+import org.springframework.data.redis.cache.RedisCacheWriter;
+
+import java.nio.charset.StandardCharsets;
+import java.time.Duration;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.Mockito.inOrder;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.verifyNoInteractions;
+import static org.mockito.Mockito.when;
+
+class HotKeyRedisCacheWriterTest {
+
+    private static final byte[] KEY = "sc:cache::key".getBytes(StandardCharsets.UTF_8);
+    private static final byte[] VALUE = {1, 2, 3};
+
+    private RedisCacheWriter delegate;
+    private HotKeyDetector hotKeyDetector;
+    private HotKeyReplica hotKeyReplica;
+    private CacheChangeNotifier cacheChangeNotifier;
+    private HotKeyRedisCacheWriter writer;
+
+    @BeforeEach
+    void setUp() {
+        delegate = mock(RedisCacheWriter.class);
+        hotKeyDetector = mock(HotKeyDetector.class);
+        hotKeyReplica = mock(HotKeyReplica.class);
+        cacheChangeNotifier = mock(CacheChangeNotifier.class);
+        SpringCacheConfig springCacheConfig = new SpringCacheConfig();
+        SpringCacheConfig.CacheSpec stockSpec = new SpringCacheConfig.CacheSpec();
+        stockSpec.setHotKeyEnabled(false);
+        springCacheConfig.getCaches().put("productInfoCache", stockSpec);
+        writer = new HotKeyRedisCacheWriter(delegate, hotKeyDetector, hotKeyReplica, cacheChangeNotifier, springCacheConfig);
+    }
+
+    @Test
+    void writeInvalidatesReplicaAfterRedisAndNotifiesOtherNodes() {
+        writer.put("userCache", KEY, VALUE, Duration.ofSeconds(60));
+        writer.remove("userCache", KEY);
+
+        InOrder order = inOrder(delegate, hotKeyReplica, cacheChangeNotifier);
+        order.verify(delegate).put("userCache", KEY, VALUE, Duration.ofSeconds(60));
+        order.verify(hotKeyReplica).invalidate("userCache", "sc:cache::key");
+        order.verify(cacheChangeNotifier).publishInvalidate("userCache", "sc:cache::key");
+        order.verify(delegate).remove("userCache", KEY);
+        order.verify(hotKeyReplica).invalidate("userCache", "sc:cache::key");
+        order.verify(cacheChangeNotifier).publishInvalidate("userCache", "sc:cache::key");
+    }
+
+    @Test
+    void optedOutCacheAlwaysReadsRedis() {
+        when(delegate.get("productInfoCache", KEY)).thenReturn(VALUE);
+
+        assertArrayEquals(VALUE, writer.get("productInfoCache", KEY));
+        writer.put("productInfoCache", KEY, VALUE, Duration.ofSeconds(60));
+
+        verifyNoInteractions(hotKeyDetector, hotKeyReplica);
+        verify(cacheChangeNotifier, never()).publishInvalidate(anyString(), anyString());
+        verify(delegate).put("productInfoCache", KEY, VALUE, Duration.ofSeconds(60));
+    }
+
+    @Test
+    void hotKeyIsServedFromReplica() {
+        when(hotKeyDetector.isHot("userCache", "sc:cache::key")).thenReturn(true);
+        when(hotKeyReplica.get("userCache", "sc:cache::key")).thenReturn(VALUE);
+
+        assertArrayEquals(VALUE, writer.get("userCache", KEY));
+        verify(delegate, never()).get(anyString(), any(byte[].class));
+    }
+}
@@ -0,0 +1,27 @@
+package com.springcache.redis.demo.cache;
+
+import org.junit.jupiter.api.Test;
+
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class LocalBloomFilterTest {
+
+    @Test
+    void noFalseNegativesAndBoundedFalsePositives() {
+        LocalBloomFilter filter = new LocalBloomFilter(10000, 0.01);
+        for (int i = 0; i < 10000; i++) {
+            filter.put("user:" + i);
+        }
+        for (int i = 0; i < 10000; i++) {
+            assertTrue(filter.mightContain("user:" + i));
+        }
+        int falsePositives = 0;
+        for (int i = 10000; i < 110000; i++) {
+            if (filter.mightContain("user:" + i)) {
+                falsePositives++;
+            }
+        }
+        // 期望误判率1%, 留出余量
+        assertTrue(falsePositives < 2000, "falsePositives=" + falsePositives);
+    }
+}
@@ -0,0 +1,111 @@
+package com.springcache.redis.demo.cache;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicReferenceArray;
+import java.util.function.Supplier;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertSame;
+
+class SingleFlightTest {
+
+    private static final int CALLERS = 16;
+
+    private final SingleFlight singleFlight = new SingleFlight();
+
+    @Test
+    void concurrentCallersShareOneLoad() throws Exception {
+        AtomicInteger loads = new AtomicInteger();
+        CountDownLatch release = new CountDownLatch(1);
+        Object value = new Object();
+        AtomicReferenceArray<Object> results = runConcurrently(() -> {
+            loads.incrementAndGet();
+            await(release);
+            return value;
+        }, release);
+
+        assertEquals(1, loads.get());
+        int leaders = 0;
+        for (int i = 0; i < CALLERS; i++) {
+            SingleFlight.Outcome<?> outcome = (SingleFlight.Outcome<?>) results.get(i);
+            assertSame(value, outcome.getValue());
+            leaders += outcome.isShared() ? 0 : 1;
+        }
+        assertEquals(1, leaders);
+
+        // 完成后KEY已移除, 再次调用重新加载
+        SingleFlight.Outcome<Object> next = singleFlight.execute("key", () -> {
+            loads.incrementAndGet();
+            return new Object();
+        });
+        assertFalse(next.isShared());
+        assertEquals(2, loads.get());
+    }
+
+    @Test
+    void concurrentCallersShareOneFailure() throws Exception {
+        AtomicInteger loads = new AtomicInteger();
+        CountDownLatch release = new CountDownLatch(1);
+        IllegalStateException failure = new IllegalStateException("load failed");
+        AtomicReferenceArray<Object> results = runConcurrently(() -> {
+            loads.incrementAndGet();
+            await(release);
+            throw failure;
+        }, release);
+
+        assertEquals(1, loads.get());
+        for (int i = 0; i < CALLERS; i++) {
+            assertSame(failure, results.get(i));
+        }
+
+        // 失败后KEY同样被移除
+        assertEquals("ok", singleFlight.execute("key", () -> "ok").getValue());
+    }
+
+    /**
+     * 所有调用方都进入等待(执行加载或等待结果)后再放行加载
+     *
+     * @return 每个调用方得到的 Outcome 或异常
+     */
+    private AtomicReferenceArray<Object> runConcurrently(Supplier<Object> supplier, CountDownLatch release)
+            throws InterruptedException {
+        AtomicReferenceArray<Object> results = new AtomicReferenceArray<>(CALLERS);
+        List<Thread> threads = new ArrayList<>();
+        for (int i = 0; i < CALLERS; i++) {
+            int index = i;
+            Thread thread = new Thread(() -> {
+                try {
+                    results.set(index, singleFlight.execute("key", supplier));
+                } catch (RuntimeException ex) {
+                    results.set(index, ex);
+                }
+            });
+            threads.add(thread);
+            thread.start();
+        }
+        for (Thread thread : threads) {
+            while (thread.getState() != Thread.State.WAITING) {
+                Thread.sleep(1);
+            }
+        }
+        release.countDown();
+        for (Thread thread : threads) {
+            thread.join(5000);
+        }
+        return results;
+    }
+
+    private static void await(CountDownLatch latch) {
+        try {
+            latch.await();
+        } catch (InterruptedException ex) {
+            Thread.currentThread().interrupt();
+        }
+    }
+}
@@ -0,0 +1,87 @@
+package com.springcache.redis.demo.cache;
+
+import com.springcache.redis.demo.config.SpringCacheConfig;
+import org.junit.jupiter.api.Test;
+import org.springframework.data.redis.cache.RedisCacheWriter;
+
+import java.lang.reflect.Proxy;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class TtlJitterTest {
+
+    private static final long TTL = TimeUnit.MINUTES.toMillis(10);
+
+    @Test
+    void expiriesSpreadEvenlyAcrossWindow() {
+        long window = TTL / 10;
+        int[] buckets = new int[10];
+        long min = Long.MAX_VALUE;
+        long max = Long.MIN_VALUE;
+        int writes = 10000;
+        for (int i = 0; i < writes; i++) {
+            long ttl = TtlJitter.apply(TTL, 10, 0);
+            assertTrue(ttl >= TTL && ttl < TTL + window, "ttl=" + ttl);
+            buckets[(int) ((ttl - TTL) * 10 / window)]++;
+            min = Math.min(min, ttl);
+            max = Math.max(max, ttl);
+        }
+        // 同一批写入的KEY过期时间分散在整个窗口内, 每一段约占 1/10
+        assertTrue(max - min > window * 9 / 10, "spread=" + (max - min));
+        for (int count : buckets) {
+            assertTrue(count > writes / 20 && count < writes * 3 / 20, "bucket=" + count);
+        }
+    }
+
+    @Test
+    void percentAndSecondsWindowsAdd() {
+        for (int i = 0; i < 1000; i++) {
+            long ttl = TtlJitter.apply(TTL, 10, 30);
+            assertTrue(ttl >= TTL && ttl < TTL + TTL / 10 + 30000, "ttl=" + ttl);
+        }
+    }
+
+    @Test
+    void disabledOrPersistentTtlUnchanged() {
+        assertEquals(TTL, TtlJitter.apply(TTL, 0, 0));
+        assertEquals(0, TtlJitter.apply(0, 10, 60));
+        assertEquals(-1, TtlJitter.apply(-1, 10, 60));
+    }
+
+    @Test
+    void springCacheWritesUsePerCacheJitter() {
+        List<Duration> ttls = Collections.synchronizedList(new ArrayList<>());
+        RedisCacheWriter capture = (RedisCacheWriter) Proxy.newProxyInstance(getClass().getClassLoader(),
+                new Class<?>[]{RedisCacheWriter.class}, (proxy, method, args) -> {
+                    if ("put".equals(method.getName())) {
+                        ttls.add((Duration) args[3]);
+                    }
+                    return null;
+                });
+        SpringCacheConfig config = new SpringCacheConfig();
+        SpringCacheConfig.CacheSpec spec = new SpringCacheConfig.CacheSpec();
+        spec.setTtlJitterSeconds(60);
+        config.getCaches().put("productInfoCache", spec);
+        TtlJitterRedisCacheWriter writer = new TtlJitterRedisCacheWriter(capture, config);
+
+        byte[] value = new byte[1];
+        for (int i = 0; i < 100; i++) {
+            writer.put("productInfoCache", ("product:" + i).getBytes(), value, Duration.ofMillis(TTL));
+        }
+        writer.put("otherCache", "other".getBytes(), value, Duration.ofMillis(TTL));
+
+        Duration other = ttls.remove(ttls.size() - 1);
+        assertEquals(TTL, other.toMillis());
+        long distinct = ttls.stream().distinct().count();
+        assertTrue(distinct > 90, "distinct=" + distinct);
+        for (Duration ttl : ttls) {
+            assertTrue(ttl.toMillis() >= TTL && ttl.toMillis() < TTL + 60000, "ttl=" + ttl);
+        }
+    }
+}
@@ -0,0 +1,32 @@
+package com.springcache.redis.demo.config;
+
+import org.junit.jupiter.api.Test;
+import org.springframework.boot.context.properties.bind.Binder;
+import org.springframework.mock.env.MockEnvironment;
+
+import java.util.Map;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+class CacheSpecsTest {
+
+    @Test
+    void perCacheSpecInheritsConfiguredDefaults() {
+        MockEnvironment environment = new MockEnvironment()
+                .withProperty("spring-cache.defaults.ttl-seconds", "3600")
+                .withProperty("spring-cache.defaults.ttl-jitter-percent", "10")
+                .withProperty("spring-cache.caches[productInfoCache].ttl-seconds", "600")
+                .withProperty("spring-cache.caches[productInfoCache].ttl-jitter-seconds", "60");
+        SpringCacheConfig config = Binder.get(environment).bind("spring-cache", SpringCacheConfig.class).get();
+
+        Map<String, SpringCacheConfig.CacheSpec> caches = CacheSpecs.inheritDefaults(environment, "spring-cache",
+                config.getDefaults(), config.getCaches(), SpringCacheConfig.CacheSpec::new);
+
+        SpringCacheConfig.CacheSpec spec = caches.get("productInfoCache");
+        assertEquals(600, spec.getTtlSeconds());
+        assertEquals(60, spec.getTtlJitterSeconds());
+        // 未单独配置的字段取 defaults 中配置的值, 而不是字段初始值0
+        assertEquals(10, spec.getTtlJitterPercent());
+        assertEquals(3600, config.getDefaults().getTtlSeconds());
+    }
+}
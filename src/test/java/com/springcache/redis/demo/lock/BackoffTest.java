@@ -0,0 +1,30 @@
+package com.springcache.redis.demo.lock;
+
+import com.springcache.redis.demo.config.LockConfig;
+import org.junit.jupiter.api.Test;
+
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class BackoffTest {
+
+    @Test
+    void neverReturnsZero() {
+        LockConfig lockConfig = new LockConfig();
+        lockConfig.setMinBackoffMillis(0);
+        lockConfig.setMaxBackoffMillis(1);
+        Backoff backoff = new Backoff(lockConfig);
+        for (int i = 0; i < 100; i++) {
+            assertTrue(backoff.next(1000) >= 1);
+        }
+    }
+
+    @Test
+    void staysWithinRemainingAndMax() {
+        LockConfig lockConfig = new LockConfig();
+        Backoff backoff = new Backoff(lockConfig);
+        for (int i = 0; i < 20; i++) {
+            long sleep = backoff.next(10);
+            assertTrue(sleep >= 1 && sleep <= 10, "sleep=" + sleep);
+        }
+    }
+}
@@ -0,0 +1,56 @@
+package com.springcache.redis.demo.lock;
+
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.data.redis.core.StringRedisTemplate;
+
+import java.util.concurrent.CompletableFuture;
+
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+@SpringBootTest
+class DistributedLockTest {
+
+    private static final String KEY = "test_distributed_lock";
+
+    @Autowired
+    private DistributedLock distributedLock;
+
+    @Autowired
+    private StringRedisTemplate redisTemplate;
+
+    @Test
+    void reentrantAndExclusive() throws Exception {
+        redisTemplate.delete(KEY);
+        assertTrue(distributedLock.tryLock(KEY, 0, 3000));
+        assertTrue(distributedLock.tryLock(KEY, 0, 3000));
+        assertFalse(CompletableFuture.supplyAsync(() -> distributedLock.tryLock(KEY, 100, 3000)).get());
+
+        // 重入一次, 第一次解锁后仍持有
+        distributedLock.unlock(KEY);
+        assertTrue(distributedLock.isHeldByCurrentThread(KEY));
+        assertTrue(redisTemplate.hasKey(KEY));
+
+        distributedLock.unlock(KEY);
+        assertFalse(distributedLock.isHeldByCurrentThread(KEY));
+        assertFalse(redisTemplate.hasKey(KEY));
+    }
+
+    @Test
+    void waitsForRelease() throws Exception {
+        redisTemplate.delete(KEY);
+        assertTrue(distributedLock.tryLock(KEY, 0, 3000));
+        CompletableFuture<Boolean> waiter = CompletableFuture.supplyAsync(() -> {
+            boolean locked = distributedLock.tryLock(KEY, 2000, 3000);
+            if (locked) {
+                distributedLock.unlock(KEY);
+            }
+            return locked;
+        });
+        Thread.sleep(100);
+        distributedLock.unlock(KEY);
+        assertTrue(waiter.get());
+    }
+}
@@ -0,0 +1,58 @@
+package com.springcache.redis.demo.lock;
+
+import com.springcache.redis.demo.config.LockConfig;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class LockWatchdogTest {
+
+    private LockWatchdog lockWatchdog;
+
+    @BeforeEach
+    void setUp() {
+        lockWatchdog = new LockWatchdog();
+        ReflectionTestUtils.setField(lockWatchdog, "lockConfig", new LockConfig());
+    }
+
+    @AfterEach
+    void tearDown() {
+        lockWatchdog.destroy();
+    }
+
+    @Test
+    void renewsUntilUnwatched() throws InterruptedException {
+        AtomicInteger renewals = new AtomicInteger();
+        lockWatchdog.watch("lock", "owner", 30, (key, value, leaseMillis) -> renewals.incrementAndGet() > 0);
+        Thread.sleep(200);
+        lockWatchdog.unwatch("lock", "owner");
+        int count = renewals.get();
+        // 每10毫秒续期一次
+        assertTrue(count >= 5, "renewals=" + count);
+        assertEquals(0, lockWatchdog.size());
+        Thread.sleep(50);
+        assertTrue(renewals.get() <= count + 1, "renewals=" + renewals.get());
+    }
+
+    @Test
+    void stopsWhenLockIsLost() throws InterruptedException {
+        AtomicInteger renewals = new AtomicInteger();
+        lockWatchdog.watch("lock", "owner", 30, (key, value, leaseMillis) -> renewals.incrementAndGet() < 0);
+        Thread.sleep(100);
+        assertEquals(1, renewals.get());
+        assertEquals(0, lockWatchdog.size());
+    }
+
+    @Test
+    void ignoresUnwatchFromOtherOwner() {
+        lockWatchdog.watch("lock", "owner", 30_000, (key, value, leaseMillis) -> true);
+        lockWatchdog.unwatch("lock", "other");
+        assertEquals(1, lockWatchdog.size());
+    }
+}
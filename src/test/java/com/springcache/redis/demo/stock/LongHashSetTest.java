@@ -0,0 +1,47 @@
+package com.springcache.redis.demo.stock;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.HashSet;
+import java.util.Random;
+import java.util.Set;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class LongHashSetTest {
+
+    @Test
+    void matchesJdkSetAcrossResizes() {
+        LongHashSet set = new LongHashSet(4);
+        Set<Long> expected = new HashSet<>();
+        Random random = new Random(42);
+        for (int i = 0; i < 20000; i++) {
+            // 取值范围较小, 包含重复值和负数
+            long value = random.nextInt(30000) - 5000;
+            assertEquals(expected.add(value), set.add(value));
+        }
+        assertEquals(expected.size(), set.size());
+        for (long value = -5000; value < 25000; value++) {
+            assertEquals(expected.contains(value), set.contains(value), "value=" + value);
+        }
+    }
+
+    @Test
+    void zeroAndClear() {
+        LongHashSet set = new LongHashSet(16);
+        assertFalse(set.contains(0));
+        assertTrue(set.add(0));
+        assertFalse(set.add(0));
+        assertTrue(set.add(Long.MIN_VALUE));
+        assertTrue(set.contains(0));
+        assertTrue(set.contains(Long.MIN_VALUE));
+        assertEquals(2, set.size());
+
+        set.clear();
+        assertFalse(set.contains(0));
+        assertFalse(set.contains(Long.MIN_VALUE));
+        assertEquals(0, set.size());
+    }
+}
@@ -0,0 +1,56 @@
+package com.springcache.redis.demo.stock;
+
+import com.springcache.redis.demo.config.StockConfig;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.redisson.api.RAtomicLong;
+import org.redisson.api.RTopic;
+import org.redisson.api.RedissonClient;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+class StockGuardTest {
+
+    private StockGuard stockGuard;
+    private RAtomicLong counter;
+
+    @BeforeEach
+    void setUp() {
+        RedissonClient redissonClient = mock(RedissonClient.class);
+        counter = mock(RAtomicLong.class);
+        when(redissonClient.getAtomicLong(anyString())).thenReturn(counter);
+        stockGuard = new StockGuard();
+        ReflectionTestUtils.setField(stockGuard, "redissonClient", redissonClient);
+        ReflectionTestUtils.setField(stockGuard, "stockConfig", new StockConfig());
+        ReflectionTestUtils.setField(stockGuard, "topic", mock(RTopic.class));
+    }
+
+    @Test
+    void soldOutFromBeforeRestockIsIgnored() {
+        long before = stockGuard.generation(1L);
+        when(counter.incrementAndGet()).thenReturn(1L);
+        stockGuard.restock(1L, 10);
+
+        stockGuard.markSoldOut(1L, before);
+        stockGuard.updateStock(1L, 0, before);
+        assertNull(stockGuard.admit(1L));
+
+        stockGuard.markSoldOut(1L, stockGuard.generation(1L));
+        assertEquals(StockResult.SOLD_OUT, stockGuard.admit(1L));
+    }
+
+    @Test
+    void remainingStockClearsSoldOut() {
+        long generation = stockGuard.generation(1L);
+        stockGuard.markSoldOut(1L, generation);
+        assertEquals(StockResult.SOLD_OUT, stockGuard.admit(1L));
+
+        stockGuard.updateStock(1L, 3, generation);
+        assertNull(stockGuard.admit(1L));
+    }
+}
@@ -0,0 +1,79 @@
+package com.springcache.redis.demo.stock;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class TokenBucketTest {
+
+    private final AtomicLong now = new AtomicLong();
+
+    @Test
+    void refillsAtFixedRateUpToCapacity() {
+        // 每秒10个, 即每100ms一个
+        TokenBucket bucket = new TokenBucket(3, 10, now::get);
+        for (int i = 0; i < 3; i++) {
+            assertTrue(bucket.tryAcquire());
+        }
+        assertFalse(bucket.tryAcquire());
+
+        now.addAndGet(TimeUnit.MILLISECONDS.toNanos(250));
+        assertEquals(2, bucket.available());
+        // 不足一个令牌的时间保留到下一次补充
+        now.addAndGet(TimeUnit.MILLISECONDS.toNanos(50));
+        assertEquals(3, bucket.available());
+
+        now.addAndGet(TimeUnit.SECONDS.toNanos(10));
+        assertEquals(3, bucket.available());
+    }
+
+    @Test
+    void resizeDropsExcessAndResetRefills() {
+        TokenBucket bucket = new TokenBucket(10, 0, now::get);
+        bucket.resize(2);
+        assertEquals(2, bucket.available());
+        assertTrue(bucket.tryAcquire());
+        assertTrue(bucket.tryAcquire());
+        assertFalse(bucket.tryAcquire());
+
+        bucket.reset(5);
+        assertEquals(5, bucket.getCapacity());
+        assertEquals(5, bucket.available());
+    }
+
+    @Test
+    void concurrentAcquireNeverExceedsTokens() throws InterruptedException {
+        TokenBucket bucket = new TokenBucket(1000, 0, now::get);
+        AtomicInteger acquired = new AtomicInteger();
+        ExecutorService executor = Executors.newFixedThreadPool(8);
+        CountDownLatch start = new CountDownLatch(1);
+        for (int i = 0; i < 8; i++) {
+            executor.execute(() -> {
+                try {
+                    start.await();
+                } catch (InterruptedException e) {
+                    return;
+                }
+                for (int j = 0; j < 500; j++) {
+                    if (bucket.tryAcquire()) {
+                        acquired.incrementAndGet();
+                    }
+                }
+            });
+        }
+        start.countDown();
+        executor.shutdown();
+        assertTrue(executor.awaitTermination(10, TimeUnit.SECONDS));
+        assertEquals(1000, acquired.get());
+        assertEquals(0, bucket.available());
+    }
+}
@@ -0,0 +1,71 @@
+package com.springcache.redis.demo.store;
+
+import com.springcache.redis.demo.cache.FstCacheCodec;
+import com.springcache.redis.demo.entity.User;
+import org.junit.jupiter.api.Test;
+
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.Map;
+import java.util.Random;
+import java.util.Set;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class LongKeyStoreTest {
+
+    @Test
+    void stripedMatchesJdkMap() {
+        matchesJdkMap(new StripedLongKeyStore<>(4, 4));
+    }
+
+    @Test
+    void offHeapMatchesJdkMap() {
+        matchesJdkMap(new OffHeapLongKeyStore<>(4, 4, new FstCacheCodec(User.class), User.class));
+    }
+
+    @Test
+    void offHeapCompactsOverwrittenValues() {
+        OffHeapLongKeyStore<User> store = new OffHeapLongKeyStore<>(1, 16, new FstCacheCodec(User.class), User.class);
+        for (int i = 0; i < 100000; i++) {
+            long id = i % 10;
+            store.put(id, new User(id, "user-" + i, "password"));
+        }
+        // 只有10个有效值, 反复覆盖产生的旧记录被整理而不是一直扩容
+        assertEquals(10, store.size());
+        assertTrue(store.getOffHeapBytes() < 64 * 1024, "offHeapBytes=" + store.getOffHeapBytes());
+        for (long id = 0; id < 10; id++) {
+            assertEquals("user-" + (99990 + id), store.get(id).getUsername());
+        }
+    }
+
+    private void matchesJdkMap(LongKeyStore<User> store) {
+        Map<Long, User> expected = new HashMap<>();
+        Random random = new Random(42);
+        for (int i = 0; i < 50000; i++) {
+            // 取值范围较小, 包含覆盖、删除(向前移动元素)和负数主键
+            long id = random.nextInt(4000) - 1000;
+            if (random.nextInt(3) == 0) {
+                assertEquals(expected.remove(id) != null, store.remove(id), "id=" + id);
+            } else {
+                User user = new User(id, "user-" + i, "password");
+                expected.put(id, user);
+                store.put(id, user);
+            }
+        }
+        assertEquals(expected.size(), store.size());
+        for (long id = -1000; id < 3000; id++) {
+            User user = store.get(id);
+            if (expected.containsKey(id)) {
+                assertEquals(expected.get(id).getUsername(), user.getUsername(), "id=" + id);
+            } else {
+                assertNull(user, "id=" + id);
+            }
+        }
+        Set<Long> keys = new HashSet<>();
+        store.forEachKey(keys::add);
+        assertEquals(expected.keySet(), keys);
+    }
+}
@@ -0,0 +1,118 @@
+package com.springcache.redis.demo.writebehind;
+
+import com.springcache.redis.demo.config.WriteBehindConfig;
+import com.springcache.redis.demo.entity.User;
+import com.springcache.redis.demo.lock.DistributedLock;
+import com.springcache.redis.demo.metrics.RedisMetrics;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.data.redis.core.StringRedisTemplate;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicReference;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+@SpringBootTest
+class WriteBehindQueueTest {
+
+    private static final String NAME = "test";
+
+    @Autowired
+    private StringRedisTemplate redisTemplate;
+
+    @Autowired
+    private DistributedLock distributedLock;
+
+    @Autowired
+    private RedisMetrics redisMetrics;
+
+    private final WriteBehindConfig config = new WriteBehindConfig();
+
+    @BeforeEach
+    void setUp() {
+        redisTemplate.delete("writeBehind::" + NAME + "::pending");
+        config.setMaxRetries(2);
+        config.setRetryBackoffMillis(10);
+    }
+
+    @Test
+    void coalescesUpdatesAndDeletes() {
+        List<Map<String, User>> batches = new ArrayList<>();
+        WriteBehindQueue<User> queue = queue(batch -> batches.add(new HashMap<>(batch)));
+        queue.submit("1", new User(1L, "v1", "p"));
+        queue.submit("1", new User(1L, "v2", "p"));
+        queue.submit("2", new User(2L, "v1", "p"));
+        queue.submit("2", null);
+
+        // 未写入前读取待写入的值, 删除读到null
+        assertEquals("v2", queue.read("1", () -> null).getUsername());
+        assertNull(queue.read("2", () -> new User(2L, "store", "p")));
+
+        assertEquals(2, queue.flush());
+        assertEquals(1, batches.size());
+        assertEquals("v2", batches.get(0).get("1").getUsername());
+        assertTrue(batches.get(0).containsKey("2"));
+        assertNull(batches.get(0).get("2"));
+        assertTrue(queue.pendingKeys().isEmpty());
+        assertEquals("store", queue.read("1", () -> new User(1L, "store", "p")).getUsername());
+    }
+
+    @Test
+    void updateDuringFlushStaysPending() {
+        AtomicInteger writes = new AtomicInteger();
+        List<String> written = new ArrayList<>();
+        AtomicReference<WriteBehindQueue<User>> holder = new AtomicReference<>();
+        holder.set(queue(batch -> {
+            written.add(batch.get("1").getUsername());
+            // 写入存储期间又有更新, 删除时值已变化, 应保留到下一批
+            if (writes.getAndIncrement() == 0) {
+                holder.get().submit("1", new User(1L, "v2", "p"));
+            }
+        }));
+        WriteBehindQueue<User> queue = holder.get();
+        queue.submit("1", new User(1L, "v1", "p"));
+
+        queue.flush();
+        assertEquals(Collections.singleton("1"), queue.pendingKeys());
+        assertEquals("v2", queue.read("1", () -> null).getUsername());
+
+        queue.flush();
+        assertTrue(queue.pendingKeys().isEmpty());
+        assertEquals(2, written.size());
+        assertEquals("v1", written.get(0));
+        assertEquals("v2", written.get(1));
+    }
+
+    @Test
+    void failedBatchIsRetriedThenKept() {
+        AtomicInteger attempts = new AtomicInteger();
+        WriteBehindQueue<User> queue = queue(batch -> {
+            attempts.incrementAndGet();
+            throw new IllegalStateException("store down");
+        });
+        queue.submit("1", new User(1L, "v1", "p"));
+
+        assertEquals(0, queue.flush());
+        // 首次写入 + maxRetries 次重试
+        assertEquals(3, attempts.get());
+        assertEquals(Collections.singleton("1"), queue.pendingKeys());
+        Map<String, Number> stats = queue.getStats();
+        assertEquals(2L, stats.get("retries"));
+        assertEquals(1L, stats.get("failures"));
+        assertEquals(0L, stats.get("flushed"));
+    }
+
+    private WriteBehindQueue<User> queue(BatchWriter<User> writer) {
+        return new WriteBehindQueue<>(NAME, User.class, writer, redisTemplate, distributedLock, redisMetrics, config);
+    }
+}